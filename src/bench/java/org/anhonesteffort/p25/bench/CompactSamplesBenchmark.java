@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.bench;
+
+import org.anhonesteffort.p25.sample.FloatSamplesBlock;
+import org.anhonesteffort.p25.sample.SamplesBlockPool;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CompactSamplesBenchmark {
+
+  /*
+  notice:
+    the wireBytes counter reports payload bytes per second next to the
+    conversion rate, at 48k samples per second one channel needs
+    48000 / samplesPerMessage conversions a second.
+   */
+
+  @Param({"float32", "int16"})
+  public String format;
+
+  @Param({"128", "512", "2048"})
+  public int samplesPerMessage;
+
+  private final SamplesBlockPool pool = new SamplesBlockPool(4);
+  private       ByteBuffer       payload;
+
+  @State(Scope.Thread)
+  @AuxCounters
+  public static class Wire {
+    public long wireBytes;
+    public long samples;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      wireBytes = 0l;
+      samples   = 0l;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    boolean compact = format.equals("int16");
+    payload = ByteBuffer.allocateDirect(samplesPerMessage * 2 * (compact ? 2 : 4));
+
+    for (int i = 0; i < samplesPerMessage * 2; i++) {
+      float sample = (float) Math.sin(i * 0.1d);
+      if (compact) {
+        payload.putShort((short) (sample * 32767f));
+      } else {
+        payload.putFloat(sample);
+      }
+    }
+
+    payload.flip();
+  }
+
+  @Benchmark
+  public float convert(Wire wire) {
+    FloatSamplesBlock block = format.equals("int16") ?
+                                  pool.acquire(payload.asShortBuffer()) :
+                                  pool.acquire(payload.asFloatBuffer());
+    float first = block.getInPhase(0);
+
+    wire.wireBytes += payload.remaining();
+    wire.samples   += block.getSampleCount();
+    block.release();
+
+    return first;
+  }
+
+}
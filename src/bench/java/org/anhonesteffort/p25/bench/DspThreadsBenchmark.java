@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DspThreadsBenchmark {
+
+  /*
+  notice:
+    each channel blocks on a samples queue like P25Channel does, one op
+    hands a block to every channel and waits for all of them to finish
+    it. fixed is the platform thread per channel the pool used to give,
+    virtual looks up Executors.newVirtualThreadPerTaskExecutor() at runtime
+    because the bench compiles at java 8, run it on a 21+ jvm.
+   */
+
+  @Param({"fixed", "virtual"})
+  public String threads;
+
+  @Param({"10", "100", "500"})
+  public int channels;
+
+  private final List<BlockingQueue<float[]>> queues = new ArrayList<>();
+  private final float[]                      block  = new float[2 * 512];
+
+  private          ExecutorService executor;
+  private volatile CountDownLatch  round;
+  private volatile float           sink;
+
+  private static ExecutorService virtualExecutor() throws Exception {
+    return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    executor = threads.equals("virtual") ? virtualExecutor() : Executors.newFixedThreadPool(channels);
+
+    for (int i = 0; i < block.length; i++) {
+      block[i] = (float) Math.sin(i * 0.1d);
+    }
+
+    for (int i = 0; i < channels; i++) {
+      BlockingQueue<float[]> queue = new ArrayBlockingQueue<>(10);
+      queues.add(queue);
+      executor.submit(() -> decode(queue));
+    }
+  }
+
+  private Void decode(BlockingQueue<float[]> queue) throws InterruptedException {
+    while (!Thread.currentThread().isInterrupted()) {
+      float[] samples = queue.take();
+      float   energy  = 0f;
+
+      for (float sample : samples) {
+        energy += sample * sample;
+      }
+
+      sink = energy;
+      round.countDown();
+    }
+    return null;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdownNow();
+    queues.clear();
+  }
+
+  @Benchmark
+  public float round() throws InterruptedException {
+    round = new CountDownLatch(channels);
+
+    for (BlockingQueue<float[]> queue : queues) {
+      queue.put(block);
+    }
+
+    round.await();
+    return sink;
+  }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.bench;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.anhonesteffort.chnlzr.capnp.BaseMessageDecoder;
+import org.anhonesteffort.p25.chnlzr.FastSamplesDecoder;
+import org.anhonesteffort.p25.chnlzr.RetainedSamples;
+import org.anhonesteffort.p25.chnlzr.RetainingMessageDecoder;
+import org.capnproto.Data;
+import org.capnproto.MessageBuilder;
+import org.capnproto.Serialize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.BaseMessage;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SamplesDecoderBenchmark {
+
+  @Param({"generic", "retained", "fast"})
+  public String decoder;
+
+  @Param({"128", "512", "2048"})
+  public int samplesPerMessage;
+
+  private EmbeddedChannel channel;
+  private ByteBuf         frame;
+
+  private static byte[] samplesFrame(int sampleCount) throws IOException {
+    ByteBuffer floats = ByteBuffer.allocate(sampleCount * 2 * 4);
+    for (int i = 0; i < sampleCount * 2; i++) {
+      floats.putFloat((float) Math.sin(i * 0.1d));
+    }
+
+    MessageBuilder      message = new MessageBuilder();
+    BaseMessage.Builder base    = message.initRoot(BaseMessage.factory);
+
+    base.setType(BaseMessage.Type.SAMPLES);
+    base.initSamples().setSamples(new Data.Reader(floats.array()));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Serialize.write(Channels.newChannel(bytes), message);
+    return bytes.toByteArray();
+  }
+
+  private ChannelHandler decoder() {
+    switch (decoder) {
+      case "fast":
+        return new FastSamplesDecoder();
+
+      case "retained":
+        return new RetainingMessageDecoder();
+
+      default:
+        return new BaseMessageDecoder();
+    }
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    channel = new EmbeddedChannel(decoder());
+    frame   = Unpooled.directBuffer().writeBytes(samplesFrame(samplesPerMessage));
+  }
+
+  @TearDown
+  public void tearDown() {
+    channel.close();
+    frame.release();
+  }
+
+  @Benchmark
+  public float decodeSamples() {
+    channel.writeInbound(frame.retain().duplicate());
+    Object decoded = channel.readInbound();
+
+    try {
+      if (decoded instanceof RetainedSamples) {
+        return ((RetainedSamples) decoded).getSamples().get(0);
+      } else {
+        return ((BaseMessage.Reader) decoded).getSamples().getSamples().asByteBuffer().getFloat(0);
+      }
+    } finally {
+      ReferenceCountUtil.release(decoded);
+    }
+  }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.bench;
+
+import org.anhonesteffort.chnlzr.ChnlzrConfig;
+import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
+import org.anhonesteffort.p25.chnlzr.ChnlzrConnectionFactory;
+import org.anhonesteffort.p25.chnlzr.ChnlzrController;
+import org.anhonesteffort.p25.chnlzr.HostId;
+import org.anhonesteffort.p25.chnlzr.LocalChnlzrServer;
+import org.anhonesteffort.p25.chnlzr.NettyTransport;
+import org.anhonesteffort.p25.chnlzr.SamplesSourceHandler;
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.sample.SamplesBlock;
+import org.anhonesteffort.p25.sample.SamplesBlockSink;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+
+  private static final long SAMPLE_RATE         = 48000l;
+  private static final int  SAMPLES_PER_MESSAGE = 512;
+
+  @Param({"nio", "epoll"})
+  public String transport;
+
+  @Param({"1", "16", "64"})
+  public int streams;
+
+  private final ProtoFactory               proto   = new ProtoFactory();
+  private final Semaphore                  blocks  = new Semaphore(0);
+  private final List<SamplesSourceHandler> sources = new LinkedList<>();
+
+  private LocalChnlzrServer server;
+  private NettyTransport    netty;
+
+  private ChnlzrConfig chnlzrConfig() {
+    ChnlzrConfig config = Mockito.mock(ChnlzrConfig.class);
+    Mockito.when(config.connectionTimeoutMs()).thenReturn(1000);
+    Mockito.when(config.idleStateThresholdMs()).thenReturn(60000l);
+    Mockito.when(config.bufferHighWaterMark()).thenReturn(32768);
+    Mockito.when(config.bufferLowWaterMark()).thenReturn(8192);
+    return config;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    MockMetrics.mockWith(Mockito.mock(P25DcodrMetrics.class, Mockito.withSettings().stubOnly()));
+
+    server = new LocalChnlzrServer(SAMPLE_RATE, SAMPLES_PER_MESSAGE);
+    netty  = new NettyTransport(transport.equals("epoll"));
+
+    if (transport.equals("epoll") && !netty.isEpoll()) {
+      throw new IllegalStateException("native epoll transport unavailable on this host");
+    }
+
+    HostId           host   = server.start();
+    ChnlzrController chnlzr = new ChnlzrController(
+        host, new ChnlzrConnectionFactory(chnlzrConfig(), netty.getChannel(), netty.getWorkerGroup())
+    );
+
+    for (int i = 0; i < streams; i++) {
+      SamplesSourceHandler source = chnlzr.createSourceFor(
+          proto.channelRequest(851000000d + (i * 12500d), 12500d, SAMPLE_RATE, 0l)
+      ).get(5, TimeUnit.SECONDS);
+
+      source.setSink(new CountingSink());
+      sources.add(source);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    sources.forEach(SamplesSourceHandler::close);
+    server.stop();
+    netty.getWorkerGroup().shutdownGracefully();
+  }
+
+  @Benchmark
+  public void receiveSamplesBlock() throws InterruptedException {
+    blocks.acquire();
+  }
+
+  private class CountingSink implements SamplesBlockSink {
+    @Override
+    public void onSourceStateChange(long sampleRate, double frequency) { }
+
+    @Override
+    public void consume(SamplesBlock block) {
+      block.release();
+      blocks.release();
+    }
+  }
+
+}
@@ -18,34 +18,43 @@
 package org.anhonesteffort.p25;
 
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
 import io.dropwizard.Application;
 import io.dropwizard.client.JerseyClientBuilder;
 import io.dropwizard.jetty.HttpConnectorFactory;
 import io.dropwizard.server.SimpleServerFactory;
 import io.dropwizard.setup.Environment;
 import io.dropwizard.util.Duration;
-import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.radiowitness.kinesis.producer.KinesisClientFactory;
 import org.anhonesteffort.chnlzr.ChnlzrConfig;
 import org.anhonesteffort.p25.chnlzr.ChnlzrConnectionFactory;
+import org.anhonesteffort.p25.chnlzr.ChnlzrConnectionPool;
 import org.anhonesteffort.p25.chnlzr.ChnlzrController;
-import org.anhonesteffort.p25.chnlzr.HostId;
+import org.anhonesteffort.p25.chnlzr.CircuitBreaker;
+import org.anhonesteffort.p25.chnlzr.EventLoopPlacement;
+import org.anhonesteffort.p25.chnlzr.HedgePolicy;
+import org.anhonesteffort.p25.chnlzr.IngestMonitor;
+import org.anhonesteffort.p25.chnlzr.NettyTransport;
+import org.anhonesteffort.p25.chnlzr.SamplesSourceOptions;
+import org.anhonesteffort.p25.chnlzr.WidebandChannelizer;
+import org.anhonesteffort.p25.health.ChnlzrHostsCheck;
 import org.anhonesteffort.p25.health.DumbCheck;
 import org.anhonesteffort.p25.kinesis.KinesisRecordProducerFactory;
 import org.anhonesteffort.p25.metric.P25DcodrMetrics;
 import org.anhonesteffort.p25.monitor.ChannelMonitor;
+import org.anhonesteffort.p25.monitor.DspCostModel;
+import org.anhonesteffort.p25.monitor.PartitionedDspPool;
 import org.anhonesteffort.p25.monitor.RetryingControlChannelMonitor;
 import org.anhonesteffort.p25.resource.ControlChannelFollowingResource;
 import org.anhonesteffort.p25.resource.ControlChannelQualifyingResource;
+import org.anhonesteffort.p25.resource.DspResource;
+import org.anhonesteffort.p25.resource.IngestResource;
 import org.anhonesteffort.p25.resource.TrafficChannelCaptureResource;
+import org.anhonesteffort.p25.sample.CooperativeScheduler;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.WebTarget;
 import java.io.IOException;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -81,13 +90,54 @@ public class P25DcodrApplication extends Application<P25DcodrConfig> {
     }
   }
 
+  private ChnlzrConnectionFactory.SamplesDecoding getSamplesDecoding(P25DcodrConfig config) {
+    if (config.getZeroCopySamples() && config.getFastSamplesDecoder()) {
+      return ChnlzrConnectionFactory.SamplesDecoding.FAST;
+    } else if (config.getZeroCopySamples()) {
+      return ChnlzrConnectionFactory.SamplesDecoding.RETAINED;
+    } else {
+      return ChnlzrConnectionFactory.SamplesDecoding.GENERIC;
+    }
+  }
+
+  private Optional<CooperativeScheduler> getDspScheduler(P25DcodrConfig config, Environment environment) {
+    if (config.getDspWorkers() > 0) {
+      CooperativeScheduler scheduler = new CooperativeScheduler(config.getDspWorkers(), config.getDspWorkerBudget());
+      environment.lifecycle().manage(scheduler);
+      return Optional.of(scheduler);
+    } else {
+      return Optional.empty();
+    }
+  }
+
+  private HedgePolicy getHedgePolicy(P25DcodrConfig config, NettyTransport transport) {
+    if (config.getHedgeTrafficRequests()) {
+      return new HedgePolicy(config, transport.getWorkerGroup());
+    } else {
+      return new HedgePolicy();
+    }
+  }
+
+  private Optional<WidebandChannelizer> getWideband(P25DcodrConfig     config,
+                                                    ChnlzrController   chnlzr,
+                                                    PartitionedDspPool dspPool,
+                                                    NettyTransport     transport)
+  {
+    if (config.getWidebandCapture()) {
+      return Optional.of(new WidebandChannelizer(config, chnlzr, dspPool, transport.getWorkerGroup()));
+    } else {
+      return Optional.empty();
+    }
+  }
+
   @Override
   public void run(P25DcodrConfig config, Environment environment) throws Exception {
     P25DcodrMetrics.init(config.getCloudWatch(), new MetricRegistry());
 
-    EventLoopGroup           nettyPool   = new NioEventLoopGroup();
-    ListeningExecutorService dspPool     = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(config.getDspPoolSize()));
-    ExecutorService          kinesisPool = Executors.newFixedThreadPool(config.getKinesis().getSenderPoolSize());
+    NettyTransport     transport   = new NettyTransport(config.getEpollTransport(), config.getIoThreads());
+    DspCostModel       dspCosts    = new DspCostModel(config);
+    PartitionedDspPool dspPool     = new PartitionedDspPool(config, dspCosts);
+    ExecutorService    kinesisPool = Executors.newFixedThreadPool(config.getKinesis().getSenderPoolSize());
 
     Client    jerseyClient  = buildClient(config, environment);
     String    serverUri     = getServerUri(config);
@@ -95,18 +145,37 @@ public class P25DcodrApplication extends Application<P25DcodrConfig> {
     WebTarget followTarget  = jerseyClient.target(serverUri).path("channels/control");
     WebTarget trafficTarget = jerseyClient.target(serverUri).path("channels/traffic/group");
 
-    ChnlzrConnectionFactory chnlzrConnections = new ChnlzrConnectionFactory(chnlzrConfig, NioSocketChannel.class, nettyPool);
-    HostId                  chnlzrHost        = new HostId(config.getChnlzrHostname(), config.getChnlzrPort());
-    ChnlzrController        chnlzr            = new ChnlzrController(chnlzrHost, chnlzrConnections);
+    EventLoopPlacement ioPlacement = new EventLoopPlacement(transport.getWorkerGroup(), config.getIoPlacement());
+    ioPlacement.startLoadReporting();
+    dspCosts.startSampling(
+        environment.lifecycle().scheduledExecutorService("dsp-cost-%d", true).threads(1).build(),
+        config.getDspCostSampleMs()
+    );
+
+    ChnlzrConnectionFactory chnlzrConnections = new ChnlzrConnectionFactory(
+        chnlzrConfig, transport.getChannel(), ioPlacement, getSamplesDecoding(config)
+    );
+    ChnlzrConnectionPool    chnlzrPool        = new ChnlzrConnectionPool(
+        chnlzrConnections, transport.getWorkerGroup(), config.getChnlzrPoolSize(), config.getChnlzrPoolIdleMs()
+    );
+    IngestMonitor           ingestMonitor     = new IngestMonitor();
+    ChnlzrController        chnlzr            = new ChnlzrController(
+        config.getChnlzrHostIds(), chnlzrPool, ingestMonitor,
+        new SamplesSourceOptions(config, getDspScheduler(config, environment)), getHedgePolicy(config, transport),
+        () -> new CircuitBreaker(config.getChnlzrBreakerFailures(), config.getChnlzrBreakerOpenMs())
+    );
     ChannelMonitor          channelMonitor    = new RetryingControlChannelMonitor(config, qualifyTarget, followTarget);
 
     KinesisClientFactory         kinesisClients = new KinesisClientFactory(config.getKinesis(), kinesisPool);
     KinesisRecordProducerFactory kinesisSenders = new KinesisRecordProducerFactory(config.getKinesis(), kinesisClients);
 
     environment.healthChecks().register("dumb", new DumbCheck());
+    environment.healthChecks().register("chnlzr", new ChnlzrHostsCheck(chnlzr));
     environment.jersey().register(new ControlChannelQualifyingResource(config, chnlzr, dspPool));
     environment.jersey().register(new ControlChannelFollowingResource(config, chnlzr, channelMonitor, kinesisSenders, trafficTarget, dspPool));
-    environment.jersey().register(new TrafficChannelCaptureResource(config, chnlzr, channelMonitor, kinesisSenders, dspPool));
+    environment.jersey().register(new TrafficChannelCaptureResource(config, chnlzr, channelMonitor, kinesisSenders, dspPool, getWideband(config, chnlzr, dspPool, transport)));
+    environment.jersey().register(new IngestResource(ingestMonitor));
+    environment.jersey().register(new DspResource(dspCosts));
   }
 
   public static void main(String[] args) throws Exception {
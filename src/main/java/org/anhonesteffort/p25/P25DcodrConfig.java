@@ -17,16 +17,25 @@
 
 package org.anhonesteffort.p25;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.Configuration;
 import io.dropwizard.client.JerseyClientConfiguration;
+import io.dropwizard.validation.ValidationMethod;
+import org.anhonesteffort.p25.chnlzr.ChnlzrHostConfig;
+import org.anhonesteffort.p25.chnlzr.EventLoopPlacement;
+import org.anhonesteffort.p25.chnlzr.HostId;
 import org.anhonesteffort.p25.kinesis.KinesisConfig;
 import org.anhonesteffort.p25.metric.CloudWatchConfig;
-import org.hibernate.validator.constraints.NotEmpty;
+import org.anhonesteffort.p25.monitor.TalkgroupPriorityConfig;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class P25DcodrConfig extends Configuration {
 
@@ -44,16 +53,62 @@ public class P25DcodrConfig extends Configuration {
   @NotNull
   private CloudWatchConfig cloudWatch;
 
+  @Valid
+  @NotNull
+  private List<ChnlzrHostConfig> chnlzrHosts = new LinkedList<>();
+
+  @Valid
+  @NotNull
+  private List<TalkgroupPriorityConfig> talkgroupPriorities = new LinkedList<>();
+
   @Min(1)   private Integer dspPoolSize;
-  @NotEmpty private String  chnlzrHostname;
+  @Min(0)   private Integer dspReservedControl     = 1;
+  @NotNull  private Double  dspTargetLoad          = 0.8d;
+  @NotNull  private Double  dspChannelCost         = 0.05d;
+  @Min(1)   private Long    dspCostSampleMs        = 1000l;
+  @Min(1)   private Long    dspRetryAfterMs        = 1000l;
+  @Min(0)   private Integer dspMinThreads          = 2;
+  @Min(1)   private Long    dspThreadKeepAliveMs   = 60000l;
+  @NotNull  private Boolean dspVirtualThreads      = false;
+  @Min(1)   private Integer dspVirtualChannels     = 500;
+  @Min(0)   private Integer dspWorkers             = 0;
+  @Min(1)   private Integer dspWorkerBudget        = 8;
+            private String  chnlzrHostname;
   @Min(1)   private Integer chnlzrPort;
+  @Min(0)   private Integer chnlzrPoolSize         = 0;
+  @Min(1)   private Long    chnlzrPoolIdleMs       = 60000l;
+  @Min(0)   private Integer chnlzrBreakerFailures  = 5;
+  @Min(1)   private Long    chnlzrBreakerOpenMs    = 5000l;
   @Min(1)   private Long    channelRequestTimeoutMs;
   @Min(1)   private Long    channelQualifyTimeMs;
+  @Min(0)   private Long    streamResumeTimeoutMs    = 0l;
+  @Min(1)   private Long    streamResumeRetryDelayMs = 100l;
+  @NotNull  private Boolean hedgeTrafficRequests     = false;
+  @NotNull  private Double  hedgePercentile          = 0.95d;
+  @Min(0)   private Long    hedgeMinDelayMs          = 20l;
+  @NotNull  private Boolean widebandCapture          = false;
+  @Min(1)   private Double  widebandBandwidth        = 1000000d;
+  @Min(1)   private Integer widebandTapsPerPhase     = 16;
+  @Min(0)   private Long    widebandIdleMs           = 30000l;
   @Min(1)   private Integer samplesQueueSize;
   @NotNull  private Double  minControlDataUnitRate;
   @NotNull  private Double  minTrafficDataUnitRate;
   @Min(0)   private Integer controlChannelRetryCount;
+  @NotNull  private Integer defaultTalkgroupPriority = 0;
+  @NotNull  private Boolean preemptTrafficChannels   = false;
   @Min(0)   private Long    controlChannelRetryDelayMs;
+  @NotNull  private Boolean samplesFlowControl = true;
+  @Min(1)   private Integer samplesHighWaterMark;
+  @Min(0)   private Integer samplesLowWaterMark;
+  @Min(0)   private Long    samplesStallTimeoutMs  = 5000l;
+  @Min(0)   private Integer samplesCoalesceSize    = 0;
+  @Min(1)   private Long    samplesCoalesceDelayMs = 5l;
+  @NotNull  private Boolean compactSamples         = false;
+  @NotNull  private Boolean zeroCopySamples    = false;
+  @NotNull  private Boolean fastSamplesDecoder = false;
+  @NotNull  private Boolean epollTransport     = false;
+  @Min(0)   private Integer ioThreads          = 0;
+  @NotNull  private EventLoopPlacement.Policy ioPlacement = EventLoopPlacement.Policy.LEAST_LOADED;
 
   public P25Config getP25Config() {
     return p25Config;
@@ -78,6 +133,61 @@ public class P25DcodrConfig extends Configuration {
     return dspPoolSize;
   }
 
+  @JsonProperty
+  public Integer getDspReservedControl() {
+    return dspReservedControl;
+  }
+
+  @JsonProperty
+  public Double getDspTargetLoad() {
+    return dspTargetLoad;
+  }
+
+  @JsonProperty
+  public Double getDspChannelCost() {
+    return dspChannelCost;
+  }
+
+  @JsonProperty
+  public Long getDspCostSampleMs() {
+    return dspCostSampleMs;
+  }
+
+  @JsonProperty
+  public Long getDspRetryAfterMs() {
+    return dspRetryAfterMs;
+  }
+
+  @JsonProperty
+  public Integer getDspMinThreads() {
+    return dspMinThreads;
+  }
+
+  @JsonProperty
+  public Long getDspThreadKeepAliveMs() {
+    return dspThreadKeepAliveMs;
+  }
+
+  @JsonProperty
+  public Boolean getDspVirtualThreads() {
+    return dspVirtualThreads;
+  }
+
+  @JsonProperty
+  public Integer getDspVirtualChannels() {
+    return dspVirtualChannels;
+  }
+
+  @JsonProperty
+  public Integer getDspWorkers() {
+    return dspWorkers;
+  }
+
+  @JsonProperty
+  public Integer getDspWorkerBudget() {
+    return dspWorkerBudget;
+  }
+
   @JsonProperty
   public String getChnlzrHostname() {
     return chnlzrHostname;
@@ -88,6 +198,61 @@ public class P25DcodrConfig extends Configuration {
     return chnlzrPort;
   }
 
+  @JsonProperty
+  public List<ChnlzrHostConfig> getChnlzrHosts() {
+    return chnlzrHosts;
+  }
+
+  @JsonIgnore
+  public List<HostId> getChnlzrHostIds() {
+    List<HostId> hosts = chnlzrHosts.stream().map(ChnlzrHostConfig::getHostId).collect(Collectors.toList());
+    if (chnlzrHostname != null && !chnlzrHostname.isEmpty() && chnlzrPort != null) {
+      hosts.add(0, new HostId(chnlzrHostname, chnlzrPort));
+    }
+    return hosts;
+  }
+
+  @JsonIgnore
+  public Map<HostId, Boolean> getChnlzrCompactSamples() {
+    return chnlzrHosts.stream()
+                      .filter(host -> host.getCompactSamples() != null)
+                      .collect(Collectors.toMap(
+                          ChnlzrHostConfig::getHostId, ChnlzrHostConfig::getCompactSamples, (first, last) -> last
+                      ));
+  }
+
+  @JsonIgnore
+  @ValidationMethod(message = "at least one chnlzr host must be configured")
+  public boolean isChnlzrHostConfigured() {
+    return !getChnlzrHostIds().isEmpty();
+  }
+
+  @JsonIgnore
+  @ValidationMethod(message = "fastSamplesDecoder requires zeroCopySamples")
+  public boolean isFastSamplesDecoderZeroCopy() {
+    return !fastSamplesDecoder || zeroCopySamples;
+  }
+
+  @JsonProperty
+  public Integer getChnlzrPoolSize() {
+    return chnlzrPoolSize;
+  }
+
+  @JsonProperty
+  public Long getChnlzrPoolIdleMs() {
+    return chnlzrPoolIdleMs;
+  }
+
+  @JsonProperty
+  public Integer getChnlzrBreakerFailures() {
+    return chnlzrBreakerFailures;
+  }
+
+  @JsonProperty
+  public Long getChnlzrBreakerOpenMs() {
+    return chnlzrBreakerOpenMs;
+  }
+
   @JsonProperty
   public Long getChannelRequestTimeoutMs() {
     return channelRequestTimeoutMs;
@@ -118,9 +283,137 @@ public class P25DcodrConfig extends Configuration {
     return controlChannelRetryCount;
   }
 
+  @JsonProperty
+  public List<TalkgroupPriorityConfig> getTalkgroupPriorities() {
+    return talkgroupPriorities;
+  }
+
+  @JsonProperty
+  public Integer getDefaultTalkgroupPriority() {
+    return defaultTalkgroupPriority;
+  }
+
+  @JsonProperty
+  public Boolean getPreemptTrafficChannels() {
+    return preemptTrafficChannels;
+  }
+
+  @JsonProperty
+  public Long getStreamResumeTimeoutMs() {
+    return streamResumeTimeoutMs;
+  }
+
+  @JsonProperty
+  public Long getStreamResumeRetryDelayMs() {
+    return streamResumeRetryDelayMs;
+  }
+
+  @JsonProperty
+  public Boolean getHedgeTrafficRequests() {
+    return hedgeTrafficRequests;
+  }
+
+  @JsonProperty
+  public Double getHedgePercentile() {
+    return hedgePercentile;
+  }
+
+  @JsonProperty
+  public Long getHedgeMinDelayMs() {
+    return hedgeMinDelayMs;
+  }
+
+  @JsonProperty
+  public Boolean getWidebandCapture() {
+    return widebandCapture;
+  }
+
+  @JsonProperty
+  public Double getWidebandBandwidth() {
+    return widebandBandwidth;
+  }
+
+  @JsonProperty
+  public Integer getWidebandTapsPerPhase() {
+    return widebandTapsPerPhase;
+  }
+
+  @JsonProperty
+  public Long getWidebandIdleMs() {
+    return widebandIdleMs;
+  }
+
   @JsonProperty
   public Long getControlChannelRetryDelayMs() {
     return controlChannelRetryDelayMs;
   }
 
+  @JsonProperty
+  public Boolean getSamplesFlowControl() {
+    return samplesFlowControl;
+  }
+
+  @JsonProperty
+  public Integer getSamplesHighWaterMark() {
+    if (samplesHighWaterMark != null) {
+      return samplesHighWaterMark;
+    } else {
+      return Math.max(1, (samplesQueueSize * 3) / 4);
+    }
+  }
+
+  @JsonProperty
+  public Integer getSamplesLowWaterMark() {
+    if (samplesLowWaterMark != null) {
+      return samplesLowWaterMark;
+    } else {
+      return samplesQueueSize / 4;
+    }
+  }
+
+  @JsonProperty
+  public Long getSamplesStallTimeoutMs() {
+    return samplesStallTimeoutMs;
+  }
+
+  @JsonProperty
+  public Integer getSamplesCoalesceSize() {
+    return samplesCoalesceSize;
+  }
+
+  @JsonProperty
+  public Long getSamplesCoalesceDelayMs() {
+    return samplesCoalesceDelayMs;
+  }
+
+  @JsonProperty
+  public Boolean getCompactSamples() {
+    return compactSamples;
+  }
+
+  @JsonProperty
+  public Boolean getZeroCopySamples() {
+    return zeroCopySamples;
+  }
+
+  @JsonProperty
+  public Boolean getFastSamplesDecoder() {
+    return fastSamplesDecoder;
+  }
+
+  @JsonProperty
+  public Boolean getEpollTransport() {
+    return epollTransport;
+  }
+
+  @JsonProperty
+  public Integer getIoThreads() {
+    return ioThreads;
+  }
+
+  @JsonProperty
+  public EventLoopPlacement.Policy getIoPlacement() {
+    return ioPlacement;
+  }
+
 }
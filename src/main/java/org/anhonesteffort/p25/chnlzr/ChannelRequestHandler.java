@@ -32,13 +32,22 @@ public class ChannelRequestHandler extends ChannelHandlerAdapter {
   private final ProtoFactory proto = new ProtoFactory();
   private final SettableFuture<ChannelRequestHandler> future;
   private final ChannelRequest.Reader request;
+  private final SetupTimer timer;
 
   private ChannelHandlerContext context;
   private ChannelState.Reader state;
 
-  public ChannelRequestHandler(SettableFuture<ChannelRequestHandler> future, ChannelRequest.Reader request) {
+  public ChannelRequestHandler(SettableFuture<ChannelRequestHandler> future,
+                               ChannelRequest.Reader                 request,
+                               SetupTimer                            timer)
+  {
     this.future  = future;
     this.request = request;
+    this.timer   = timer;
+  }
+
+  public ChannelRequestHandler(SettableFuture<ChannelRequestHandler> future, ChannelRequest.Reader request) {
+    this(future, request, new SetupTimer());
   }
 
   public ChannelHandlerContext getContext() {
@@ -49,24 +58,58 @@ public class ChannelRequestHandler extends ChannelHandlerAdapter {
     return state;
   }
 
+  public SetupTimer getSetupTimer() {
+    return timer;
+  }
+
   @Override
   public void handlerAdded(ChannelHandlerContext context) {
     this.context = context;
+    timer.onRequestSent();
     context.writeAndFlush(proto.channelRequest(request));
   }
 
+  private void onUnexpected(ChannelHandlerContext context, BaseMessage.Type type) throws IllegalStateException {
+    IllegalStateException ex = new IllegalStateException("chnlzr sent unexpected " + type.name());
+    if (future.setException(ex)) {
+      context.close();
+    } else {
+      throw ex;
+    }
+  }
+
+  private void onSamples(ChannelHandlerContext context) throws IllegalStateException {
+    if (state == null) {
+      onUnexpected(context, BaseMessage.Type.SAMPLES);
+    }
+  }
+
   @Override
   public void channelRead(ChannelHandlerContext context, Object msg)
       throws ProtocolErrorException, IllegalStateException
   {
+    if (msg instanceof RetainedSamples) {
+      try {
+        onSamples(context);
+      } finally {
+        ((RetainedSamples) msg).release();
+      }
+      return;
+    }
+
     BaseMessage.Reader message = (BaseMessage.Reader) msg;
 
     switch (message.getType()) {
       case CHANNEL_STATE:
         state = message.getChannelState();
+        timer.onChannelState();
         future.set(this);
         break;
 
+      case SAMPLES:
+        onSamples(context);
+        break;
+
       case ERROR:
         ProtocolErrorException error = new ProtocolErrorException("chnlzr sent error", message.getError().getCode());
         if (future.setException(error)) {
@@ -77,12 +120,7 @@ public class ChannelRequestHandler extends ChannelHandlerAdapter {
         break;
 
       default:
-        IllegalStateException ex = new IllegalStateException("chnlzr sent unexpected " + message.getType().name());
-        if (future.setException(ex)) {
-          context.close();
-        } else {
-          throw ex;
-        }
+        onUnexpected(context, message.getType());
         break;
     }
   }
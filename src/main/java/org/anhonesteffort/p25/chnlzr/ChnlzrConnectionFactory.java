@@ -21,8 +21,11 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.timeout.IdleStateHandler;
@@ -33,28 +36,74 @@ import org.anhonesteffort.chnlzr.netty.IdleStateHeartbeatWriter;
 
 import java.net.ConnectException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ChnlzrConnectionFactory {
 
+  public enum SamplesDecoding { GENERIC, RETAINED, FAST }
+
   private final ChnlzrConfig             config;
   private final Class<? extends Channel> channel;
-  private final EventLoopGroup           workerGroup;
+  private final EventLoopPlacement       placement;
+  private final SamplesDecoding          decoding;
+
+  public ChnlzrConnectionFactory(ChnlzrConfig             config,
+                                 Class<? extends Channel> channel,
+                                 EventLoopPlacement       placement,
+                                 SamplesDecoding          decoding)
+  {
+    this.config    = config;
+    this.channel   = channel;
+    this.placement = placement;
+    this.decoding  = decoding;
+  }
+
+  public ChnlzrConnectionFactory(ChnlzrConfig             config,
+                                 Class<? extends Channel> channel,
+                                 EventLoopGroup           workerGroup,
+                                 boolean                  retainSamples)
+  {
+    this(
+        config, channel, new EventLoopPlacement(workerGroup),
+        retainSamples ? SamplesDecoding.RETAINED : SamplesDecoding.GENERIC
+    );
+  }
 
   public ChnlzrConnectionFactory(ChnlzrConfig             config,
                                  Class<? extends Channel> channel,
                                  EventLoopGroup           workerGroup)
   {
-    this.config      = config;
-    this.channel     = channel;
-    this.workerGroup = workerGroup;
+    this(config, channel, workerGroup, false);
+  }
+
+  private ChannelHandler decoder() {
+    switch (decoding) {
+      case FAST:
+        return new FastSamplesDecoder();
+
+      case RETAINED:
+        return new RetainingMessageDecoder();
+
+      default:
+        return new BaseMessageDecoder();
+    }
   }
 
   public ListenableFuture<ChnlzrConnectionHandler> create(HostId chnlzrHost) {
+    return create(chnlzrHost, placement.place());
+  }
+
+  public ListenableFuture<ChnlzrConnectionHandler> create(HostId chnlzrHost, double frequency) {
+    return create(chnlzrHost, placement.place(frequency));
+  }
+
+  private ListenableFuture<ChnlzrConnectionHandler> create(HostId chnlzrHost, EventLoop loop) {
     SettableFuture<ChnlzrConnectionHandler> future     = SettableFuture.create();
-    ChnlzrConnectionHandler                 connection = new ChnlzrConnectionHandler(future);
+    SetupTimer                              timer      = new SetupTimer(chnlzrHost);
+    ChnlzrConnectionHandler                 connection = new ChnlzrConnectionHandler(future, timer);
     Bootstrap                               bootstrap  = new Bootstrap();
 
-    bootstrap.group(workerGroup)
+    bootstrap.group(loop)
              .channel(channel)
              .option(ChannelOption.SO_KEEPALIVE, true)
              .option(ChannelOption.TCP_NODELAY, true)
@@ -67,16 +116,27 @@ public class ChnlzrConnectionFactory {
                  ch.pipeline().addLast("idle state", new IdleStateHandler(0, 0, config.idleStateThresholdMs(), TimeUnit.MILLISECONDS));
                  ch.pipeline().addLast("heartbeat",  IdleStateHeartbeatWriter.INSTANCE);
                  ch.pipeline().addLast("encoder",    BaseMessageEncoder.INSTANCE);
-                 ch.pipeline().addLast("decoder",    new BaseMessageDecoder());
+                 ch.pipeline().addLast("decoder",    decoder());
                  ch.pipeline().addLast("connector",  connection);
                }
              });
 
-    bootstrap.connect(chnlzrHost.getHostname(), chnlzrHost.getPort())
-             .addListener(connect -> {
-               if (!connect.isSuccess())
-                 future.setException(new ConnectException("failed to connect to chnlzr"));
-             });
+    AtomicBoolean released = new AtomicBoolean(false);
+    ChannelFuture connect  = bootstrap.connect(chnlzrHost.getHostname(), chnlzrHost.getPort());
+
+    connect.channel().closeFuture().addListener(closed -> {
+      if (released.compareAndSet(false, true))
+        placement.release(loop);
+    });
+    connect.addListener(connected -> {
+      if (connected.isSuccess()) {
+        timer.onConnected();
+      } else {
+        if (released.compareAndSet(false, true))
+          placement.release(loop);
+        future.setException(new ConnectException("failed to connect to chnlzr"));
+      }
+    });
 
     return future;
   }
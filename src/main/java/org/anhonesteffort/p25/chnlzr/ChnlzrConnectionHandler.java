@@ -30,11 +30,17 @@ import static org.anhonesteffort.chnlzr.capnp.Proto.Capabilities;
 public class ChnlzrConnectionHandler extends ChannelHandlerAdapter {
 
   private final SettableFuture<ChnlzrConnectionHandler> future;
+  private final SetupTimer timer;
   private ChannelHandlerContext context;
   private Capabilities.Reader capabilities;
 
-  public ChnlzrConnectionHandler(SettableFuture<ChnlzrConnectionHandler> future) {
+  public ChnlzrConnectionHandler(SettableFuture<ChnlzrConnectionHandler> future, SetupTimer timer) {
     this.future = future;
+    this.timer  = timer;
+  }
+
+  public ChnlzrConnectionHandler(SettableFuture<ChnlzrConnectionHandler> future) {
+    this(future, new SetupTimer());
   }
 
   public ChannelHandlerContext getContext() {
@@ -45,20 +51,43 @@ public class ChnlzrConnectionHandler extends ChannelHandlerAdapter {
     return capabilities;
   }
 
+  public SetupTimer getSetupTimer() {
+    return timer;
+  }
+
   @Override
   public void channelActive(ChannelHandlerContext context) {
     this.context = context;
   }
 
+  private void onUnexpected(ChannelHandlerContext context, BaseMessage.Type type) throws IllegalStateException {
+    IllegalStateException ex = new IllegalStateException("chnlzr sent unexpected " + type.name());
+    if (future.setException(ex)) {
+      context.close();
+    } else {
+      throw ex;
+    }
+  }
+
   @Override
   public void channelRead(ChannelHandlerContext context, Object msg)
       throws ProtocolErrorException, IllegalStateException
   {
+    if (msg instanceof RetainedSamples) {
+      try {
+        onUnexpected(context, BaseMessage.Type.SAMPLES);
+      } finally {
+        ((RetainedSamples) msg).release();
+      }
+      return;
+    }
+
     BaseMessage.Reader message = (BaseMessage.Reader) msg;
 
     switch (message.getType()) {
       case CAPABILITIES:
         capabilities = message.getCapabilities();
+        timer.onCapabilities();
         future.set(this);
         break;
 
@@ -72,12 +101,7 @@ public class ChnlzrConnectionHandler extends ChannelHandlerAdapter {
         break;
 
       default:
-        IllegalStateException ex = new IllegalStateException("chnlzr sent unexpected " + message.getType().name());
-        if (future.setException(ex)) {
-          context.close();
-        } else {
-          throw ex;
-        }
+        onUnexpected(context, message.getType());
         break;
     }
   }
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.netty.channel.Channel;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.Capabilities;
+
+public class ChnlzrConnectionPool {
+
+  private static final Logger log = LoggerFactory.getLogger(ChnlzrConnectionPool.class);
+
+  /*
+  notice:
+    refill only warms hosts whose breaker is closed, and each failed warm
+    doubles a per-host back-off (from WARM_BACKOFF_MS up to maxIdleMs) so a
+    dead host isn't redialed on every acquire and every eviction pass.
+   */
+
+  protected static final long WARM_BACKOFF_MS = 1000l;
+
+  private final ConcurrentHashMap<HostId, Deque<IdleConnection>> idle    = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<HostId, Warming>               warming = new ConcurrentHashMap<>();
+
+  private final ChnlzrConnectionFactory factory;
+  private final int                     poolSize;
+  private final long                    maxIdleMs;
+
+  public ChnlzrConnectionPool(ChnlzrConnectionFactory  factory,
+                              ScheduledExecutorService scheduler,
+                              int                      poolSize,
+                              long                     maxIdleMs)
+  {
+    this.factory   = factory;
+    this.poolSize  = poolSize;
+    this.maxIdleMs = maxIdleMs;
+
+    if (poolSize > 0) {
+      P25DcodrMetrics.getInstance().registerChnlzrPool(this::getIdleCount);
+      scheduler.scheduleWithFixedDelay(this::evictIdle, maxIdleMs, maxIdleMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public ChnlzrConnectionPool(ChnlzrConnectionFactory factory) {
+    this.factory   = factory;
+    this.poolSize  = 0;
+    this.maxIdleMs = 0l;
+  }
+
+  private static class IdleConnection {
+    private final ChnlzrConnectionHandler connection;
+    private final long                    idleSinceNs;
+
+    public IdleConnection(ChnlzrConnectionHandler connection) {
+      this.connection = connection;
+      idleSinceNs     = System.nanoTime();
+    }
+
+    public Channel getChannel() {
+      return connection.getContext().channel();
+    }
+  }
+
+  private Deque<IdleConnection> idleFor(HostId host) {
+    return idle.computeIfAbsent(host, key -> new ConcurrentLinkedDeque<>());
+  }
+
+  private static class Warming {
+    private final AtomicInteger  pending  = new AtomicInteger(0);
+    private final CircuitBreaker breaker;
+
+    private int  failures  = 0;
+    private long retryAtNs = 0l;
+
+    public Warming(CircuitBreaker breaker) {
+      this.breaker = breaker;
+    }
+  }
+
+  private Warming warmingFor(HostId host) {
+    return warming.computeIfAbsent(host, key -> new Warming(new CircuitBreaker()));
+  }
+
+  private long backoffNs(int failures) {
+    long backoffMs = WARM_BACKOFF_MS << Math.min(failures - 1, 16);
+    return TimeUnit.MILLISECONDS.toNanos(Math.min(backoffMs, Math.max(maxIdleMs, WARM_BACKOFF_MS)));
+  }
+
+  public int getIdleCount() {
+    return idle.values().stream().mapToInt(Deque::size).sum();
+  }
+
+  public int getIdleCount(HostId host) {
+    return idleFor(host).size();
+  }
+
+  private Optional<ChnlzrConnectionHandler> pollIdle(HostId host) {
+    Deque<IdleConnection> connections = idleFor(host);
+    IdleConnection        connection  = connections.pollFirst();
+
+    while (connection != null && !connection.getChannel().isActive()) {
+      connection = connections.pollFirst();
+    }
+
+    return Optional.ofNullable(connection).map(idle -> idle.connection);
+  }
+
+  private void refill(HostId host) {
+    refill(host, System.nanoTime());
+  }
+
+  protected synchronized void refill(HostId host, long nowNs) {
+    Deque<IdleConnection> connections = idleFor(host);
+    Warming               warm        = warmingFor(host);
+
+    if (warm.breaker.getState() != CircuitBreaker.State.CLOSED) {
+      return;
+    } else if (warm.failures > 0 && (nowNs - warm.retryAtNs) < 0) {
+      return;
+    }
+
+    while (connections.size() + warm.pending.get() < poolSize) {
+      warm.pending.incrementAndGet();
+      Futures.addCallback(factory.create(host), new FutureCallback<ChnlzrConnectionHandler>() {
+        @Override
+        public void onSuccess(ChnlzrConnectionHandler connection) {
+          IdleConnection pooled = new IdleConnection(connection);
+          connections.offerLast(pooled);
+          warm.pending.decrementAndGet();
+          pooled.getChannel().closeFuture().addListener(close -> connections.remove(pooled));
+
+          synchronized (ChnlzrConnectionPool.this) {
+            warm.failures = 0;
+          }
+        }
+
+        @Override
+        public void onFailure(@Nonnull Throwable throwable) {
+          warm.pending.decrementAndGet();
+          log.warn("failed to warm connection to chnlzr " + host, throwable);
+
+          synchronized (ChnlzrConnectionPool.this) {
+            warm.failures++;
+            warm.retryAtNs = System.nanoTime() + backoffNs(warm.failures);
+          }
+        }
+      });
+
+      if (warm.failures > 0) {
+        return;
+      }
+    }
+  }
+
+  public ListenableFuture<Capabilities.Reader> probe(HostId host) {
+    return Futures.transform(factory.create(host), (ChnlzrConnectionHandler connection) -> {
+      connection.getContext().close();
+      return connection.getCapabilities();
+    });
+  }
+
+  public void warm(HostId host, CircuitBreaker breaker) {
+    warming.put(host, new Warming(breaker));
+    warm(host);
+  }
+
+  public void warm(HostId host) {
+    if (poolSize > 0) {
+      refill(host);
+    }
+  }
+
+  private void evictIdle() {
+    long maxIdleNs = TimeUnit.MILLISECONDS.toNanos(maxIdleMs);
+    long now       = System.nanoTime();
+
+    idle.forEach((host, connections) -> {
+      connections.stream()
+                 .filter(connection -> (now - connection.idleSinceNs) > maxIdleNs)
+                 .filter(connections::remove)
+                 .forEach(connection -> connection.getChannel().close());
+      refill(host);
+    });
+  }
+
+  public ListenableFuture<ChnlzrConnectionHandler> acquire(HostId host, double frequency) {
+    if (poolSize <= 0) {
+      return factory.create(host, frequency);
+    }
+
+    long                                      start   = System.nanoTime();
+    Optional<ChnlzrConnectionHandler>         pooled  = pollIdle(host);
+    ListenableFuture<ChnlzrConnectionHandler> acquire;
+
+    if (pooled.isPresent()) {
+      P25DcodrMetrics.getInstance().chnlzrPoolHit();
+      SettableFuture<ChnlzrConnectionHandler> handoff = SettableFuture.create();
+      pooled.get().getContext().channel().eventLoop().execute(() -> handoff.set(pooled.get()));
+      acquire = handoff;
+    } else {
+      P25DcodrMetrics.getInstance().chnlzrPoolMiss();
+      acquire = factory.create(host, frequency);
+    }
+
+    acquire.addListener(
+        () -> P25DcodrMetrics.getInstance().chnlzrPoolAcquire(System.nanoTime() - start), Runnable::run
+    );
+
+    refill(host);
+    return acquire;
+  }
+
+}
@@ -22,40 +22,319 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.net.ConnectException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.anhonesteffort.chnlzr.capnp.Proto.Capabilities;
 import static org.anhonesteffort.chnlzr.capnp.Proto.ChannelRequest;
 
-public class ChnlzrController {
+public class ChnlzrController implements ChnlzrHost.CoverageListener {
 
-  private final HostId chnlzrHost;
-  private final ChnlzrConnectionFactory factory;
+  private static final Logger log = LoggerFactory.getLogger(ChnlzrController.class);
+
+  private final List<ChnlzrHost>          chnlzrHosts  = new CopyOnWriteArrayList<>();
+  private final Set<ChnlzrHost>           undiscovered = ConcurrentHashMap.newKeySet();
+  private final CoverageIndex<ChnlzrHost> coverage     = new CoverageIndex<>();
+  private final ChnlzrConnectionPool      connections;
+  private final IngestMonitor             ingest;
+  private final SamplesSourceOptions      options;
+  private final HedgePolicy               hedging;
+  private final Supplier<CircuitBreaker>  breakers;
+
+  public ChnlzrController(List<HostId>             chnlzrHosts,
+                          ChnlzrConnectionPool     connections,
+                          IngestMonitor            ingest,
+                          SamplesSourceOptions     options,
+                          HedgePolicy              hedging,
+                          Supplier<CircuitBreaker> breakers)
+  {
+    this.connections = connections;
+    this.ingest      = ingest;
+    this.options     = options;
+    this.hedging     = hedging;
+    this.breakers    = breakers;
+
+    chnlzrHosts.forEach(this::addHost);
+  }
+
+  public ChnlzrController(List<HostId>         chnlzrHosts,
+                          ChnlzrConnectionPool connections,
+                          IngestMonitor        ingest,
+                          SamplesSourceOptions options)
+  {
+    this(chnlzrHosts, connections, ingest, options, new HedgePolicy(), CircuitBreaker::new);
+  }
 
   public ChnlzrController(HostId chnlzrHost, ChnlzrConnectionFactory factory) {
-    this.chnlzrHost = chnlzrHost;
-    this.factory    = factory;
+    this(
+        Collections.singletonList(chnlzrHost), new ChnlzrConnectionPool(factory),
+        new IngestMonitor(), new SamplesSourceOptions()
+    );
   }
 
-  public ListenableFuture<SamplesSourceHandler> createSourceFor(ChannelRequest.Reader request) {
+  public List<ChnlzrHost> getHosts() {
+    return Collections.unmodifiableList(chnlzrHosts);
+  }
+
+  public ChnlzrHost addHost(HostId id) {
+    Optional<ChnlzrHost> existing = getHost(id);
+    if (existing.isPresent()) {
+      return existing.get();
+    }
+
+    ChnlzrHost host = new ChnlzrHost(id, breakers.get());
+    undiscovered.add(host);
+    host.setCoverageListener(this);
+    chnlzrHosts.add(host);
+
+    P25DcodrMetrics.getInstance().registerChnlzrHost(host.getId(), host::getStreamCount);
+    P25DcodrMetrics.getInstance().registerChnlzrBreaker(host.getId(), () -> host.getBreaker().getState().ordinal());
+    connections.warm(host.getId(), host.getBreaker());
+    discover(host);
+
+    return host;
+  }
+
+  public void removeHost(HostId id) {
+    Optional<ChnlzrHost> host = getHost(id);
+    synchronized (coverage) {
+      if (!host.isPresent() || !chnlzrHosts.remove(host.get())) {
+        return;
+      }
+      undiscovered.remove(host.get());
+      coverage.remove(host.get());
+    }
+    P25DcodrMetrics.getInstance().removeChnlzrHost(id);
+  }
+
+  private Optional<ChnlzrHost> getHost(HostId id) {
+    return chnlzrHosts.stream().filter(host -> host.getId().equals(id)).findAny();
+  }
+
+  /*
+  notice:
+    a host removed while its coverage is being learned would otherwise
+    sneak back into the index, the contains() check keeps it out.
+   */
+  @Override
+  public void onCoverageChange(ChnlzrHost host) {
+    synchronized (coverage) {
+      if (chnlzrHosts.contains(host)) {
+        coverage.put(host, host.getMinFrequency(), host.getMaxFrequency());
+        undiscovered.remove(host);
+      }
+    }
+  }
+
+  private void discover(ChnlzrHost host) {
+    Futures.addCallback(connections.probe(host.getId()), new FutureCallback<Capabilities.Reader>() {
+      @Override
+      public void onSuccess(Capabilities.Reader capabilities) {
+        host.setCapabilities(capabilities);
+        log.info("chnlzr " + host + " covers " + host.getMinFrequency() + " to " + host.getMaxFrequency());
+      }
+
+      @Override
+      public void onFailure(@Nonnull Throwable throwable) {
+        log.warn("unable to discover capabilities of chnlzr " + host, throwable);
+      }
+    });
+  }
+
+  /*
+  notice:
+    hosts whose coverage we haven't learned yet are tried last rather
+    than never, their capabilities get learned on the first connect.
+   */
+  protected List<ChnlzrHost> candidatesFor(double frequency) {
+    Stream<ChnlzrHost> covering = coverage.get(frequency).stream()
+                                          .sorted(Comparator.comparingInt(ChnlzrHost::getStreamCount));
+    Stream<ChnlzrHost> unknown  = undiscovered.stream();
+
+    return Stream.concat(covering, unknown).collect(Collectors.toList());
+  }
+
+  public ListenableFuture<SamplesSourceHandler> createSourceFor(ChannelRequest.Reader request, boolean hedged) {
     P25DcodrMetrics.getInstance().chnlzrRequest(request.getCenterFrequency());
 
-    ListenableFuture<ChnlzrConnectionHandler> connectFuture = factory.create(chnlzrHost);
-    SettableFuture<SamplesSourceHandler>      sourceFuture  = SettableFuture.create();
+    RequestDispatch dispatch = new RequestDispatch(
+        request, candidatesFor(request.getCenterFrequency()).iterator(), hedged && hedging.isEnabled()
+    );
+
+    dispatch.tryNextHost(Optional.empty());
+    return dispatch.sourceFuture;
+  }
+
+  public ListenableFuture<SamplesSourceHandler> createSourceFor(ChannelRequest.Reader request) {
+    return createSourceFor(request, false);
+  }
+
+  /*
+  notice:
+    hosts with an open circuit are skipped, a dispatch with nothing
+    left to try fails fast rather than waiting out the request timeout.
+    a hedged dispatch sends the request to the next candidate if the
+    first hasn't been granted within the hedge delay. the first grant
+    wins and every other attempt is cancelled as soon as the dispatch
+    completes, closing its connection whether it's still connecting,
+    waiting on a grant, or was granted a moment too late. the request
+    only fails once every candidate has been tried and none are still
+    in flight. a losing primary is never granted so chnlzrHedgeSaved
+    records how long it had been waiting when the hedge won, the least
+    the request would have taken without the hedge.
+   */
+  private class RequestDispatch {
+    private final SettableFuture<SamplesSourceHandler> sourceFuture = SettableFuture.create();
+    private final ChannelRequest.Reader                request;
+    private final Iterator<ChnlzrHost>                 candidates;
+    private final boolean                              hedged;
+
+    private int       inFlight = 0;
+    private Throwable lastError;
+
+    public RequestDispatch(ChannelRequest.Reader request, Iterator<ChnlzrHost> candidates, boolean hedged) {
+      this.request    = request;
+      this.candidates = candidates;
+      this.hedged     = hedged;
+      lastError       = new ConnectException("no chnlzr host covers " + request.getCenterFrequency());
+    }
 
-    Futures.addCallback(connectFuture, new ChnlzrConnectionCallback(sourceFuture, request));
+    private synchronized Optional<ChnlzrHost> nextHost(Optional<Throwable> error) {
+      if (error.isPresent()) {
+        lastError = error.get();
+      }
 
-    return sourceFuture;
+      if (sourceFuture.isDone()) {
+        return Optional.empty();
+      }
+
+      while (candidates.hasNext()) {
+        ChnlzrHost host = candidates.next();
+        if (host.getBreaker().allowRequest()) {
+          inFlight++;
+          return Optional.of(host);
+        } else {
+          lastError = new ConnectException("circuit open for chnlzr " + host);
+        }
+      }
+
+      if (inFlight == 0) {
+        sourceFuture.setException(lastError);
+      }
+      return Optional.empty();
+    }
+
+    private synchronized void onAttemptDone() {
+      inFlight--;
+    }
+
+    private synchronized boolean canHedge() {
+      return !sourceFuture.isDone() && candidates.hasNext();
+    }
+
+    public void tryNextHost(Optional<Throwable> error) {
+      Optional<ChnlzrHost> next = nextHost(error);
+      if (next.isPresent()) {
+        tryHost(next.get(), Optional.empty());
+      }
+    }
+
+    private void hedge(SettableFuture<SamplesSourceHandler> primary, long primaryStartNs) {
+      if (!primary.isDone() && canHedge()) {
+        Optional<ChnlzrHost> next = nextHost(Optional.empty());
+        if (next.isPresent()) {
+          P25DcodrMetrics.getInstance().chnlzrHedgeSent();
+          log.info("chnlzr request for " + request.getCenterFrequency() + " slow, hedging to " + next.get());
+          tryHost(next.get(), Optional.of(primaryStartNs));
+        }
+      }
+    }
+
+    private void tryHost(ChnlzrHost host, Optional<Long> primaryStartNs) {
+      long                                      startNs       = System.nanoTime();
+      boolean                                   isHedge       = primaryStartNs.isPresent();
+      SettableFuture<SamplesSourceHandler>      attemptFuture = SettableFuture.create();
+      ListenableFuture<ChnlzrConnectionHandler> connectFuture = connections.acquire(host.getId(), request.getCenterFrequency());
+
+      sourceFuture.addListener(() -> attemptFuture.cancel(false), Runnable::run);
+
+      if (hedged && !isHedge) {
+        hedging.getScheduler().schedule(() -> hedge(attemptFuture, startNs), hedging.getDelayMs(), TimeUnit.MILLISECONDS);
+      }
+
+      Futures.addCallback(connectFuture, new ChnlzrConnectionCallback(host, attemptFuture, request));
+      Futures.addCallback(attemptFuture, new FutureCallback<SamplesSourceHandler>() {
+        @Override
+        public void onSuccess(SamplesSourceHandler samplesSource) {
+          long grantedNs = System.nanoTime();
+          hedging.onGrant(grantedNs - startNs);
+          host.getBreaker().onSuccess();
+
+          if (!sourceFuture.set(samplesSource)) {
+            samplesSource.close();
+          } else {
+            if (isHedge) {
+              P25DcodrMetrics.getInstance().chnlzrHedgeWon();
+              P25DcodrMetrics.getInstance().chnlzrHedgeSaved(grantedNs - primaryStartNs.get());
+            }
+            host.onStreamOpened();
+            samplesSource.getCloseFuture().addListener(host::onStreamClosed, Runnable::run);
+          }
+
+          onAttemptDone();
+        }
+
+        @Override
+        public void onFailure(@Nonnull Throwable throwable) {
+          onAttemptDone();
+
+          if (attemptFuture.isCancelled()) {
+            host.getBreaker().onCancelled();
+            if (!sourceFuture.isCancelled()) {
+              P25DcodrMetrics.getInstance().chnlzrHedgeCancelled();
+            }
+            return;
+          }
+
+          if (host.getBreaker().onFailure()) {
+            P25DcodrMetrics.getInstance().chnlzrBreakerOpened(host.getId());
+            log.warn("circuit opened for chnlzr " + host + " after " + throwable.getMessage());
+          }
+
+          if (!sourceFuture.isCancelled()) {
+            log.warn("chnlzr " + host + " failed request for " + request.getCenterFrequency() + ", " + throwable.getMessage());
+            tryNextHost(Optional.of(throwable));
+          }
+        }
+      });
+    }
   }
 
-  private static class ChnlzrConnectionCallback implements FutureCallback<ChnlzrConnectionHandler> {
+  private class ChnlzrConnectionCallback implements FutureCallback<ChnlzrConnectionHandler> {
+    private final ChnlzrHost                           host;
     private final SettableFuture<SamplesSourceHandler> sourceFuture;
     private final ChannelRequest.Reader                request;
 
-    public ChnlzrConnectionCallback(SettableFuture<SamplesSourceHandler> sourceFuture,
+    public ChnlzrConnectionCallback(ChnlzrHost                           host,
+                                    SettableFuture<SamplesSourceHandler> sourceFuture,
                                     ChannelRequest.Reader                request)
     {
+      this.host         = host;
       this.sourceFuture = sourceFuture;
       this.request      = request;
     }
@@ -63,15 +342,21 @@ public class ChnlzrController {
     @Override
     public void onSuccess(ChnlzrConnectionHandler connection) {
       P25DcodrMetrics.getInstance().chnlzrConnectSuccess();
+      host.setCapabilities(connection.getCapabilities());
 
       if (sourceFuture.isCancelled()) {
         connection.getContext().close();
       } else {
         SettableFuture<ChannelRequestHandler> requestFuture = SettableFuture.create();
-        ChannelRequestHandler                 requester     = new ChannelRequestHandler(requestFuture, request);
+        ChannelRequestHandler                 requester     = new ChannelRequestHandler(requestFuture, request, connection.getSetupTimer());
 
         connection.getContext().pipeline().replace(connection, "requester", requester);
-        Futures.addCallback(requestFuture, new ChannelRequestCallback(sourceFuture, connection.getCapabilities()));
+        Futures.addCallback(requestFuture, new ChannelRequestCallback(host, sourceFuture, connection.getCapabilities()));
+        sourceFuture.addListener(() -> {
+          if (sourceFuture.isCancelled()) {
+            connection.getContext().close();
+          }
+        }, Runnable::run);
       }
     }
 
@@ -82,13 +367,16 @@ public class ChnlzrController {
     }
   }
 
-  private static class ChannelRequestCallback implements FutureCallback<ChannelRequestHandler> {
+  private class ChannelRequestCallback implements FutureCallback<ChannelRequestHandler> {
+    private final ChnlzrHost                           host;
     private final SettableFuture<SamplesSourceHandler> sourceFuture;
-    private final Capabilities.Reader capabilities;
+    private final Capabilities.Reader                  capabilities;
 
-    public ChannelRequestCallback(SettableFuture<SamplesSourceHandler> sourceFuture,
+    public ChannelRequestCallback(ChnlzrHost                           host,
+                                  SettableFuture<SamplesSourceHandler> sourceFuture,
                                   Capabilities.Reader                  capabilities)
     {
+      this.host         = host;
       this.sourceFuture = sourceFuture;
       this.capabilities = capabilities;
     }
@@ -97,7 +385,10 @@ public class ChnlzrController {
     public void onSuccess(ChannelRequestHandler requester) {
       P25DcodrMetrics.getInstance().chnlzrRequestSuccess();
 
-      SamplesSourceHandler samplesSource = new SamplesSourceHandler(requester.getContext(), capabilities, requester.getState());
+      SamplesSourceHandler samplesSource = new SamplesSourceHandler(
+          requester.getContext(), capabilities, requester.getState(),
+          ingest, options.forHost(host.getId()), requester.getSetupTimer()
+      );
       requester.getContext().pipeline().replace(requester, "streamer", samplesSource);
 
       if (!sourceFuture.set(samplesSource)) {
@@ -107,8 +398,9 @@ public class ChnlzrController {
 
     @Override
     public void onFailure(@Nonnull Throwable throwable) {
-      P25DcodrMetrics.getInstance().chnlzrRequestFailure();
-      sourceFuture.setException(throwable);
+      if (sourceFuture.setException(throwable)) {
+        P25DcodrMetrics.getInstance().chnlzrRequestFailure();
+      }
     }
   }
 
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.Capabilities;
+
+public class ChnlzrHost {
+
+  private final AtomicInteger  streams = new AtomicInteger(0);
+  private final HostId         id;
+  private final CircuitBreaker breaker;
+
+  private volatile Optional<CoverageListener> listener     = Optional.empty();
+  private volatile double                     minFrequency = Double.NaN;
+  private volatile double                     maxFrequency = Double.NaN;
+
+  public ChnlzrHost(HostId id, CircuitBreaker breaker) {
+    this.id      = id;
+    this.breaker = breaker;
+  }
+
+  public ChnlzrHost(HostId id) {
+    this(id, new CircuitBreaker());
+  }
+
+  public HostId getId() {
+    return id;
+  }
+
+  public CircuitBreaker getBreaker() {
+    return breaker;
+  }
+
+  public interface CoverageListener {
+    public void onCoverageChange(ChnlzrHost host);
+  }
+
+  public void setCoverageListener(CoverageListener listener) {
+    this.listener = Optional.of(listener);
+  }
+
+  protected void setCoverage(double minFrequency, double maxFrequency) {
+    boolean changed = minFrequency != this.minFrequency || maxFrequency != this.maxFrequency;
+
+    this.minFrequency = minFrequency;
+    this.maxFrequency = maxFrequency;
+
+    Optional<CoverageListener> listener = this.listener;
+    if (changed && listener.isPresent()) {
+      listener.get().onCoverageChange(this);
+    }
+  }
+
+  public void setCapabilities(Capabilities.Reader capabilities) {
+    setCoverage(capabilities.getMinFrequency(), capabilities.getMaxFrequency());
+  }
+
+  public boolean isCoverageKnown() {
+    return !Double.isNaN(minFrequency);
+  }
+
+  public double getMinFrequency() {
+    return minFrequency;
+  }
+
+  public double getMaxFrequency() {
+    return maxFrequency;
+  }
+
+  public boolean covers(double frequency) {
+    return frequency >= minFrequency && frequency <= maxFrequency;
+  }
+
+  public int getStreamCount() {
+    return streams.get();
+  }
+
+  protected void onStreamOpened() {
+    streams.incrementAndGet();
+  }
+
+  protected void onStreamClosed() {
+    streams.decrementAndGet();
+  }
+
+  @Override
+  public String toString() {
+    return id.toString();
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.Min;
+
+public class ChnlzrHostConfig {
+
+  @NotEmpty private String  hostname;
+  @Min(1)   private Integer port;
+            private Boolean compactSamples;
+
+  public ChnlzrHostConfig() { }
+
+  @JsonProperty
+  public String getHostname() {
+    return hostname;
+  }
+
+  @JsonProperty
+  public Integer getPort() {
+    return port;
+  }
+
+  @JsonProperty
+  public Boolean getCompactSamples() {
+    return compactSamples;
+  }
+
+  public HostId getHostId() {
+    return new HostId(hostname, port);
+  }
+
+}
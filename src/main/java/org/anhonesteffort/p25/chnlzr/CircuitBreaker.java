@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CircuitBreaker {
+
+  /*
+  notice:
+    once open, the first request after openMs is let through as a
+    half-open probe and every other request fails fast until the probe
+    either succeeds and closes the breaker or fails and reopens it.
+    a probe that's cancelled reopens the breaker too, and a probe that
+    never reports back is given up on after another openMs so the
+    breaker can't be left half-open forever.
+   */
+
+  public enum State { CLOSED, OPEN, HALF_OPEN }
+
+  private final AtomicReference<State> state    = new AtomicReference<>(State.CLOSED);
+  private final AtomicInteger          failures = new AtomicInteger(0);
+  private final AtomicLong             probedAt = new AtomicLong(0l);
+  private final int                    failureThreshold;
+  private final long                   openNs;
+
+  private volatile long openedAtNs = 0l;
+
+  public CircuitBreaker(int failureThreshold, long openMs) {
+    this.failureThreshold = failureThreshold;
+    this.openNs           = TimeUnit.MILLISECONDS.toNanos(openMs);
+  }
+
+  public CircuitBreaker() {
+    this(0, 0l);
+  }
+
+  public boolean isEnabled() {
+    return failureThreshold > 0;
+  }
+
+  public State getState() {
+    return state.get();
+  }
+
+  public boolean allowRequest() {
+    return allowRequest(System.nanoTime());
+  }
+
+  protected boolean allowRequest(long nowNs) {
+    switch (state.get()) {
+      case CLOSED:
+        return true;
+
+      case OPEN:
+        if ((nowNs - openedAtNs) < openNs) {
+          return false;
+        }
+        probedAt.set(nowNs);
+        return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+
+      default:
+        long probedAtNs = probedAt.get();
+        return (nowNs - probedAtNs) >= openNs && probedAt.compareAndSet(probedAtNs, nowNs);
+    }
+  }
+
+  public void onSuccess() {
+    failures.set(0);
+    state.set(State.CLOSED);
+  }
+
+  public void onCancelled() {
+    onCancelled(System.nanoTime());
+  }
+
+  protected void onCancelled(long nowNs) {
+    if (state.get() == State.HALF_OPEN) {
+      openedAtNs = nowNs;
+      state.compareAndSet(State.HALF_OPEN, State.OPEN);
+    }
+  }
+
+  public boolean onFailure() {
+    return onFailure(System.nanoTime());
+  }
+
+  protected boolean onFailure(long nowNs) {
+    if (!isEnabled()) {
+      return false;
+    } else if (state.get() == State.HALF_OPEN) {
+      openedAtNs = nowNs;
+      return state.compareAndSet(State.HALF_OPEN, State.OPEN);
+    } else if (failures.incrementAndGet() >= failureThreshold && state.get() == State.CLOSED) {
+      openedAtNs = nowNs;
+      return state.compareAndSet(State.CLOSED, State.OPEN);
+    }
+    return false;
+  }
+
+}
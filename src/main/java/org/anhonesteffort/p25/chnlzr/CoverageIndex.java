@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class CoverageIndex<T> {
+
+  /*
+  notice:
+    coverage is kept as elementary segments keyed by their lower bound,
+    each holding the immutable set of members covering it. lookups are a
+    lock free floorEntry(), updates only touch the segments an interval
+    spans and are serialized by the instance lock.
+   */
+
+  private final ConcurrentSkipListMap<Double, Set<T>> segments  = new ConcurrentSkipListMap<>();
+  private final Map<T, double[]>                      intervals = new HashMap<>();
+
+  public Set<T> get(double frequency) {
+    Map.Entry<Double, Set<T>> segment = segments.floorEntry(frequency);
+    return (segment == null) ? Collections.emptySet() : segment.getValue();
+  }
+
+  public synchronized boolean contains(T member) {
+    return intervals.containsKey(member);
+  }
+
+  public synchronized int getSegmentCount() {
+    return segments.size();
+  }
+
+  private void split(double bound) {
+    if (!segments.containsKey(bound)) {
+      Map.Entry<Double, Set<T>> floor = segments.floorEntry(bound);
+      segments.put(bound, (floor == null) ? Collections.emptySet() : floor.getValue());
+    }
+  }
+
+  private void merge(double bound) {
+    Map.Entry<Double, Set<T>> lower = segments.lowerEntry(bound);
+    Set<T>                    set   = segments.get(bound);
+
+    if (set != null && (lower == null ? set.isEmpty() : lower.getValue().equals(set))) {
+      segments.remove(bound);
+    }
+  }
+
+  private NavigableMap<Double, Set<T>> span(double[] interval) {
+    return segments.subMap(interval[0], true, interval[1], false);
+  }
+
+  private static <T> Set<T> with(Set<T> set, T member) {
+    Set<T> copy = new HashSet<>(set);
+    copy.add(member);
+    return Collections.unmodifiableSet(copy);
+  }
+
+  private static <T> Set<T> without(Set<T> set, T member) {
+    Set<T> copy = new HashSet<>(set);
+    copy.remove(member);
+    return Collections.unmodifiableSet(copy);
+  }
+
+  public synchronized void put(T member, double minFrequency, double maxFrequency) {
+    double[] interval = new double[] { minFrequency, Math.nextUp(maxFrequency) };
+    double[] existing = intervals.get(member);
+
+    if (existing != null && existing[0] == interval[0] && existing[1] == interval[1]) {
+      return;
+    }
+
+    remove(member);
+    intervals.put(member, interval);
+
+    split(interval[0]);
+    split(interval[1]);
+    span(interval).replaceAll((bound, set) -> with(set, member));
+
+    merge(interval[0]);
+    merge(interval[1]);
+  }
+
+  public synchronized void remove(T member) {
+    double[] interval = intervals.remove(member);
+    if (interval == null) {
+      return;
+    }
+
+    span(interval).replaceAll((bound, set) -> without(set, member));
+
+    merge(interval[1]);
+    merge(interval[0]);
+  }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EventLoopPlacement {
+
+  private static final int    MAX_LOOPS               = 1024;
+  private static final long   LOAD_REPORT_INTERVAL_MS = 1000l;
+  private static final double CHANNEL_RASTER          = 6250d;
+  private static final long   FIBONACCI_MULTIPLIER    = 0x9E3779B97F4A7C15L;
+
+  public enum Policy { LEAST_LOADED, PARTITIONED }
+
+  private final List<EventLoop>               loops;
+  private final Map<EventLoop, AtomicInteger> streams;
+  private final Policy                        policy;
+
+  public EventLoopPlacement(EventLoopGroup group, Policy policy) {
+    this.policy = policy;
+    loops       = loopsOf(group);
+    streams     = new IdentityHashMap<>();
+
+    loops.forEach(loop -> streams.put(loop, new AtomicInteger(0)));
+  }
+
+  public EventLoopPlacement(EventLoopGroup group) {
+    this(group, Policy.LEAST_LOADED);
+  }
+
+  /*
+  notice:
+    netty's default chooser hands out loops round-robin, so the first
+    repeat returned by next() means we've seen every loop in the group.
+   */
+  private static List<EventLoop> loopsOf(EventLoopGroup group) {
+    List<EventLoop> loops = new ArrayList<>();
+    EventLoop       next  = group.next();
+
+    while (!loops.contains(next) && loops.size() < MAX_LOOPS) {
+      loops.add(next);
+      next = group.next();
+    }
+
+    return Collections.unmodifiableList(loops);
+  }
+
+  public int getLoopCount() {
+    return loops.size();
+  }
+
+  public int getStreamCount(int loop) {
+    return streams.get(loops.get(loop)).get();
+  }
+
+  /*
+  notice:
+    channels sit on a regular raster so hashing the frequency's bits
+    directly bunches them onto a few loops, the channel number is
+    fibonacci hashed instead which spreads both adjacent and strided
+    channels evenly across every loop.
+   */
+  public int loopFor(double frequency) {
+    long channel = Math.round(frequency / CHANNEL_RASTER);
+    return (int) (((channel * FIBONACCI_MULTIPLIER) >>> 32) % loops.size());
+  }
+
+  public synchronized EventLoop place() {
+    EventLoop least = loops.get(0);
+
+    for (EventLoop loop : loops) {
+      if (streams.get(loop).get() < streams.get(least).get()) {
+        least = loop;
+      }
+    }
+
+    streams.get(least).incrementAndGet();
+    return least;
+  }
+
+  public synchronized EventLoop place(double frequency) {
+    switch (policy) {
+      case PARTITIONED:
+        EventLoop loop = loops.get(loopFor(frequency));
+        streams.get(loop).incrementAndGet();
+        return loop;
+
+      default:
+        return place();
+    }
+  }
+
+  public void release(EventLoop loop) {
+    AtomicInteger count = streams.get(loop);
+    if (count != null) {
+      count.decrementAndGet();
+    }
+  }
+
+  public void startLoadReporting() {
+    for (int i = 0; i < loops.size(); i++) {
+      EventLoop loop = loops.get(i);
+      P25DcodrMetrics.getInstance().registerEventLoop(i, streams.get(loop)::get);
+      loop.scheduleAtFixedRate(new LagProbe(i), LOAD_REPORT_INTERVAL_MS, LOAD_REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private static class LagProbe implements Runnable {
+    private final int  loop;
+    private       long expectedNs;
+
+    public LagProbe(int loop) {
+      this.loop  = loop;
+      expectedNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LOAD_REPORT_INTERVAL_MS);
+    }
+
+    @Override
+    public void run() {
+      long now = System.nanoTime();
+      P25DcodrMetrics.getInstance().eventLoopLag(loop, Math.max(0l, now - expectedNs));
+      expectedNs += TimeUnit.MILLISECONDS.toNanos(LOAD_REPORT_INTERVAL_MS);
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+public class FastSamplesDecoder extends RetainingMessageDecoder {
+
+  /*
+  notice:
+    SAMPLES frames are located by walking the cap'n proto pointers by
+    hand and passed on as RetainedSamples, no MessageReader or struct
+    readers are created for them. any other frame, or any SAMPLES frame
+    the layout can't vouch for, goes through RetainingMessageDecoder.
+   */
+
+  private static final Logger log = LoggerFactory.getLogger(FastSamplesDecoder.class);
+  private static final Optional<SamplesFrameLayout> LAYOUT = SamplesFrameLayout.learn();
+
+  static {
+    if (!LAYOUT.isPresent()) {
+      log.warn("unable to learn SAMPLES frame layout, fast path disabled");
+    }
+  }
+
+  private final Optional<SamplesFrameLayout> layout;
+
+  public FastSamplesDecoder(Optional<SamplesFrameLayout> layout) {
+    this.layout = layout;
+  }
+
+  public FastSamplesDecoder() {
+    this(LAYOUT);
+  }
+
+  @Override
+  protected void decodeFrame(ByteBuf frame, List<Object> out) throws IOException {
+    long location = layout.isPresent() ? layout.get().locatePayload(frame) : SamplesFrameLayout.NOT_SAMPLES;
+
+    if (location == SamplesFrameLayout.NOT_SAMPLES) {
+      super.decodeFrame(frame, out);
+    } else {
+      int start  = SamplesFrameLayout.payloadStart(location);
+      int length = SamplesFrameLayout.payloadLength(location);
+      out.add(new RetainedSamples(frame.retain(), frame.nioBuffer(start, length)));
+    }
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingWindowReservoir;
+import org.anhonesteffort.p25.P25DcodrConfig;
+
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class HedgePolicy {
+
+  /*
+  notice:
+    the hedge delay is a percentile of recent grant latencies, until
+    enough grants have been seen to trust that we wait maxDelayMs.
+   */
+
+  private static final int LATENCY_WINDOW = 256;
+  private static final int MIN_SAMPLES    = 16;
+
+  private final Histogram                          latencies = new Histogram(new SlidingWindowReservoir(LATENCY_WINDOW));
+  private final Optional<ScheduledExecutorService> scheduler;
+  private final double                             percentile;
+  private final long                               minDelayMs;
+  private final long                               maxDelayMs;
+
+  public HedgePolicy(ScheduledExecutorService scheduler, double percentile, long minDelayMs, long maxDelayMs) {
+    this.scheduler  = Optional.of(scheduler);
+    this.percentile = percentile;
+    this.minDelayMs = minDelayMs;
+    this.maxDelayMs = maxDelayMs;
+  }
+
+  public HedgePolicy(P25DcodrConfig config, ScheduledExecutorService scheduler) {
+    this(
+        scheduler, config.getHedgePercentile(), config.getHedgeMinDelayMs(),
+        config.getChannelRequestTimeoutMs() / 2
+    );
+  }
+
+  public HedgePolicy() {
+    this.scheduler  = Optional.empty();
+    this.percentile = 1d;
+    this.minDelayMs = 0l;
+    this.maxDelayMs = 0l;
+  }
+
+  public boolean isEnabled() {
+    return scheduler.isPresent();
+  }
+
+  public ScheduledExecutorService getScheduler() {
+    return scheduler.get();
+  }
+
+  public void onGrant(long nanoseconds) {
+    latencies.update(nanoseconds);
+  }
+
+  public long getDelayMs() {
+    if (latencies.getCount() < MIN_SAMPLES) {
+      return maxDelayMs;
+    }
+
+    long delayMs = TimeUnit.NANOSECONDS.toMillis((long) latencies.getSnapshot().getValue(percentile));
+    return Math.max(minDelayMs, Math.min(maxDelayMs, delayMs));
+  }
+
+}
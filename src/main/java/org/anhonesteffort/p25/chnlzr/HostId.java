@@ -35,4 +35,27 @@ public class HostId {
     return port;
   }
 
+  @Override
+  public String toString() {
+    return hostname + ":" + port;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    HostId other = (HostId) o;
+
+    return hostname.equals(other.hostname) && port.equals(other.port);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = hostname.hashCode();
+        result = 31 * result + port.hashCode();
+
+    return result;
+  }
+
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.ChannelId;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+public class IngestMonitor {
+
+  private final ConcurrentHashMap<ChannelId, IngestStats> streams = new ConcurrentHashMap<>();
+
+  public IngestMonitor() {
+    for (ChannelId.Type type : ChannelId.Type.values()) {
+      P25DcodrMetrics.getInstance().registerIngest(
+          type,
+          () -> sumOf(type, IngestStats::getBytes),
+          () -> sumOf(type, IngestStats::getMessages),
+          () -> streamsOf(type).mapToLong(IngestStats::getJitterNs).max().orElse(0l),
+          () -> sumOf(type, IngestStats::getGaps),
+          () -> sumOf(type, IngestStats::getSampleDeficit)
+      );
+    }
+  }
+
+  private Stream<IngestStats> streamsOf(ChannelId.Type type) {
+    return streams.values().stream().filter(stats -> stats.getChannelId().getType() == type);
+  }
+
+  private long sumOf(ChannelId.Type type, ToLongFunction<IngestStats> value) {
+    return streamsOf(type).mapToLong(value).sum();
+  }
+
+  public IngestStats create(ChannelId channelId, long sampleRate, IntSupplier queueDepth) {
+    IngestStats stats = new IngestStats(channelId, sampleRate, queueDepth);
+    streams.put(channelId, stats);
+    return stats;
+  }
+
+  public IngestStats create(ChannelId channelId, long sampleRate) {
+    return create(channelId, sampleRate, () -> 0);
+  }
+
+  public void remove(IngestStats stats) {
+    streams.remove(stats.getChannelId(), stats);
+  }
+
+  public Collection<IngestStats> getStreams() {
+    return Collections.unmodifiableCollection(streams.values());
+  }
+
+}
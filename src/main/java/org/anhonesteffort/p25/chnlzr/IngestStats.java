@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Meter;
+import org.anhonesteffort.p25.model.ChannelId;
+
+import java.util.function.IntSupplier;
+
+public class IngestStats {
+
+  /*
+  notice:
+    only ever written from the event loop of the chnlzr connection, the
+    fields are volatile so metrics and rest threads see recent values
+    without taking a lock on the hot path. jitter follows rfc 3550.
+    rates are one minute moving averages so a stall or burst shows up
+    in /ingest however long the stream has been open.
+   */
+
+  private static final long NANOS_PER_SECOND = 1_000_000_000l;
+  private static final int  JITTER_GAIN      = 16;
+  private static final int  GAP_FACTOR       = 2;
+
+  private final ChannelId   channelId;
+  private final IntSupplier queueDepth;
+  private final Clock       clock;
+  private final Meter       byteRate;
+  private final Meter       messageRate;
+
+  private volatile long sampleRate;
+  private volatile long bytes         = 0l;
+  private volatile long messages      = 0l;
+  private volatile long samples       = 0l;
+  private volatile long gaps          = 0l;
+  private volatile long jitterNs      = 0l;
+  private volatile long sampleDeficit = 0l;
+
+  private long    lastNs          = 0l;
+  private long    expectedNs      = 0l;
+  private boolean baselined       = false;
+  private long    baselineNs      = 0l;
+  private long    baselineSamples = 0l;
+
+  protected IngestStats(ChannelId channelId, long sampleRate, IntSupplier queueDepth, Clock clock) {
+    this.channelId  = channelId;
+    this.sampleRate = sampleRate;
+    this.queueDepth = queueDepth;
+    this.clock      = clock;
+    byteRate        = new Meter(clock);
+    messageRate     = new Meter(clock);
+  }
+
+  public IngestStats(ChannelId channelId, long sampleRate, IntSupplier queueDepth) {
+    this(channelId, sampleRate, queueDepth, Clock.defaultClock());
+  }
+
+  public IngestStats(ChannelId channelId, long sampleRate) {
+    this(channelId, sampleRate, () -> 0);
+  }
+
+  public ChannelId getChannelId() {
+    return channelId;
+  }
+
+  public long getSampleRate() {
+    return sampleRate;
+  }
+
+  public int getQueueDepth() {
+    return queueDepth.getAsInt();
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  public long getMessages() {
+    return messages;
+  }
+
+  public long getSamples() {
+    return samples;
+  }
+
+  public long getGaps() {
+    return gaps;
+  }
+
+  public long getJitterNs() {
+    return jitterNs;
+  }
+
+  public long getSampleDeficit() {
+    return sampleDeficit;
+  }
+
+  public double getBytesPerSecond() {
+    return byteRate.getOneMinuteRate();
+  }
+
+  public double getMessagesPerSecond() {
+    return messageRate.getOneMinuteRate();
+  }
+
+  public double getMeanMessageBytes() {
+    long count = messages;
+    return (count > 0l) ? (double) bytes / count : 0d;
+  }
+
+  public void onStateChange(long sampleRate) {
+    this.sampleRate = sampleRate;
+    expectedNs      = 0l;
+    baselined       = false;
+  }
+
+  public void onMessage(int byteCount, int sampleCount) {
+    onMessage(byteCount, sampleCount, clock.getTick());
+  }
+
+  protected void onMessage(int byteCount, int sampleCount, long nowNs) {
+    if (!baselined) {
+      baselined       = true;
+      baselineNs      = nowNs;
+      baselineSamples = samples;
+    } else {
+      long interval = nowNs - lastNs;
+
+      if (expectedNs > 0l) {
+        jitterNs += (Math.abs(interval - expectedNs) - jitterNs) / JITTER_GAIN;
+        if (interval > GAP_FACTOR * expectedNs) {
+          gaps++;
+        }
+      }
+
+      double elapsed = (double) (nowNs - baselineNs) / NANOS_PER_SECOND;
+      sampleDeficit  = Math.round(elapsed * sampleRate) - (samples - baselineSamples);
+    }
+
+    expectedNs = (sampleRate > 0l) ? (sampleCount * NANOS_PER_SECOND) / sampleRate : 0l;
+    lastNs     = nowNs;
+    bytes     += byteCount;
+    samples   += sampleCount;
+    messages++;
+
+    byteRate.mark(byteCount);
+    messageRate.mark();
+  }
+
+}
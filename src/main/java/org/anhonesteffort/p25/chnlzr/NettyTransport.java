@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.internal.SystemPropertyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class NettyTransport {
+
+  private static final Logger log = LoggerFactory.getLogger(NettyTransport.class);
+
+  private final EventLoopGroup           workerGroup;
+  private final Class<? extends Channel> channel;
+  private final int                      ioThreads;
+
+  public NettyTransport(boolean preferEpoll, int ioThreads) {
+    this.ioThreads = (ioThreads > 0) ? ioThreads : defaultIoThreads();
+
+    if (preferEpoll && Epoll.isAvailable()) {
+      log.info("using native epoll transport with " + this.ioThreads + " threads");
+      workerGroup = new EpollEventLoopGroup(this.ioThreads);
+      channel     = EpollSocketChannel.class;
+    } else {
+      if (preferEpoll) {
+        log.warn("native epoll transport unavailable, falling back to nio", Epoll.unavailabilityCause());
+      }
+      log.info("using nio transport with " + this.ioThreads + " threads");
+      workerGroup = new NioEventLoopGroup(this.ioThreads);
+      channel     = NioSocketChannel.class;
+    }
+  }
+
+  public NettyTransport(boolean preferEpoll) {
+    this(preferEpoll, 0);
+  }
+
+  private static int defaultIoThreads() {
+    return Math.max(1, SystemPropertyUtil.getInt(
+        "io.netty.eventLoopThreads", Runtime.getRuntime().availableProcessors() * 2
+    ));
+  }
+
+  public int getIoThreads() {
+    return ioThreads;
+  }
+
+  public EventLoopGroup getWorkerGroup() {
+    return workerGroup;
+  }
+
+  public Class<? extends Channel> getChannel() {
+    return channel;
+  }
+
+  public boolean isEpoll() {
+    return channel.equals(EpollSocketChannel.class);
+  }
+
+}
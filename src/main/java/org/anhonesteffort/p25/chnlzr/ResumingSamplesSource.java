@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.anhonesteffort.dsp.DynamicSink;
+import org.anhonesteffort.dsp.sample.Samples;
+import org.anhonesteffort.p25.P25DcodrConfig;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.sample.SamplesBlockQueue;
+import org.anhonesteffort.p25.sample.SamplesQueueTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.Capabilities;
+import static org.anhonesteffort.chnlzr.capnp.Proto.ChannelRequest;
+
+public class ResumingSamplesSource {
+
+  /*
+  notice:
+    a chnlzr connection that drops at the transport, a clean close or an
+    IOException, is re-requested from the controller until the deadline
+    passes. protocol errors, format check failures and unexpected messages
+    would only fail again on a new stream so they finish right away. the
+    existing sink is re-attached to the new source so whatever is
+    consuming samples only sees a gap. the close future completes
+    once resumption is given up on or close() is called.
+   */
+
+  private static final Logger log = LoggerFactory.getLogger(ResumingSamplesSource.class);
+
+  private final SettableFuture<Void>  closePromise = SettableFuture.create();
+  private final ChnlzrController      chnlzr;
+  private final ChannelRequest.Reader request;
+  private final long                  resumeTimeoutMs;
+  private final long                  retryDelayMs;
+
+  private SamplesSourceHandler                             source;
+  private Optional<DynamicSink<Samples>>                   sink      = Optional.empty();
+  private Optional<SamplesBlockQueue>                      blockSink = Optional.empty();
+  private Optional<SamplesQueueTracker>                    queue     = Optional.empty();
+  private Optional<ListenableFuture<SamplesSourceHandler>> resuming  = Optional.empty();
+  private long                                             droppedAtNs;
+
+  public ResumingSamplesSource(ChnlzrController      chnlzr,
+                               ChannelRequest.Reader request,
+                               SamplesSourceHandler  source,
+                               long                  resumeTimeoutMs,
+                               long                  retryDelayMs)
+  {
+    this.chnlzr          = chnlzr;
+    this.request         = request;
+    this.source          = source;
+    this.resumeTimeoutMs = resumeTimeoutMs;
+    this.retryDelayMs    = retryDelayMs;
+
+    watch(source);
+  }
+
+  public ResumingSamplesSource(P25DcodrConfig        config,
+                               ChnlzrController      chnlzr,
+                               ChannelRequest.Reader request,
+                               SamplesSourceHandler  source)
+  {
+    this(chnlzr, request, source, config.getStreamResumeTimeoutMs(), config.getStreamResumeRetryDelayMs());
+  }
+
+  public synchronized Capabilities.Reader getCapabilities() {
+    return source.getCapabilities();
+  }
+
+  public ListenableFuture<Void> getCloseFuture() {
+    return closePromise;
+  }
+
+  public synchronized void setSink(DynamicSink<Samples> sink, SamplesQueueTracker queue) {
+    this.sink  = Optional.of(sink);
+    this.queue = Optional.of(queue);
+    source.setSink(sink, queue);
+  }
+
+  public synchronized void setSink(SamplesBlockQueue sink, SamplesQueueTracker queue) {
+    this.blockSink = Optional.of(sink);
+    this.queue     = Optional.of(queue);
+    source.setSink(sink, queue);
+  }
+
+  public void close() {
+    SamplesSourceHandler                             source;
+    Optional<ListenableFuture<SamplesSourceHandler>> resuming;
+
+    synchronized (this) {
+      if (!closePromise.set(null)) {
+        return;
+      }
+      source   = this.source;
+      resuming = this.resuming;
+    }
+
+    source.close();
+    if (resuming.isPresent()) {
+      resuming.get().cancel(true);
+    }
+  }
+
+  private void watch(SamplesSourceHandler source) {
+    Futures.addCallback(source.getCloseFuture(), new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(Void aVoid) {
+        onSourceClosed(source, Optional.empty());
+      }
+
+      @Override
+      public void onFailure(@Nonnull Throwable cause) {
+        onSourceClosed(source, Optional.of(cause));
+      }
+    });
+  }
+
+  private void finish(Optional<Throwable> cause) {
+    if (cause.isPresent()) {
+      closePromise.setException(cause.get());
+    } else {
+      closePromise.set(null);
+    }
+  }
+
+  private static boolean isTransportClose(Optional<Throwable> cause) {
+    return !cause.isPresent() || cause.get() instanceof IOException;
+  }
+
+  private void onSourceClosed(SamplesSourceHandler dropped, Optional<Throwable> cause) {
+    synchronized (this) {
+      if (closePromise.isDone() || dropped != source) {
+        return;
+      } else if (resumeTimeoutMs <= 0 || !isTransportClose(cause)) {
+        finish(cause);
+        return;
+      }
+      droppedAtNs = System.nanoTime();
+    }
+
+    log.warn("chnlzr stream for " + request.getCenterFrequency() + " dropped, resuming");
+    tryResume(dropped.getEventLoop(), cause);
+  }
+
+  private void tryResume(ScheduledExecutorService scheduler, Optional<Throwable> lastError) {
+    long remainingMs = resumeTimeoutMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - droppedAtNs);
+
+    if (closePromise.isDone()) {
+      return;
+    } else if (remainingMs <= 0) {
+      P25DcodrMetrics.getInstance().chnlzrStreamResumeFailed();
+      log.warn("unable to resume chnlzr stream for " + request.getCenterFrequency() + " within " + resumeTimeoutMs + "ms");
+      finish(lastError);
+      return;
+    }
+
+    ListenableFuture<SamplesSourceHandler> attempt = chnlzr.createSourceFor(request);
+    ScheduledFuture<?>                     timeout = scheduler.schedule(
+        () -> attempt.cancel(true), remainingMs, TimeUnit.MILLISECONDS
+    );
+
+    synchronized (this) {
+      resuming = Optional.of(attempt);
+      if (closePromise.isDone()) {
+        attempt.cancel(true);
+      }
+    }
+
+    Futures.addCallback(attempt, new FutureCallback<SamplesSourceHandler>() {
+      @Override
+      public void onSuccess(SamplesSourceHandler resumed) {
+        timeout.cancel(false);
+        onResumed(resumed);
+      }
+
+      @Override
+      public void onFailure(@Nonnull Throwable throwable) {
+        timeout.cancel(false);
+        Optional<Throwable> error = (throwable instanceof CancellationException) ? lastError : Optional.of(throwable);
+        scheduler.schedule(() -> tryResume(scheduler, error), retryDelayMs, TimeUnit.MILLISECONDS);
+      }
+    });
+  }
+
+  private void onResumed(SamplesSourceHandler resumed) {
+    synchronized (this) {
+      resuming = Optional.empty();
+
+      if (closePromise.isDone()) {
+        resumed.close();
+        return;
+      }
+
+      source = resumed;
+      queue  = queue.map(SamplesQueueTracker::renew);
+      if (sink.isPresent()) {
+        resumed.setSink(sink.get(), queue.get());
+      } else if (blockSink.isPresent()) {
+        resumed.setSink(blockSink.get(), queue.get());
+      }
+    }
+
+    P25DcodrMetrics.getInstance().chnlzrStreamResumed(System.nanoTime() - droppedAtNs);
+    log.info("chnlzr stream for " + request.getCenterFrequency() + " resumed");
+    watch(resumed);
+  }
+
+}
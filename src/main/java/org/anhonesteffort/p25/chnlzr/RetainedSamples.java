@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+import org.capnproto.Data;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+public class RetainedSamples extends DefaultByteBufHolder {
+
+  private final ByteBuffer payload;
+
+  public RetainedSamples(ByteBuf frame, ByteBuffer payload) {
+    super(frame);
+    this.payload = payload;
+  }
+
+  public RetainedSamples(ByteBuf frame, Data.Reader samples) {
+    this(frame, samples.asByteBuffer());
+  }
+
+  public ByteBuffer getPayload() {
+    return payload;
+  }
+
+  public FloatBuffer getSamples() {
+    return payload.asFloatBuffer();
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import org.capnproto.MessageReader;
+import org.capnproto.Serialize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.BaseMessage;
+
+public class RetainingMessageDecoder extends ByteToMessageDecoder {
+
+  /*
+  notice:
+    SAMPLES frames are sliced out of the inbound buffer and passed
+    on as RetainedSamples, the sink that ends up with the samples
+    must release them. every other message type is copied to the
+    heap because handlers hold onto those readers indefinitely.
+   */
+
+  private static final int MAX_SEGMENTS = 512;
+
+  protected static int frameLength(ByteBuf in) {
+    int index = in.readerIndex();
+    if (in.readableBytes() < 4) {
+      return -1;
+    }
+
+    int segmentCount = Integer.reverseBytes(in.getInt(index)) + 1;
+    if (segmentCount < 1 || segmentCount > MAX_SEGMENTS) {
+      throw new CorruptedFrameException("invalid segment count " + segmentCount);
+    }
+
+    int headerLength = (((segmentCount + 1) * 4) + 7) & ~7;
+    if (in.readableBytes() < headerLength) {
+      return -1;
+    }
+
+    long frameLength = headerLength;
+    for (int i = 0; i < segmentCount; i++) {
+      frameLength += 8l * (Integer.reverseBytes(in.getInt(index + ((i + 1) * 4))) & 0xFFFFFFFFl);
+    }
+
+    if (frameLength > Integer.MAX_VALUE) {
+      throw new CorruptedFrameException("frame length " + frameLength + " too large");
+    } else if (in.readableBytes() < frameLength) {
+      return -1;
+    } else {
+      return (int) frameLength;
+    }
+  }
+
+  protected static BaseMessage.Reader copyToHeap(ByteBuf frame) throws IOException {
+    ByteBuffer copy = ByteBuffer.allocate(frame.readableBytes());
+    frame.getBytes(frame.readerIndex(), copy);
+    copy.flip();
+    return Serialize.read(copy).getRoot(BaseMessage.factory);
+  }
+
+  @Override
+  protected void decode(ChannelHandlerContext context, ByteBuf in, List<Object> out) throws IOException {
+    int frameLength = frameLength(in);
+    if (frameLength >= 0) {
+      decodeFrame(in.readSlice(frameLength), out);
+    }
+  }
+
+  protected void decodeFrame(ByteBuf frame, List<Object> out) throws IOException {
+    MessageReader      reader  = Serialize.read(frame.nioBuffer());
+    BaseMessage.Reader message = reader.getRoot(BaseMessage.factory);
+
+    switch (message.getType()) {
+      case SAMPLES:
+        out.add(new RetainedSamples(frame.retain(), message.getSamples().getSamples()));
+        break;
+
+      default:
+        out.add(copyToHeap(frame));
+        break;
+    }
+  }
+
+}
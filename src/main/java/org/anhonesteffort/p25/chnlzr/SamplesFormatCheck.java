@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+public class SamplesFormatCheck {
+
+  /*
+  notice:
+    chnlzr paces a stream at its granted sample rate, so a second in
+    the payload averages 8 bytes per sample for float32 and 4 for int16.
+    a host declared with the wrong format is off by 2x and fails the
+    stream rather than decoding garbage. the first message is only the
+    start of the window, it was sent before the window opened. pausing
+    reads starves the window and the backlog read after resuming floods
+    it, so any flow control change throws the window away and a new one
+    only opens once SETTLE_NS have passed. only ever called from the
+    event loop of the chnlzr connection.
+   */
+
+  private static final long   NANOS_PER_SECOND = 1_000_000_000l;
+  private static final long   WINDOW_NS        = NANOS_PER_SECOND;
+  private static final long   SETTLE_NS        = NANOS_PER_SECOND / 4l;
+  private static final double MAX_RATIO        = 1.6d;
+
+  private final boolean compact;
+
+  private long    sampleRate;
+  private boolean started        = false;
+  private long    startNs        = 0l;
+  private boolean settling       = false;
+  private long    settleNs       = 0l;
+  private long    bytes          = 0l;
+  private double  bytesPerSample = -1d;
+  private boolean checked        = false;
+
+  public SamplesFormatCheck(boolean compact, long sampleRate) {
+    this.compact    = compact;
+    this.sampleRate = sampleRate;
+  }
+
+  public static int bytesPerSample(boolean compact) {
+    return compact ? 2 * Short.BYTES : 2 * Float.BYTES;
+  }
+
+  public boolean isCompact() {
+    return compact;
+  }
+
+  public double getBytesPerSample() {
+    return bytesPerSample;
+  }
+
+  public void onStateChange(long sampleRate) {
+    this.sampleRate = sampleRate;
+    started         = false;
+    bytes           = 0l;
+    checked         = false;
+  }
+
+  public void onFlowControlChange() {
+    onFlowControlChange(System.nanoTime());
+  }
+
+  protected void onFlowControlChange(long nowNs) {
+    started  = false;
+    bytes    = 0l;
+    settling = true;
+    settleNs = nowNs;
+  }
+
+  public boolean onMessage(int byteCount) {
+    return onMessage(byteCount, System.nanoTime());
+  }
+
+  protected boolean onMessage(int byteCount, long nowNs) {
+    if (checked || sampleRate <= 0l) {
+      return true;
+    } else if (settling && nowNs - settleNs < SETTLE_NS) {
+      return true;
+    } else if (!started) {
+      settling = false;
+      started  = true;
+      startNs  = nowNs;
+      return true;
+    }
+
+    bytes += byteCount;
+    if (nowNs - startNs < WINDOW_NS) {
+      return true;
+    }
+
+    double seconds = (double) (nowNs - startNs) / NANOS_PER_SECOND;
+    double ratio;
+
+    checked        = true;
+    bytesPerSample = bytes / (seconds * sampleRate);
+    ratio          = bytesPerSample / bytesPerSample(compact);
+
+    return ratio < MAX_RATIO && ratio > (1d / MAX_RATIO);
+  }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.capnproto.Data;
+import org.capnproto.MessageBuilder;
+import org.capnproto.Serialize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Optional;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.BaseMessage;
+
+public class SamplesFrameLayout {
+
+  /*
+  notice:
+    the schema for BaseMessage lives in chnlzr-common, rather than hard
+    code its offsets here we serialize a few reference messages and learn
+    where the type field and the samples payload pointer end up. anything
+    the layout doesn't recognize is left to the generic decoder.
+   */
+
+  public static final long NOT_SAMPLES = -1l;
+
+  private static final int    HEADER_LENGTH  = 8;
+  private static final int    WORD           = 8;
+  private static final int    STRUCT_POINTER = 0;
+  private static final int    LIST_POINTER   = 1;
+  private static final int    BYTE_ELEMENTS  = 2;
+  private static final byte[] MARKER         = new byte[] {
+      (byte) 0x5a, (byte) 0xa5, (byte) 0x3c, (byte) 0xc3, (byte) 0x0f, (byte) 0xf0, (byte) 0x69, (byte) 0x96
+  };
+
+  private final int typeOffset;
+  private final int samplesType;
+  private final int samplesPointer;
+  private final int payloadPointer;
+
+  protected SamplesFrameLayout(int typeOffset, int samplesType, int samplesPointer, int payloadPointer) {
+    this.typeOffset     = typeOffset;
+    this.samplesType    = samplesType;
+    this.samplesPointer = samplesPointer;
+    this.payloadPointer = payloadPointer;
+  }
+
+  private static long pointer(ByteBuf buf, int index) {
+    return Long.reverseBytes(buf.getLong(index));
+  }
+
+  private static int kind(long pointer) {
+    return (int) (pointer & 3l);
+  }
+
+  private static int target(long pointer, int index) {
+    return index + WORD + ((((int) pointer) >> 2) * WORD);
+  }
+
+  private static int dataWords(long pointer) {
+    return (int) ((pointer >>> 32) & 0xFFFFl);
+  }
+
+  private static int pointerCount(long pointer) {
+    return (int) ((pointer >>> 48) & 0xFFFFl);
+  }
+
+  private static int u16(ByteBuf buf, int index) {
+    return Short.reverseBytes(buf.getShort(index)) & 0xFFFF;
+  }
+
+  private static int struct(long pointer, int index, int start, int end) {
+    if (pointer == 0l || kind(pointer) != STRUCT_POINTER) {
+      return -1;
+    }
+
+    int data   = target(pointer, index);
+    int length = (dataWords(pointer) + pointerCount(pointer)) * WORD;
+
+    if (data < start || data + length > end) {
+      return -1;
+    } else {
+      return data;
+    }
+  }
+
+  protected long locatePayload(ByteBuf frame) {
+    int start = frame.readerIndex();
+    int end   = start + frame.readableBytes();
+
+    if (frame.readableBytes() < HEADER_LENGTH + WORD || frame.getInt(start) != 0) {
+      return NOT_SAMPLES;
+    }
+
+    int  segment  = start + HEADER_LENGTH;
+    long root     = pointer(frame, segment);
+    int  rootData = struct(root, segment, segment, end);
+
+    if (rootData < 0 || samplesPointer >= pointerCount(root)) {
+      return NOT_SAMPLES;
+    }
+
+    int type = (typeOffset + 2 <= dataWords(root) * WORD) ? u16(frame, rootData + typeOffset) : 0;
+    if (type != samplesType) {
+      return NOT_SAMPLES;
+    }
+
+    int  samplesIndex = rootData + (dataWords(root) * WORD) + (samplesPointer * WORD);
+    long samples      = pointer(frame, samplesIndex);
+    int  samplesData  = struct(samples, samplesIndex, segment, end);
+
+    if (samplesData < 0 || payloadPointer >= pointerCount(samples)) {
+      return NOT_SAMPLES;
+    }
+
+    int  payloadIndex = samplesData + (dataWords(samples) * WORD) + (payloadPointer * WORD);
+    long payload      = pointer(frame, payloadIndex);
+
+    if (kind(payload) != LIST_POINTER || ((payload >>> 32) & 7l) != BYTE_ELEMENTS) {
+      return NOT_SAMPLES;
+    }
+
+    int payloadStart  = target(payload, payloadIndex);
+    int payloadLength = (int) (payload >>> 35);
+
+    if (payloadStart < segment || payloadStart + payloadLength > end) {
+      return NOT_SAMPLES;
+    } else {
+      return (((long) payloadStart) << 32) | payloadLength;
+    }
+  }
+
+  public static int payloadStart(long location) {
+    return (int) (location >>> 32);
+  }
+
+  public static int payloadLength(long location) {
+    return (int) location;
+  }
+
+  private static ByteBuf serialize(MessageBuilder message) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Serialize.write(Channels.newChannel(bytes), message);
+    return Unpooled.wrappedBuffer(bytes.toByteArray());
+  }
+
+  private static ByteBuf typed(BaseMessage.Type type) throws IOException {
+    MessageBuilder message = new MessageBuilder();
+    message.initRoot(BaseMessage.factory).setType(type);
+    return serialize(message);
+  }
+
+  private static ByteBuf marked() throws IOException {
+    MessageBuilder      message = new MessageBuilder();
+    BaseMessage.Builder base    = message.initRoot(BaseMessage.factory);
+
+    base.setType(BaseMessage.Type.SAMPLES);
+    base.initSamples().setSamples(new Data.Reader(MARKER));
+
+    return serialize(message);
+  }
+
+  private static Optional<int[]> learnType() throws IOException {
+    BaseMessage.Type other   = (BaseMessage.Type.values()[0] != BaseMessage.Type.SAMPLES) ?
+                                   BaseMessage.Type.values()[0] : BaseMessage.Type.values()[1];
+    ByteBuf          samples = typed(BaseMessage.Type.SAMPLES);
+    ByteBuf          control = typed(other);
+    int              segment = HEADER_LENGTH;
+    long             root    = pointer(samples, segment);
+    int              data    = struct(root, segment, segment, samples.readableBytes());
+
+    if (data < 0 || root != pointer(control, segment)) {
+      return Optional.empty();
+    }
+
+    for (int offset = 0; offset + 2 <= dataWords(root) * WORD; offset += 2) {
+      if (u16(samples, data + offset) != u16(control, data + offset)) {
+        return Optional.of(new int[] { offset, u16(samples, data + offset) });
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  private static Optional<int[]> learnPointers() throws IOException {
+    ByteBuf frame    = marked();
+    int     segment  = HEADER_LENGTH;
+    int     end      = frame.readableBytes();
+    long    root     = pointer(frame, segment);
+    int     rootData = struct(root, segment, segment, end);
+
+    if (rootData < 0) {
+      return Optional.empty();
+    }
+
+    for (int i = 0; i < pointerCount(root); i++) {
+      int  childIndex = rootData + (dataWords(root) * WORD) + (i * WORD);
+      long child      = pointer(frame, childIndex);
+      int  childData  = struct(child, childIndex, segment, end);
+
+      for (int j = 0; childData >= 0 && j < pointerCount(child); j++) {
+        int  listIndex = childData + (dataWords(child) * WORD) + (j * WORD);
+        long list      = pointer(frame, listIndex);
+
+        if (kind(list) == LIST_POINTER && (list >>> 35) == MARKER.length) {
+          int start = target(list, listIndex);
+          if (start + MARKER.length <= end &&
+              frame.slice(start, MARKER.length).equals(Unpooled.wrappedBuffer(MARKER)))
+          {
+            return Optional.of(new int[] { i, j });
+          }
+        }
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  public static Optional<SamplesFrameLayout> learn() {
+    try {
+      Optional<int[]> type     = learnType();
+      Optional<int[]> pointers = learnPointers();
+
+      if (type.isPresent() && pointers.isPresent()) {
+        return Optional.of(new SamplesFrameLayout(
+            type.get()[0], type.get()[1], pointers.get()[0], pointers.get()[1]
+        ));
+      } else {
+        return Optional.empty();
+      }
+    } catch (IOException | RuntimeException e) {
+      return Optional.empty();
+    }
+  }
+
+}
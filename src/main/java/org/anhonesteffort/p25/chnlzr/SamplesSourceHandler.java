@@ -21,36 +21,75 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
 import org.anhonesteffort.chnlzr.ProtocolErrorException;
-import org.anhonesteffort.dsp.ComplexNumber;
 import org.anhonesteffort.dsp.DynamicSink;
 import org.anhonesteffort.dsp.sample.Samples;
+import org.anhonesteffort.p25.sample.CoalescingSamplesSink;
+import org.anhonesteffort.p25.sample.RetainedSamplesBlock;
+import org.anhonesteffort.p25.sample.SamplesBlockConverter;
+import org.anhonesteffort.p25.sample.SamplesBlockPool;
+import org.anhonesteffort.p25.sample.SamplesBlockQueue;
+import org.anhonesteffort.p25.sample.SamplesBlockSink;
+import org.anhonesteffort.p25.sample.SamplesMailbox;
+import org.anhonesteffort.p25.sample.SamplesQueueTracker;
 
 import javax.annotation.Nonnull;
-import java.nio.FloatBuffer;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.anhonesteffort.chnlzr.capnp.Proto.BaseMessage;
 import static org.anhonesteffort.chnlzr.capnp.Proto.Capabilities;
 import static org.anhonesteffort.chnlzr.capnp.Proto.ChannelState;
 
-public class SamplesSourceHandler extends ChannelHandlerAdapter {
+public class SamplesSourceHandler extends ChannelHandlerAdapter
+    implements SamplesQueueTracker.FlowControl, SamplesMailbox.FlowControl
+{
 
-  private final SettableFuture<Void>                  closePromise;
-  private final Capabilities.Reader                   capabilities;
-  private final AtomicReference<DynamicSink<Samples>> sink = new AtomicReference<>(null);
+  private static final int BLOCK_POOL_SIZE = 4;
+
+  private final SamplesBlockPool                     blockPool = new SamplesBlockPool(BLOCK_POOL_SIZE);
+  private final AtomicReference<SamplesBlockSink>    sink      = new AtomicReference<>(null);
+  private final AtomicReference<SamplesQueueTracker> queue     = new AtomicReference<>(null);
+  private final AtomicReference<IngestStats>         stats     = new AtomicReference<>(null);
+  private final SettableFuture<Void>                 closePromise;
+  private final Capabilities.Reader                  capabilities;
+  private final Channel                              channel;
+  private final IngestMonitor                        ingest;
+  private final SamplesSourceOptions                 options;
+  private final SamplesFormatCheck                   format;
+  private final Optional<SamplesMailbox>             mailbox;
+  private final SetupTimer                           timer;
 
   private ChannelState.Reader state;
 
   public SamplesSourceHandler(ChannelHandlerContext context,
                               Capabilities.Reader   capabilities,
-                              ChannelState.Reader   state)
+                              ChannelState.Reader   state,
+                              IngestMonitor         ingest,
+                              SamplesSourceOptions  options,
+                              SetupTimer            timer)
   {
     this.capabilities = capabilities;
     this.state        = state;
+    this.ingest       = ingest;
+    this.options      = options;
+    this.timer        = timer;
+    channel           = context.channel();
     closePromise      = SettableFuture.create();
+    format            = new SamplesFormatCheck(options.isCompactSamples(), state.getSampleRate());
+    mailbox           = options.getScheduler().map(scheduler -> new SamplesMailbox(
+        scheduler, options.getMailboxHighWaterMark(), options.getMailboxLowWaterMark()
+    ));
+
+    if (mailbox.isPresent()) {
+      mailbox.get().setFlowControl(this);
+    }
 
     context.channel().closeFuture().addListener(close -> {
       if (close.isSuccess()) {
@@ -72,49 +111,223 @@ public class SamplesSourceHandler extends ChannelHandlerAdapter {
     });
   }
 
+  public SamplesSourceHandler(ChannelHandlerContext context,
+                              Capabilities.Reader   capabilities,
+                              ChannelState.Reader   state)
+  {
+    this(context, capabilities, state, new IngestMonitor(), new SamplesSourceOptions(), new SetupTimer());
+  }
+
   public Capabilities.Reader getCapabilities() {
     return capabilities;
   }
 
+  protected ScheduledExecutorService getEventLoop() {
+    return channel.eventLoop();
+  }
+
   public ListenableFuture<Void> getCloseFuture() {
     return closePromise;
   }
 
+  private SamplesBlockSink coalesce(SamplesBlockSink sink) {
+    if (options.getCoalesceSize() > 0) {
+      return new CoalescingSamplesSink(
+          sink, channel.eventLoop(), options.getCoalesceSize(), options.getCoalesceDelayMs()
+      );
+    } else {
+      return sink;
+    }
+  }
+
+  private SamplesBlockSink schedule(SamplesBlockSink sink) {
+    if (mailbox.isPresent()) {
+      return mailbox.get().to(sink);
+    } else {
+      return sink;
+    }
+  }
+
   public void setSink(DynamicSink<Samples> sink) {
+    setSink(coalesce(schedule(new SamplesBlockConverter(sink))));
+  }
+
+  private void track(SamplesQueueTracker queue) {
+    closeQueue();
+    closeStats();
+    this.queue.set(queue);
+    this.stats.set(ingest.create(queue.getChannelId(), state.getSampleRate(), queue::getDepth));
+    timer.setChannelType(queue.getChannelId().getType());
+    queue.setFlowControl(this);
+  }
+
+  public void setSink(DynamicSink<Samples> sink, SamplesQueueTracker queue) {
+    track(queue);
+    setSink(coalesce(schedule(new SamplesBlockConverter(sink, queue))));
+  }
+
+  public void setSink(SamplesBlockQueue sink, SamplesQueueTracker queue) {
+    track(queue);
+    sink.setQueue(queue);
+    setSink(coalesce(sink));
+  }
+
+  public void setSink(SamplesBlockSink sink) {
     sink.onSourceStateChange(state.getSampleRate(), state.getCenterFrequency());
-    this.sink.set(sink);
+    flush(this.sink.getAndSet(sink));
+  }
+
+  private void flush(SamplesBlockSink previous) {
+    if (previous instanceof CoalescingSamplesSink) {
+      channel.eventLoop().execute(((CoalescingSamplesSink) previous)::flush);
+    }
+  }
+
+  private void closeQueue() {
+    SamplesQueueTracker queue = this.queue.getAndSet(null);
+    if (queue != null) {
+      queue.close();
+    }
+  }
+
+  private void closeStats() {
+    IngestStats stats = this.stats.getAndSet(null);
+    if (stats != null) {
+      ingest.remove(stats);
+    }
   }
 
   public void close() {
     sink.set(null);
+    closeQueue();
+    closeStats();
     closePromise.set(null);
   }
 
+  private boolean isPaused() {
+    SamplesQueueTracker queue = this.queue.get();
+    return (queue != null && queue.isPaused()) || (mailbox.isPresent() && mailbox.get().isPaused());
+  }
+
+  private void updateAutoRead() {
+    channel.eventLoop().execute(() -> {
+      format.onFlowControlChange();
+      channel.config().setAutoRead(!isPaused());
+    });
+  }
+
+  private void resumeIfStalled(SamplesQueueTracker queue) {
+    if (this.queue.get() == queue) {
+      queue.resumeIfStalled();
+    }
+  }
+
+  @Override
+  public void onFlowControlChange(SamplesQueueTracker queue) {
+    updateAutoRead();
+    if (queue.isPaused() && queue.getStallTimeoutMs() > 0l) {
+      channel.eventLoop().schedule(
+          () -> resumeIfStalled(queue), queue.getStallTimeoutMs(), TimeUnit.MILLISECONDS
+      );
+    }
+  }
+
+  @Override
+  public void onFlowControlChange(SamplesMailbox mailbox) {
+    updateAutoRead();
+  }
+
+  private void onFormatMismatch() {
+    IllegalStateException ex = new IllegalStateException(
+        "chnlzr samples average " + format.getBytesPerSample() + " bytes per sample, expected " +
+        SamplesFormatCheck.bytesPerSample(format.isCompact()) + ", check compactSamples for this host"
+    );
+    if (!closePromise.setException(ex)) {
+      throw ex;
+    }
+  }
+
+  private void onSamplesIngest(ByteBuffer payload) {
+    timer.onSamples();
+    if (!format.onMessage(payload.remaining())) {
+      onFormatMismatch();
+    }
+
+    IngestStats stats = this.stats.get();
+    if (stats != null) {
+      int bytesPerSample = SamplesFormatCheck.bytesPerSample(format.isCompact());
+      stats.onMessage(payload.remaining(), payload.remaining() / bytesPerSample);
+    }
+  }
+
+  private void onSamples(ByteBuffer payload, SamplesBlockSink sink) {
+    if (options.isCompactSamples()) {
+      sink.consume(blockPool.acquire(payload.asShortBuffer()));
+    } else {
+      sink.consume(blockPool.acquire(payload.asFloatBuffer()));
+    }
+  }
+
+  private void onRetainedSamples(RetainedSamples samples) {
+    SamplesBlockSink sink    = this.sink.get();
+    ByteBuffer       payload = samples.getPayload();
+
+    if (sink == null || options.isCompactSamples()) {
+      try {
+        onSamplesIngest(payload);
+        if (sink != null) {
+          onSamples(payload, sink);
+        }
+      } finally {
+        samples.release();
+      }
+      return;
+    }
+
+    RetainedSamplesBlock block    = new RetainedSamplesBlock(samples, payload.asFloatBuffer());
+    boolean              consumed = false;
+
+    try {
+      onSamplesIngest(payload);
+      sink.consume(block);
+      consumed = true;
+    } finally {
+      if (!consumed) {
+        block.release();
+      }
+    }
+  }
+
   @Override
   public void channelRead(ChannelHandlerContext context, Object msg)
       throws ProtocolErrorException, IllegalStateException
   {
-    BaseMessage.Reader   message = (BaseMessage.Reader) msg;
-    DynamicSink<Samples> sink    = this.sink.get();
+    if (msg instanceof RetainedSamples) {
+      onRetainedSamples((RetainedSamples) msg);
+      return;
+    }
+
+    BaseMessage.Reader message = (BaseMessage.Reader) msg;
+    SamplesBlockSink   sink    = this.sink.get();
 
     switch (message.getType()) {
       case CHANNEL_STATE:
         state = message.getChannelState();
+        format.onStateChange(state.getSampleRate());
+        IngestStats stats = this.stats.get();
+        if (stats != null) {
+          stats.onStateChange(state.getSampleRate());
+        }
         if (sink != null) {
           sink.onSourceStateChange(state.getSampleRate(), state.getCenterFrequency());
         }
         break;
 
       case SAMPLES:
+        ByteBuffer payload = message.getSamples().getSamples().asByteBuffer();
+        onSamplesIngest(payload);
         if (sink != null) {
-          FloatBuffer     floats  = message.getSamples().getSamples().asByteBuffer().asFloatBuffer();
-          ComplexNumber[] samples = new ComplexNumber[floats.limit() / 2];
-
-          for (int i = 0; i < samples.length; i++) {
-            samples[i] = new ComplexNumber(floats.get(i * 2), floats.get((i * 2) + 1));
-          }
-
-          sink.consume(new Samples(samples));
+          onSamples(payload, sink);
         }
         break;
 
@@ -143,6 +356,8 @@ public class SamplesSourceHandler extends ChannelHandlerAdapter {
   @Override
   public void channelInactive(ChannelHandlerContext context) {
     sink.set(null);
+    closeQueue();
+    closeStats();
   }
 
 }
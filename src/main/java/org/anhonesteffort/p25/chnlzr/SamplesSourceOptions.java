@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import org.anhonesteffort.p25.P25DcodrConfig;
+import org.anhonesteffort.p25.sample.CooperativeScheduler;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+public class SamplesSourceOptions {
+
+  /*
+  notice:
+    the chnlzr protocol has no field for the sample format so it can't
+    be negotiated in-band, each host declares its format in config and
+    falls back to the global compactSamples. options are resolved per
+    host with forHost() once the host serving a stream is known.
+   */
+
+  private final int                            coalesceSize;
+  private final long                           coalesceDelayMs;
+  private final boolean                        compactSamples;
+  private final Map<HostId, Boolean>           hostCompactSamples;
+  private final Optional<CooperativeScheduler> scheduler;
+  private final int                            mailboxHighWaterMark;
+  private final int                            mailboxLowWaterMark;
+
+  public SamplesSourceOptions(int                            coalesceSize,
+                              long                           coalesceDelayMs,
+                              boolean                        compactSamples,
+                              Map<HostId, Boolean>           hostCompactSamples,
+                              Optional<CooperativeScheduler> scheduler,
+                              int                            mailboxHighWaterMark,
+                              int                            mailboxLowWaterMark)
+  {
+    this.coalesceSize         = coalesceSize;
+    this.coalesceDelayMs      = coalesceDelayMs;
+    this.compactSamples       = compactSamples;
+    this.hostCompactSamples   = hostCompactSamples;
+    this.scheduler            = scheduler;
+    this.mailboxHighWaterMark = mailboxHighWaterMark;
+    this.mailboxLowWaterMark  = mailboxLowWaterMark;
+  }
+
+  public SamplesSourceOptions(int                            coalesceSize,
+                              long                           coalesceDelayMs,
+                              boolean                        compactSamples,
+                              Optional<CooperativeScheduler> scheduler,
+                              int                            mailboxHighWaterMark,
+                              int                            mailboxLowWaterMark)
+  {
+    this(
+        coalesceSize, coalesceDelayMs, compactSamples, Collections.emptyMap(),
+        scheduler, mailboxHighWaterMark, mailboxLowWaterMark
+    );
+  }
+
+  public SamplesSourceOptions(int coalesceSize, long coalesceDelayMs, boolean compactSamples) {
+    this(coalesceSize, coalesceDelayMs, compactSamples, Optional.empty(), 0, 0);
+  }
+
+  public SamplesSourceOptions(P25DcodrConfig config, Optional<CooperativeScheduler> scheduler) {
+    this(
+        config.getSamplesCoalesceSize(), config.getSamplesCoalesceDelayMs(), config.getCompactSamples(),
+        config.getChnlzrCompactSamples(), scheduler,
+        config.getSamplesHighWaterMark(), config.getSamplesLowWaterMark()
+    );
+  }
+
+  public SamplesSourceOptions(P25DcodrConfig config) {
+    this(config, Optional.empty());
+  }
+
+  public SamplesSourceOptions() {
+    this(0, 0l, false);
+  }
+
+  public int getCoalesceSize() {
+    return coalesceSize;
+  }
+
+  public long getCoalesceDelayMs() {
+    return coalesceDelayMs;
+  }
+
+  public boolean isCompactSamples() {
+    return compactSamples;
+  }
+
+  public SamplesSourceOptions forHost(HostId host) {
+    return new SamplesSourceOptions(
+        coalesceSize, coalesceDelayMs, hostCompactSamples.getOrDefault(host, compactSamples),
+        hostCompactSamples, scheduler, mailboxHighWaterMark, mailboxLowWaterMark
+    );
+  }
+
+  public Optional<CooperativeScheduler> getScheduler() {
+    return scheduler;
+  }
+
+  public int getMailboxHighWaterMark() {
+    return mailboxHighWaterMark;
+  }
+
+  public int getMailboxLowWaterMark() {
+    return mailboxLowWaterMark;
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.ChannelId;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SetupTimer {
+
+  /*
+  notice:
+    the channel type isn't known until a resource attaches its sink,
+    so request phases are measured when they happen and only recorded
+    once the type has been set.
+   */
+
+  private final AtomicBoolean    stateRecorded   = new AtomicBoolean(false);
+  private final AtomicBoolean    samplesRecorded = new AtomicBoolean(false);
+  private final Optional<HostId> host;
+  private final long             createdNs;
+
+  private volatile OptionalLong             connectedNs    = OptionalLong.empty();
+  private volatile OptionalLong             requestedNs    = OptionalLong.empty();
+  private volatile OptionalLong             stateDelayNs   = OptionalLong.empty();
+  private volatile OptionalLong             samplesDelayNs = OptionalLong.empty();
+  private volatile Optional<ChannelId.Type> type           = Optional.empty();
+
+  public SetupTimer(HostId host) {
+    this.host = Optional.of(host);
+    createdNs = System.nanoTime();
+  }
+
+  public SetupTimer() {
+    host      = Optional.empty();
+    createdNs = System.nanoTime();
+  }
+
+  protected void onConnected() {
+    long nowNs  = System.nanoTime();
+    connectedNs = OptionalLong.of(nowNs);
+    if (host.isPresent()) {
+      P25DcodrMetrics.getInstance().chnlzrSetupConnect(host.get(), nowNs - createdNs);
+    }
+  }
+
+  protected void onCapabilities() {
+    OptionalLong connectedNs = this.connectedNs;
+    if (host.isPresent() && connectedNs.isPresent()) {
+      P25DcodrMetrics.getInstance().chnlzrSetupCapabilities(host.get(), System.nanoTime() - connectedNs.getAsLong());
+    }
+  }
+
+  protected void onRequestSent() {
+    requestedNs = OptionalLong.of(System.nanoTime());
+  }
+
+  protected void onChannelState() {
+    OptionalLong requestedNs = this.requestedNs;
+    if (!stateDelayNs.isPresent() && requestedNs.isPresent()) {
+      stateDelayNs = OptionalLong.of(System.nanoTime() - requestedNs.getAsLong());
+      record();
+    }
+  }
+
+  protected void onSamples() {
+    OptionalLong requestedNs = this.requestedNs;
+    if (!samplesDelayNs.isPresent() && requestedNs.isPresent()) {
+      samplesDelayNs = OptionalLong.of(System.nanoTime() - requestedNs.getAsLong());
+      record();
+    }
+  }
+
+  protected void setChannelType(ChannelId.Type type) {
+    this.type = Optional.of(type);
+    record();
+  }
+
+  private void record() {
+    Optional<ChannelId.Type> type           = this.type;
+    OptionalLong             stateDelayNs   = this.stateDelayNs;
+    OptionalLong             samplesDelayNs = this.samplesDelayNs;
+    if (!host.isPresent() || !type.isPresent()) {
+      return;
+    }
+
+    if (stateDelayNs.isPresent() && stateRecorded.compareAndSet(false, true)) {
+      P25DcodrMetrics.getInstance().chnlzrSetupChannelState(host.get(), type.get(), stateDelayNs.getAsLong());
+    }
+    if (samplesDelayNs.isPresent() && samplesRecorded.compareAndSet(false, true)) {
+      P25DcodrMetrics.getInstance().chnlzrSetupFirstSamples(host.get(), type.get(), samplesDelayNs.getAsLong());
+    }
+  }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
+import org.anhonesteffort.p25.P25Config;
+import org.anhonesteffort.p25.P25DcodrConfig;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.ChannelPlan;
+import org.anhonesteffort.p25.model.WidebandChannelId;
+import org.anhonesteffort.p25.monitor.PartitionedDspPool;
+import org.anhonesteffort.p25.sample.PolyphaseChannelizer;
+import org.anhonesteffort.p25.sample.SamplesQueueTracker;
+
+import javax.annotation.Nonnull;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.ChannelRequest;
+
+public class WidebandChannelizer {
+
+  /*
+  notice:
+    a traffic channel is tapped from an open wideband stream covering
+    its frequency when there is one, so the grant needs no chnlzr round
+    trip. otherwise a new stream is requested, centered as close to the
+    middle of the site's channel plan as the bandwidth allows while
+    still covering the granted channel. the stream rate is a whole
+    multiple of the p25 rate so every tap decimates by an integer. the
+    channelizer task is submitted before the stream is requested so a
+    full dsp pool fails the grant without a chnlzr round trip.
+   */
+
+  private final ProtoFactory                  proto    = new ProtoFactory();
+  private final CoverageIndex<WidebandSource> coverage = new CoverageIndex<>();
+  private final Set<WidebandSource>           sources  = ConcurrentHashMap.newKeySet();
+  private final P25DcodrConfig                config;
+  private final ChnlzrController              chnlzr;
+  private final PartitionedDspPool            dspPool;
+  private final ScheduledExecutorService      scheduler;
+  private final double                        bandwidth;
+  private final int                           tapsPerPhase;
+  private final long                          idleMs;
+  private final long                          requestTimeoutMs;
+  private final long                          maxRateDiff;
+  private final long                          resumeTimeoutMs;
+  private final long                          retryDelayMs;
+
+  public WidebandChannelizer(P25DcodrConfig           config,
+                             ChnlzrController         chnlzr,
+                             PartitionedDspPool       dspPool,
+                             ScheduledExecutorService scheduler)
+  {
+    this.config      = config;
+    this.chnlzr      = chnlzr;
+    this.dspPool     = dspPool;
+    this.scheduler   = scheduler;
+    bandwidth        = config.getWidebandBandwidth();
+    tapsPerPhase     = config.getWidebandTapsPerPhase();
+    idleMs           = config.getWidebandIdleMs();
+    requestTimeoutMs = config.getChannelRequestTimeoutMs();
+    maxRateDiff      = config.getP25Config().getMaxRateDiff();
+    resumeTimeoutMs  = config.getStreamResumeTimeoutMs();
+    retryDelayMs     = config.getStreamResumeRetryDelayMs();
+
+    P25DcodrMetrics.getInstance().registerWidebandSources(
+        sources::size, () -> sources.stream().mapToInt(WidebandSource::getTapCount).sum()
+    );
+  }
+
+  public int getSourceCount() {
+    return sources.size();
+  }
+
+  protected static double reachOf(double bandwidth) {
+    return Math.max(0d, (bandwidth - P25Config.CHANNEL_WIDTH) / 2d);
+  }
+
+  protected static double centerFor(double frequency, Optional<ChannelPlan> plan, double bandwidth) {
+    double reach  = reachOf(bandwidth);
+    double middle = plan.map(band -> (band.getMinFrequency() + band.getMaxFrequency()) / 2d).orElse(frequency);
+    return Math.max(frequency - reach, Math.min(frequency + reach, middle));
+  }
+
+  private WidebandSource.Tap open(double frequency, Optional<ChannelPlan> plan) {
+    double                center     = centerFor(frequency, plan, bandwidth);
+    WidebandChannelId     channelId  = new WidebandChannelId(center);
+    double                reach      = reachOf(bandwidth);
+    int                   decimation = (int) Math.ceil(bandwidth / P25Config.SAMPLE_RATE);
+    ChannelRequest.Reader request    = proto.channelRequest(
+        center, bandwidth, P25Config.SAMPLE_RATE * decimation, maxRateDiff * decimation
+    );
+
+    WidebandSource source = new WidebandSource(
+        new PolyphaseChannelizer(P25Config.SAMPLE_RATE, P25Config.CHANNEL_WIDTH / 2d, tapsPerPhase),
+        scheduler, idleMs
+    );
+
+    WidebandSource.Tap tap = source.tap(frequency).get();
+
+    sources.add(source);
+    coverage.put(source, center - reach, center + reach);
+
+    Futures.addCallback(source.getCloseFuture(), new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(Void aVoid) {
+        remove(source);
+      }
+
+      @Override
+      public void onFailure(@Nonnull Throwable cause) {
+        remove(source);
+      }
+    });
+
+    try {
+
+      source.onDsp(dspPool.submit(channelId, source.getDspTask()));
+
+    } catch (RejectedExecutionException e) {
+      source.onSourceFailure(e);
+      return tap;
+    }
+
+    ListenableFuture<SamplesSourceHandler> sourceFuture = chnlzr.createSourceFor(request, true);
+    ScheduledFuture<?>                     timeout      = scheduler.schedule(
+        () -> sourceFuture.cancel(true), requestTimeoutMs, TimeUnit.MILLISECONDS
+    );
+
+    Futures.addCallback(sourceFuture, new FutureCallback<SamplesSourceHandler>() {
+      @Override
+      public void onSuccess(SamplesSourceHandler handler) {
+        timeout.cancel(false);
+        source.onSource(
+            new ResumingSamplesSource(chnlzr, request, handler, resumeTimeoutMs, retryDelayMs),
+            new SamplesQueueTracker(config, channelId)
+        );
+      }
+
+      @Override
+      public void onFailure(@Nonnull Throwable cause) {
+        timeout.cancel(false);
+        source.onSourceFailure(cause);
+      }
+    });
+
+    return tap;
+  }
+
+  private void remove(WidebandSource source) {
+    sources.remove(source);
+    coverage.remove(source);
+  }
+
+  private synchronized WidebandSource.Tap tap(double frequency, Optional<ChannelPlan> plan) {
+    for (WidebandSource source : coverage.get(frequency)) {
+      Optional<WidebandSource.Tap> tap = source.tap(frequency);
+      if (tap.isPresent()) {
+        P25DcodrMetrics.getInstance().widebandTapHit();
+        return tap.get();
+      }
+    }
+
+    P25DcodrMetrics.getInstance().widebandTapMiss();
+    return open(frequency, plan);
+  }
+
+  public ListenableFuture<WidebandSource.Tap> tapFor(double frequency, Optional<ChannelPlan> plan) {
+    SettableFuture<WidebandSource.Tap> tapFuture = SettableFuture.create();
+    WidebandSource.Tap                 tap       = tap(frequency, plan);
+
+    Futures.addCallback(tap.getReadyFuture(), new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(Void aVoid) {
+        if (!tapFuture.set(tap)) {
+          tap.close();
+        }
+      }
+
+      @Override
+      public void onFailure(@Nonnull Throwable cause) {
+        tap.close();
+        tapFuture.setException(cause);
+      }
+    });
+
+    return tapFuture;
+  }
+
+}
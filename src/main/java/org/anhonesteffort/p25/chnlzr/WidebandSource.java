@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.anhonesteffort.dsp.DynamicSink;
+import org.anhonesteffort.dsp.sample.Samples;
+import org.anhonesteffort.p25.sample.PolyphaseChannelizer;
+import org.anhonesteffort.p25.sample.SamplesBlockConverter;
+import org.anhonesteffort.p25.sample.SamplesBlockQueue;
+import org.anhonesteffort.p25.sample.SamplesQueueTracker;
+
+import javax.annotation.Nonnull;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.Capabilities;
+
+public class WidebandSource {
+
+  /*
+  notice:
+    one chnlzr stream shared by every traffic channel inside its band,
+    the channelizer runs as a dsp pool task fed by a SamplesBlockQueue
+    so it is admitted and charged like any other channel. the stream
+    and the task end together. each tap holds the stream open, once the
+    last tap is closed the stream is kept for idleMs in case the site
+    grants again.
+   */
+
+  private final SettableFuture<Void>     readyPromise = SettableFuture.create();
+  private final SettableFuture<Void>     closePromise = SettableFuture.create();
+  private final PolyphaseChannelizer     channelizer;
+  private final SamplesBlockQueue        samples;
+  private final ScheduledExecutorService scheduler;
+  private final long                     idleMs;
+
+  private Optional<ResumingSamplesSource>  source    = Optional.empty();
+  private Optional<ListenableFuture<Void>> dsp       = Optional.empty();
+  private Optional<ScheduledFuture<?>>     idleClose = Optional.empty();
+  private int                              tapCount  = 0;
+
+  public WidebandSource(PolyphaseChannelizer channelizer, ScheduledExecutorService scheduler, long idleMs) {
+    this.channelizer = channelizer;
+    this.scheduler   = scheduler;
+    this.idleMs      = idleMs;
+    samples          = new SamplesBlockQueue(channelizer);
+  }
+
+  public ListenableFuture<Void> getReadyFuture() {
+    return readyPromise;
+  }
+
+  public ListenableFuture<Void> getCloseFuture() {
+    return closePromise;
+  }
+
+  public synchronized int getTapCount() {
+    return tapCount;
+  }
+
+  public synchronized Capabilities.Reader getCapabilities() {
+    return source.get().getCapabilities();
+  }
+
+  protected Callable<Void> getDspTask() {
+    return samples;
+  }
+
+  protected void onDsp(ListenableFuture<Void> dsp) {
+    synchronized (this) {
+      if (closePromise.isDone()) {
+        dsp.cancel(true);
+        return;
+      }
+      this.dsp = Optional.of(dsp);
+    }
+
+    Futures.addCallback(dsp, new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(Void aVoid) {
+        close();
+      }
+
+      @Override
+      public void onFailure(@Nonnull Throwable cause) {
+        close();
+      }
+    });
+  }
+
+  protected void onSource(ResumingSamplesSource source, SamplesQueueTracker queue) {
+    synchronized (this) {
+      if (closePromise.isDone()) {
+        source.close();
+        return;
+      }
+
+      this.source = Optional.of(source);
+      source.setSink(samples, queue);
+      if (tapCount == 0) {
+        scheduleIdleClose();
+      }
+    }
+
+    Futures.addCallback(source.getCloseFuture(), new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(Void aVoid) {
+        closePromise.set(null);
+      }
+
+      @Override
+      public void onFailure(@Nonnull Throwable cause) {
+        closePromise.setException(cause);
+      }
+    });
+
+    readyPromise.set(null);
+  }
+
+  protected void onSourceFailure(Throwable cause) {
+    readyPromise.setException(cause);
+    if (closePromise.setException(cause)) {
+      stopDsp();
+    }
+  }
+
+  private void stopDsp() {
+    Optional<ListenableFuture<Void>> dsp;
+
+    synchronized (this) {
+      dsp = this.dsp;
+    }
+
+    if (dsp.isPresent()) {
+      dsp.get().cancel(true);
+    }
+    samples.close();
+  }
+
+  public synchronized Optional<Tap> tap(double frequency) {
+    if (closePromise.isDone()) {
+      return Optional.empty();
+    }
+
+    if (idleClose.isPresent()) {
+      idleClose.get().cancel(false);
+      idleClose = Optional.empty();
+    }
+
+    tapCount++;
+    return Optional.of(new Tap(channelizer.addTap(frequency)));
+  }
+
+  private void scheduleIdleClose() {
+    idleClose = Optional.of(scheduler.schedule(this::closeIfIdle, idleMs, TimeUnit.MILLISECONDS));
+  }
+
+  private void closeIfIdle() {
+    synchronized (this) {
+      if (tapCount > 0) {
+        return;
+      }
+    }
+    close();
+  }
+
+  private synchronized void release() {
+    if (--tapCount == 0 && source.isPresent()) {
+      scheduleIdleClose();
+    }
+  }
+
+  public void close() {
+    Optional<ResumingSamplesSource> source;
+
+    synchronized (this) {
+      if (!closePromise.set(null)) {
+        return;
+      }
+      source = this.source;
+    }
+
+    readyPromise.cancel(false);
+    if (source.isPresent()) {
+      source.get().close();
+    }
+    stopDsp();
+  }
+
+  public class Tap {
+    private final AtomicBoolean            closed = new AtomicBoolean(false);
+    private final PolyphaseChannelizer.Tap tap;
+
+    private Optional<SamplesQueueTracker> queue = Optional.empty();
+
+    private Tap(PolyphaseChannelizer.Tap tap) {
+      this.tap = tap;
+    }
+
+    public Capabilities.Reader getCapabilities() {
+      return WidebandSource.this.getCapabilities();
+    }
+
+    public ListenableFuture<Void> getReadyFuture() {
+      return readyPromise;
+    }
+
+    public ListenableFuture<Void> getCloseFuture() {
+      return closePromise;
+    }
+
+    public synchronized void setSink(DynamicSink<Samples> sink, SamplesQueueTracker queue) {
+      this.queue = Optional.of(queue);
+      tap.setSink(new SamplesBlockConverter(sink, queue));
+    }
+
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        tap.close();
+        release();
+        synchronized (this) {
+          if (queue.isPresent()) {
+            queue.get().close();
+          }
+        }
+      }
+    }
+  }
+
+}
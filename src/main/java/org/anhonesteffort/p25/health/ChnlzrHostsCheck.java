@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.health;
+
+import com.codahale.metrics.health.HealthCheck;
+import org.anhonesteffort.p25.chnlzr.ChnlzrController;
+import org.anhonesteffort.p25.chnlzr.ChnlzrHost;
+import org.anhonesteffort.p25.chnlzr.CircuitBreaker;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ChnlzrHostsCheck extends HealthCheck {
+
+  private final ChnlzrController chnlzr;
+
+  public ChnlzrHostsCheck(ChnlzrController chnlzr) {
+    this.chnlzr = chnlzr;
+  }
+
+  @Override
+  protected Result check() {
+    List<ChnlzrHost> hosts = chnlzr.getHosts();
+    List<String>     open  = hosts.stream()
+                                  .filter(host -> host.getBreaker().getState() != CircuitBreaker.State.CLOSED)
+                                  .map(host -> host + " " + host.getBreaker().getState())
+                                  .collect(Collectors.toList());
+
+    if (hosts.isEmpty()) {
+      return Result.unhealthy("no chnlzr hosts configured");
+    } else if (open.size() == hosts.size()) {
+      return Result.unhealthy("circuit open for every chnlzr host: " + open);
+    } else if (!open.isEmpty()) {
+      return Result.healthy("circuit open for chnlzr hosts: " + open);
+    } else {
+      return Result.healthy();
+    }
+  }
+
+}
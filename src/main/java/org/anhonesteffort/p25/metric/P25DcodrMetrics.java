@@ -20,12 +20,26 @@ package org.anhonesteffort.p25.metric;
 import com.blacklocus.metrics.CloudWatchReporterBuilder;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
+import org.anhonesteffort.p25.chnlzr.HostId;
+import org.anhonesteffort.p25.model.ChannelId;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class P25DcodrMetrics {
 
+  /*
+  notice:
+    metrics are never named per channel, channel ids are unbounded and
+    every name is a separate cloudwatch metric. per channel values are
+    summed by channel type here and served individually by /dsp and
+    /ingest instead.
+   */
+
   private static P25DcodrMetrics instance;
+  private final Map<ChannelId.Type, AtomicInteger> samplesQueued = new ConcurrentHashMap<>();
   private final MetricRegistry registry;
   private final String instanceId;
 
@@ -67,6 +81,65 @@ public class P25DcodrMetrics {
     registry.counter("chnlzrConnectFailure instance=" + instanceId).inc();
   }
 
+  public void registerChnlzrHost(HostId host, Gauge<Integer> streams) {
+    String name = "chnlzrHostStreams instance=" + instanceId + " host=" + host;
+    registry.remove(name);
+    registry.register(name, streams);
+  }
+
+  public void registerChnlzrBreaker(HostId host, Gauge<Integer> state) {
+    String name = "chnlzrBreakerState instance=" + instanceId + " host=" + host;
+    registry.remove(name);
+    registry.register(name, state);
+  }
+
+  public void chnlzrBreakerOpened(HostId host) {
+    registry.counter("chnlzrBreakerOpened instance=" + instanceId + " host=" + host).inc();
+  }
+
+  public void removeChnlzrHost(HostId host) {
+    registry.remove("chnlzrHostStreams instance=" + instanceId + " host=" + host);
+    registry.remove("chnlzrBreakerState instance=" + instanceId + " host=" + host);
+  }
+
+  public void chnlzrSetupConnect(HostId host, long nanoseconds) {
+    registry.timer("chnlzrSetupConnect instance=" + instanceId + " host=" + host)
+            .update(nanoseconds, TimeUnit.NANOSECONDS);
+  }
+
+  public void chnlzrSetupCapabilities(HostId host, long nanoseconds) {
+    registry.timer("chnlzrSetupCapabilities instance=" + instanceId + " host=" + host)
+            .update(nanoseconds, TimeUnit.NANOSECONDS);
+  }
+
+  public void chnlzrSetupChannelState(HostId host, ChannelId.Type type, long nanoseconds) {
+    registry.timer("chnlzrSetupChannelState instance=" + instanceId + " host=" + host + " type=" + type)
+            .update(nanoseconds, TimeUnit.NANOSECONDS);
+  }
+
+  public void chnlzrSetupFirstSamples(HostId host, ChannelId.Type type, long nanoseconds) {
+    registry.timer("chnlzrSetupFirstSamples instance=" + instanceId + " host=" + host + " type=" + type)
+            .update(nanoseconds, TimeUnit.NANOSECONDS);
+  }
+
+  public void registerChnlzrPool(Gauge<Integer> idle) {
+    String name = "chnlzrPoolIdle instance=" + instanceId;
+    registry.remove(name);
+    registry.register(name, idle);
+  }
+
+  public void chnlzrPoolHit() {
+    registry.counter("chnlzrPoolHit instance=" + instanceId).inc();
+  }
+
+  public void chnlzrPoolMiss() {
+    registry.counter("chnlzrPoolMiss instance=" + instanceId).inc();
+  }
+
+  public void chnlzrPoolAcquire(long nanoseconds) {
+    registry.timer("chnlzrPoolAcquire instance=" + instanceId).update(nanoseconds, TimeUnit.NANOSECONDS);
+  }
+
   public void chnlzrRequest(double frequency) {
     registry.histogram("chnlzrRequest instance=" + instanceId).update((long)frequency);
   }
@@ -87,10 +160,141 @@ public class P25DcodrMetrics {
     registry.counter("chnlzrStreamClosed instance=" + instanceId + " code=" + code).inc();
   }
 
+  public void chnlzrHedgeSent() {
+    registry.counter("chnlzrHedgeSent instance=" + instanceId).inc();
+  }
+
+  public void chnlzrHedgeWon() {
+    registry.counter("chnlzrHedgeWon instance=" + instanceId).inc();
+  }
+
+  public void chnlzrHedgeSaved(long nanoseconds) {
+    registry.timer("chnlzrHedgeSaved instance=" + instanceId).update(nanoseconds, TimeUnit.NANOSECONDS);
+  }
+
+  public void chnlzrHedgeCancelled() {
+    registry.counter("chnlzrHedgeCancelled instance=" + instanceId).inc();
+  }
+
+  public void chnlzrStreamResumed(long nanoseconds) {
+    registry.timer("chnlzrStreamResumed instance=" + instanceId).update(nanoseconds, TimeUnit.NANOSECONDS);
+  }
+
+  public void chnlzrStreamResumeFailed() {
+    registry.counter("chnlzrStreamResumeFailed instance=" + instanceId).inc();
+  }
+
+  public void registerDspRunQueue(Gauge<Integer> depth) {
+    String name = "dspRunQueue instance=" + instanceId;
+    registry.remove(name);
+    registry.register(name, depth);
+  }
+
+  public void registerDspOccupancy(String partition, Gauge<Integer> running) {
+    String name = "dspOccupancy instance=" + instanceId + " partition=" + partition;
+    registry.remove(name);
+    registry.register(name, running);
+  }
+
+  public void registerDspHeadroom(Gauge<Double> cores) {
+    String name = "dspHeadroom instance=" + instanceId;
+    registry.remove(name);
+    registry.register(name, cores);
+  }
+
+  public void registerDspChannelCost(ChannelId.Type type, Gauge<Double> cores) {
+    String name = "dspChannelCost instance=" + instanceId + " type=" + type;
+    registry.remove(name);
+    registry.register(name, cores);
+  }
+
+  public void registerDspLoad(ChannelId.Type type, Gauge<Double> cores, Gauge<Double> bytesPerSecond) {
+    registry.remove("dspCores instance="         + instanceId + " type=" + type);
+    registry.remove("dspAllocatedRate instance=" + instanceId + " type=" + type);
+    registry.register("dspCores instance="         + instanceId + " type=" + type, cores);
+    registry.register("dspAllocatedRate instance=" + instanceId + " type=" + type, bytesPerSecond);
+  }
+
+  public void registerDspThreads(Gauge<Integer> threads, Gauge<Integer> active) {
+    registry.remove("dspThreads instance="       + instanceId);
+    registry.remove("dspActiveThreads instance=" + instanceId);
+    registry.register("dspThreads instance="       + instanceId, threads);
+    registry.register("dspActiveThreads instance=" + instanceId, active);
+  }
+
+  public void dspTimeToStart(ChannelId.Type type, long nanoseconds) {
+    registry.timer("dspTimeToStart instance=" + instanceId + " type=" + type).update(nanoseconds, TimeUnit.NANOSECONDS);
+  }
+
+  public void dspRejected(String partition) {
+    registry.counter("dspRejected instance=" + instanceId + " partition=" + partition).inc();
+  }
+
+  public void dspMailboxStalled(long nanoseconds) {
+    registry.timer("dspMailboxStall instance=" + instanceId).update(nanoseconds, TimeUnit.NANOSECONDS);
+  }
+
+  public void trafficChannelPreempted() {
+    registry.counter("trafficChannelPreempted instance=" + instanceId).inc();
+  }
+
   public void registerChannelMonitor(Gauge<Integer> gauge) {
     registry.register("channelMonitor instance=" + instanceId, gauge);
   }
 
+  private AtomicInteger registerSamplesQueued(ChannelId.Type type) {
+    AtomicInteger depth = new AtomicInteger(0);
+    String        name  = "samplesQueueDepth instance=" + instanceId + " type=" + type;
+    registry.remove(name);
+    registry.register(name, (Gauge<Integer>) depth::get);
+    return depth;
+  }
+
+  public void samplesQueued(ChannelId.Type type, int count) {
+    samplesQueued.computeIfAbsent(type, this::registerSamplesQueued).addAndGet(count);
+  }
+
+  public void samplesQueueOverflow(ChannelId.Type type) {
+    registry.counter("samplesQueueOverflow instance=" + instanceId + " type=" + type).inc();
+  }
+
+  public void samplesQueueStalled(ChannelId.Type type, long nanoseconds) {
+    registry.timer("samplesQueueStall instance=" + instanceId + " type=" + type).update(nanoseconds, TimeUnit.NANOSECONDS);
+  }
+
+  public void samplesQueueResynced(ChannelId.Type type) {
+    registry.counter("samplesQueueResync instance=" + instanceId + " type=" + type).inc();
+  }
+
+  public void registerIngest(ChannelId.Type type,
+                             Gauge<Long>    bytes,
+                             Gauge<Long>    messages,
+                             Gauge<Long>    jitterNs,
+                             Gauge<Long>    gaps,
+                             Gauge<Long>    sampleDeficit)
+  {
+    registry.remove("ingestBytes instance="         + instanceId + " type=" + type);
+    registry.remove("ingestMessages instance="      + instanceId + " type=" + type);
+    registry.remove("ingestJitterNs instance="      + instanceId + " type=" + type);
+    registry.remove("ingestGaps instance="          + instanceId + " type=" + type);
+    registry.remove("ingestSampleDeficit instance=" + instanceId + " type=" + type);
+    registry.register("ingestBytes instance="         + instanceId + " type=" + type, bytes);
+    registry.register("ingestMessages instance="      + instanceId + " type=" + type, messages);
+    registry.register("ingestJitterNs instance="      + instanceId + " type=" + type, jitterNs);
+    registry.register("ingestGaps instance="          + instanceId + " type=" + type, gaps);
+    registry.register("ingestSampleDeficit instance=" + instanceId + " type=" + type, sampleDeficit);
+  }
+
+  public void registerEventLoop(int loop, Gauge<Integer> streams) {
+    String name = "eventLoopStreams instance=" + instanceId + " loop=" + loop;
+    registry.remove(name);
+    registry.register(name, streams);
+  }
+
+  public void eventLoopLag(int loop, long nanoseconds) {
+    registry.timer("eventLoopLag instance=" + instanceId + " loop=" + loop).update(nanoseconds, TimeUnit.NANOSECONDS);
+  }
+
   public void groupCaptureRequest() {
     registry.counter("groupCaptureRequest instance=" + instanceId).inc();
   }
@@ -99,6 +303,21 @@ public class P25DcodrMetrics {
     registry.counter("groupCaptureSuccess instance=" + instanceId).inc();
   }
 
+  public void registerWidebandSources(Gauge<Integer> sources, Gauge<Integer> taps) {
+    registry.remove("widebandSources instance=" + instanceId);
+    registry.remove("widebandTaps instance="    + instanceId);
+    registry.register("widebandSources instance=" + instanceId, sources);
+    registry.register("widebandTaps instance="    + instanceId, taps);
+  }
+
+  public void widebandTapHit() {
+    registry.counter("widebandTapHit instance=" + instanceId).inc();
+  }
+
+  public void widebandTapMiss() {
+    registry.counter("widebandTapMiss instance=" + instanceId).inc();
+  }
+
   public void dataUnitCorrupted() {
     registry.counter("dataUnitCorrupted instance=" + instanceId).inc();
   }
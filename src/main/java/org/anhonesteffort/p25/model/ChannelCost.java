@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.anhonesteffort.p25.monitor.DspCostModel;
+
+import javax.validation.constraints.NotNull;
+
+public class ChannelCost {
+
+  @NotNull private String channelId;
+  @NotNull private Double cores;
+  @NotNull private Double allocatedBytesPerSecond;
+  @NotNull private Double cpuMs;
+  @NotNull private Long   allocatedBytes;
+
+  public ChannelCost() { }
+
+  public ChannelCost(DspCostModel.Charge charge) {
+    channelId               = charge.getChannelId().toString();
+    cores                   = charge.getCores();
+    allocatedBytesPerSecond = charge.getBytesPerSecond();
+    cpuMs                   = charge.getCpuNs() / 1_000_000d;
+    allocatedBytes          = charge.getAllocatedBytes();
+  }
+
+  @JsonProperty
+  public String getChannelId() {
+    return channelId;
+  }
+
+  @JsonProperty
+  public Double getCores() {
+    return cores;
+  }
+
+  @JsonProperty
+  public Double getAllocatedBytesPerSecond() {
+    return allocatedBytesPerSecond;
+  }
+
+  @JsonProperty
+  public Double getCpuMs() {
+    return cpuMs;
+  }
+
+  @JsonProperty
+  public Long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+}
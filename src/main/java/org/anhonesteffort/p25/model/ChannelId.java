@@ -29,7 +29,7 @@ public abstract class ChannelId {
   @NotNull private Integer rfSubsystemId;
 
   public enum Type {
-    CONTROL, TRAFFIC_DIRECT, TRAFFIC_GROUP, QUALIFY
+    CONTROL, TRAFFIC_DIRECT, TRAFFIC_GROUP, QUALIFY, WIDEBAND
   }
 
   protected ChannelId() { }
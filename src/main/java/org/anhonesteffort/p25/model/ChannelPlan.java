@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+public class ChannelPlan {
+
+  @Min(1) private Double minFrequency;
+  @Min(1) private Double maxFrequency;
+
+  public ChannelPlan() { }
+
+  public ChannelPlan(Double minFrequency, Double maxFrequency) {
+    this.minFrequency = minFrequency;
+    this.maxFrequency = maxFrequency;
+  }
+
+  @JsonProperty
+  public Double getMinFrequency() {
+    return minFrequency;
+  }
+
+  @JsonProperty
+  public Double getMaxFrequency() {
+    return maxFrequency;
+  }
+
+  public ChannelPlan include(Double frequency) {
+    return new ChannelPlan(Math.min(minFrequency, frequency), Math.max(maxFrequency, frequency));
+  }
+
+}
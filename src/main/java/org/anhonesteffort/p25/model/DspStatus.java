@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+public class DspStatus {
+
+  @NotNull private Double            capacity;
+  @NotNull private Double            headroom;
+  @NotNull private List<ChannelCost> channels;
+
+  public DspStatus() { }
+
+  public DspStatus(Double capacity, Double headroom, List<ChannelCost> channels) {
+    this.capacity = capacity;
+    this.headroom = headroom;
+    this.channels = channels;
+  }
+
+  @JsonProperty
+  public Double getCapacity() {
+    return capacity;
+  }
+
+  @JsonProperty
+  public Double getHeadroom() {
+    return headroom;
+  }
+
+  @JsonProperty
+  public List<ChannelCost> getChannels() {
+    return channels;
+  }
+
+}
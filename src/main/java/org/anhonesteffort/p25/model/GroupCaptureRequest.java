@@ -26,15 +26,24 @@ import javax.validation.constraints.NotNull;
 public class GroupCaptureRequest extends RfAttributesBase implements Identifiable {
 
   @NotNull @Valid private GroupChannelId channelId;
+           @Valid private ChannelPlan    plan;
 
   public GroupCaptureRequest() { }
 
   public GroupCaptureRequest(
       Double latitude, Double longitude, Integer polarization,
-      Double frequency, GroupChannelId channelId
+      Double frequency, GroupChannelId channelId, ChannelPlan plan
   ) {
     super(latitude, longitude, polarization, frequency);
     this.channelId = channelId;
+    this.plan      = plan;
+  }
+
+  public GroupCaptureRequest(
+      Double latitude, Double longitude, Integer polarization,
+      Double frequency, GroupChannelId channelId
+  ) {
+    this(latitude, longitude, polarization, frequency, channelId, null);
   }
 
   @Override
@@ -43,4 +52,9 @@ public class GroupCaptureRequest extends RfAttributesBase implements Identifiabl
     return channelId;
   }
 
+  @JsonProperty
+  public ChannelPlan getPlan() {
+    return plan;
+  }
+
 }
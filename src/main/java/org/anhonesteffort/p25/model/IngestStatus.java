@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.anhonesteffort.p25.chnlzr.IngestStats;
+
+import javax.validation.constraints.NotNull;
+
+public class IngestStatus {
+
+  @NotNull private String  channelId;
+  @NotNull private Long    sampleRate;
+  @NotNull private Long    messages;
+  @NotNull private Long    bytes;
+  @NotNull private Double  bytesPerSecond;
+  @NotNull private Double  messagesPerSecond;
+  @NotNull private Double  meanMessageBytes;
+  @NotNull private Double  jitterMs;
+  @NotNull private Long    gaps;
+  @NotNull private Long    sampleDeficit;
+  @NotNull private Integer queueDepth;
+
+  public IngestStatus() { }
+
+  public IngestStatus(IngestStats stats) {
+    channelId         = stats.getChannelId().toString();
+    sampleRate        = stats.getSampleRate();
+    messages          = stats.getMessages();
+    bytes             = stats.getBytes();
+    bytesPerSecond    = stats.getBytesPerSecond();
+    messagesPerSecond = stats.getMessagesPerSecond();
+    meanMessageBytes  = stats.getMeanMessageBytes();
+    jitterMs          = stats.getJitterNs() / 1_000_000d;
+    gaps              = stats.getGaps();
+    sampleDeficit     = stats.getSampleDeficit();
+    queueDepth        = stats.getQueueDepth();
+  }
+
+  @JsonProperty
+  public String getChannelId() {
+    return channelId;
+  }
+
+  @JsonProperty
+  public Long getSampleRate() {
+    return sampleRate;
+  }
+
+  @JsonProperty
+  public Long getMessages() {
+    return messages;
+  }
+
+  @JsonProperty
+  public Long getBytes() {
+    return bytes;
+  }
+
+  @JsonProperty
+  public Double getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  @JsonProperty
+  public Double getMessagesPerSecond() {
+    return messagesPerSecond;
+  }
+
+  @JsonProperty
+  public Double getMeanMessageBytes() {
+    return meanMessageBytes;
+  }
+
+  @JsonProperty
+  public Double getJitterMs() {
+    return jitterMs;
+  }
+
+  @JsonProperty
+  public Long getGaps() {
+    return gaps;
+  }
+
+  @JsonProperty
+  public Long getSampleDeficit() {
+    return sampleDeficit;
+  }
+
+  @JsonProperty
+  public Integer getQueueDepth() {
+    return queueDepth;
+  }
+
+}
@@ -21,11 +21,13 @@ import com.codahale.metrics.Gauge;
 import org.anhonesteffort.p25.P25DcodrConfig;
 import org.anhonesteffort.p25.metric.P25DcodrMetrics;
 import org.anhonesteffort.p25.model.ChannelId;
+import org.anhonesteffort.p25.model.GroupChannelId;
 import org.anhonesteffort.p25.protocol.ControlChannelFollower;
 import org.anhonesteffort.p25.protocol.GroupTrafficChannelCapture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -101,7 +103,7 @@ public class ChannelMonitor {
           trafficTask.cancel();
         }
 
-        channels.put(reference.getChannelId(), new MonitorRecord(reference, channelFuture, counter));
+        channels.put(reference.getChannelId(), new MonitorRecord(reference, channelFuture, counter, priorityOf(reference)));
 
         if (counter instanceof ControlChannelFollower) {
           scheduleNewControlTask();
@@ -113,6 +115,60 @@ public class ChannelMonitor {
     }
   }
 
+  public int priorityOf(Identifiable reference) {
+    if (!(reference.getChannelId() instanceof GroupChannelId)) {
+      return Integer.MAX_VALUE;
+    }
+
+    GroupChannelId channelId = (GroupChannelId) reference.getChannelId();
+    return config.getTalkgroupPriorities()
+                 .stream()
+                 .filter(entry -> entry.matches(channelId))
+                 .max(Comparator.comparingInt(TalkgroupPriorityConfig::getSpecificity))
+                 .map(TalkgroupPriorityConfig::getPriority)
+                 .orElse(config.getDefaultTalkgroupPriority());
+  }
+
+  private Optional<MonitorRecord> preemptableFor(int priority) {
+    return channels.values()
+                   .stream()
+                   .filter(record -> record.counter instanceof GroupTrafficChannelCapture)
+                   .filter(record -> record.priority < priority)
+                   .min(Comparator.comparingInt((MonitorRecord record) -> record.priority)
+                                  .thenComparingLong(record -> record.startedAt));
+  }
+
+  public boolean canPreempt(Identifiable reference) {
+    return config.getPreemptTrafficChannels() && preemptableFor(priorityOf(reference)).isPresent();
+  }
+
+  public Optional<Future<?>> takePreemptable(Identifiable reference) {
+    if (!config.getPreemptTrafficChannels()) {
+      return Optional.empty();
+    }
+
+    synchronized (txnLock) {
+      Optional<MonitorRecord> victim = preemptableFor(priorityOf(reference));
+      if (!victim.isPresent()) {
+        return Optional.empty();
+      }
+
+      channels.remove(victim.get().reference.getChannelId());
+
+      P25DcodrMetrics.getInstance().trafficChannelPreempted();
+      log.info(victim.get().reference.getChannelId() + " preempted by " + reference.getChannelId());
+      return Optional.of(victim.get().future);
+    }
+  }
+
+  public boolean preempt(Identifiable reference) {
+    Optional<Future<?>> victim = takePreemptable(reference);
+    if (victim.isPresent()) {
+      victim.get().cancel(true);
+    }
+    return victim.isPresent();
+  }
+
   public void cancel(ChannelId channelId) {
     Optional<MonitorRecord> record = Optional.ofNullable(channels.remove(channelId));
     if (record.isPresent()) {
@@ -170,11 +226,15 @@ public class ChannelMonitor {
     protected final Identifiable    reference;
     protected final Future          future;
     protected final DataUnitCounter counter;
+    protected final int             priority;
+    protected final long            startedAt;
 
-    protected MonitorRecord(Identifiable reference, Future future, DataUnitCounter counter) {
+    protected MonitorRecord(Identifiable reference, Future future, DataUnitCounter counter, int priority) {
       this.reference = reference;
       this.future    = future;
       this.counter   = counter;
+      this.priority  = priority;
+      startedAt      = System.nanoTime();
     }
   }
 
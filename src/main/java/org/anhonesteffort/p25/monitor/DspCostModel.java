@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.monitor;
+
+import org.anhonesteffort.p25.P25DcodrConfig;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.ChannelId;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+public class DspCostModel {
+
+  /*
+  notice:
+    cost is measured in cores, thread cpu time over wall time for the
+    thread running a channel. each channel type keeps a moving average of
+    its measured cost, a new channel is only admitted if the cost of every
+    running channel plus the cost of the new one fits within capacity.
+    cpu time and allocated bytes are also kept per channel for /dsp.
+    sampling makes a ThreadMXBean call per channel so it should be given
+    a scheduler of its own rather than one also serving i/o. the jvm
+    reports no cpu time for virtual threads, so on virtual dsp threads
+    charges are still kept for /dsp but only the pool's slots admit.
+   */
+
+  private static final double ALPHA = 0.2d;
+
+  private final Set<Charge>                 charges = ConcurrentHashMap.newKeySet();
+  private final Map<ChannelId.Type, Double> costs   = new ConcurrentHashMap<>();
+  private final double                      capacity;
+  private final double                      initialCost;
+  private final LongUnaryOperator           cpuNanos;
+  private final LongUnaryOperator           allocatedBytes;
+  private final LongSupplier                wallNanos;
+  private final boolean                     admitByCost;
+
+  public DspCostModel(double            capacity,
+                      double            initialCost,
+                      LongUnaryOperator cpuNanos,
+                      LongUnaryOperator allocatedBytes,
+                      LongSupplier      wallNanos,
+                      boolean           admitByCost)
+  {
+    this.admitByCost    = admitByCost;
+    this.capacity       = capacity;
+    this.initialCost    = initialCost;
+    this.cpuNanos       = cpuNanos;
+    this.allocatedBytes = allocatedBytes;
+    this.wallNanos      = wallNanos;
+
+    P25DcodrMetrics.getInstance().registerDspHeadroom(this::getHeadroom);
+    for (ChannelId.Type type : ChannelId.Type.values()) {
+      P25DcodrMetrics.getInstance().registerDspChannelCost(type, () -> getCost(type));
+      P25DcodrMetrics.getInstance().registerDspLoad(
+          type, () -> sumOf(type, Charge::getCores), () -> sumOf(type, Charge::getBytesPerSecond)
+      );
+    }
+  }
+
+  public DspCostModel(double            capacity,
+                      double            initialCost,
+                      LongUnaryOperator cpuNanos,
+                      LongUnaryOperator allocatedBytes,
+                      LongSupplier      wallNanos)
+  {
+    this(capacity, initialCost, cpuNanos, allocatedBytes, wallNanos, true);
+  }
+
+  public DspCostModel(double capacity, double initialCost, LongUnaryOperator cpuNanos, LongSupplier wallNanos) {
+    this(capacity, initialCost, cpuNanos, threadId -> -1l, wallNanos);
+  }
+
+  public DspCostModel(P25DcodrConfig config) {
+    this(
+        Runtime.getRuntime().availableProcessors() * config.getDspTargetLoad(),
+        config.getDspChannelCost(), threadCpuNanos(), threadAllocatedBytes(), System::nanoTime,
+        !(config.getDspVirtualThreads() && DspThreads.isVirtualSupported())
+    );
+  }
+
+  private static LongUnaryOperator threadCpuNanos() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads.isThreadCpuTimeSupported()) {
+      threads.setThreadCpuTimeEnabled(true);
+      return threads::getThreadCpuTime;
+    } else {
+      return threadId -> -1l;
+    }
+  }
+
+  private static LongUnaryOperator threadAllocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean &&
+        ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported())
+    {
+      com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+      hotspot.setThreadAllocatedMemoryEnabled(true);
+      return hotspot::getThreadAllocatedBytes;
+    } else {
+      return threadId -> -1l;
+    }
+  }
+
+  public void startSampling(ScheduledExecutorService scheduler, long periodMs) {
+    scheduler.scheduleAtFixedRate(this::sample, periodMs, periodMs, TimeUnit.MILLISECONDS);
+  }
+
+  public double getCapacity() {
+    return capacity;
+  }
+
+  public double getCost(ChannelId.Type type) {
+    return costs.getOrDefault(type, initialCost);
+  }
+
+  public double getHeadroom() {
+    return capacity - charges.stream().mapToDouble(charge -> getCost(charge.getType())).sum();
+  }
+
+  public boolean canAdmit(ChannelId.Type type, double keepCores) {
+    return !admitByCost || getHeadroom() - keepCores >= getCost(type);
+  }
+
+  public boolean canAdmit(ChannelId.Type type) {
+    return canAdmit(type, 0d);
+  }
+
+  private double sumOf(ChannelId.Type type, ToDoubleFunction<Charge> value) {
+    return charges.stream().filter(charge -> charge.getType() == type).mapToDouble(value).sum();
+  }
+
+  public Collection<Charge> getCharges() {
+    return Collections.unmodifiableCollection(charges);
+  }
+
+  public synchronized Optional<Charge> tryCharge(ChannelId channelId, double keepCores) {
+    if (!canAdmit(channelId.getType(), keepCores)) {
+      return Optional.empty();
+    }
+
+    Charge charge = new Charge(channelId);
+    charges.add(charge);
+    return Optional.of(charge);
+  }
+
+  public synchronized Charge handOff(Charge from, ChannelId channelId) {
+    Charge charge = new Charge(channelId);
+    charges.remove(from);
+    charges.add(charge);
+    return charge;
+  }
+
+  protected void sample() {
+    Map<ChannelId.Type, Double> measured = charges.stream()
+                                                  .filter(Charge::measure)
+                                                  .collect(Collectors.groupingBy(
+                                                      Charge::getType,
+                                                      Collectors.averagingDouble(Charge::getCores)
+                                                  ));
+
+    measured.forEach((type, cost) -> costs.put(type, ((1d - ALPHA) * getCost(type)) + (ALPHA * cost)));
+  }
+
+  public class Charge {
+    private final ChannelId channelId;
+
+    private volatile long   threadId = -1l;
+    private          long   lastCpuNs;
+    private          long   lastAllocated;
+    private          long   lastWallNs;
+    private volatile long   cpuNs;
+    private volatile long   allocated;
+    private volatile double cores;
+    private volatile double bytesPerSecond;
+
+    private Charge(ChannelId channelId) {
+      this.channelId = channelId;
+    }
+
+    public ChannelId getChannelId() {
+      return channelId;
+    }
+
+    public ChannelId.Type getType() {
+      return channelId.getType();
+    }
+
+    public long getCpuNs() {
+      return cpuNs;
+    }
+
+    public long getAllocatedBytes() {
+      return allocated;
+    }
+
+    public double getCores() {
+      return cores;
+    }
+
+    public double getBytesPerSecond() {
+      return bytesPerSecond;
+    }
+
+    public void onStart() {
+      lastCpuNs     = cpuNanos.applyAsLong(Thread.currentThread().getId());
+      lastAllocated = allocatedBytes.applyAsLong(Thread.currentThread().getId());
+      lastWallNs    = wallNanos.getAsLong();
+      threadId      = Thread.currentThread().getId();
+    }
+
+    private boolean measure() {
+      if (threadId < 0l) {
+        return false;
+      }
+
+      long nowCpuNs     = cpuNanos.applyAsLong(threadId);
+      long nowAllocated = allocatedBytes.applyAsLong(threadId);
+      long nowWallNs    = wallNanos.getAsLong();
+      long wallNs       = nowWallNs - lastWallNs;
+
+      if (wallNs <= 0l) {
+        return false;
+      }
+
+      if (nowAllocated >= 0l && lastAllocated >= 0l) {
+        allocated     += nowAllocated - lastAllocated;
+        bytesPerSecond = (double) (nowAllocated - lastAllocated) / ((double) wallNs / 1_000_000_000d);
+      }
+
+      boolean measured = nowCpuNs >= 0l && lastCpuNs >= 0l;
+      if (measured) {
+        cpuNs += nowCpuNs - lastCpuNs;
+        cores  = (double) (nowCpuNs - lastCpuNs) / (double) wallNs;
+      }
+
+      lastCpuNs     = nowCpuNs;
+      lastAllocated = nowAllocated;
+      lastWallNs    = nowWallNs;
+      return measured;
+    }
+
+    public void release() {
+      charges.remove(this);
+    }
+  }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.monitor;
+
+import org.anhonesteffort.p25.P25DcodrConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+
+public class DspThreads {
+
+  /*
+  notice:
+    this is the java 8 build, java 21+ runtimes load the multi-release
+    version from src/main/java21 which can run channels on virtual threads.
+   */
+
+  private static final Logger log = LoggerFactory.getLogger(DspThreads.class);
+
+  public static boolean isVirtualSupported() {
+    return false;
+  }
+
+  public static ExecutorService newExecutor(P25DcodrConfig config, int slots) {
+    if (config.getDspVirtualThreads()) {
+      log.warn("virtual dsp threads need a java 21+ runtime, running channels on platform threads");
+    }
+    return new ElasticDspExecutor(config, slots);
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.monitor;
+
+import org.anhonesteffort.p25.P25DcodrConfig;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ElasticDspExecutor extends ThreadPoolExecutor {
+
+  /*
+  notice:
+    a channel holds its thread until it's closed so work is handed straight
+    to a thread and never queued, PartitionedDspPool slots bound how many
+    channels can be submitted. minThreads stay warm, the pool grows with
+    load and threads idle for keepAliveMs are retired. a slot is released
+    just before its thread goes idle and a prestarted thread may not be
+    waiting for work yet, so the pool may grow past maxThreads by one
+    thread per slot plus minThreads. submit runs on netty event loops and
+    never waits, a full pool rejects at once.
+   */
+
+  public ElasticDspExecutor(int minThreads, int maxThreads, long keepAliveMs) {
+    super(
+        Math.min(minThreads, maxThreads), limitFor(minThreads, maxThreads), keepAliveMs, TimeUnit.MILLISECONDS,
+        new SynchronousQueue<>(), new DspThreadFactory(), ElasticDspExecutor::reject
+    );
+
+    prestartAllCoreThreads();
+    P25DcodrMetrics.getInstance().registerDspThreads(this::getPoolSize, this::getActiveCount);
+  }
+
+  public ElasticDspExecutor(P25DcodrConfig config, int maxThreads) {
+    this(config.getDspMinThreads(), maxThreads, config.getDspThreadKeepAliveMs());
+  }
+
+  protected static int limitFor(int minThreads, int maxThreads) {
+    return (maxThreads * 2) + Math.min(minThreads, maxThreads);
+  }
+
+  private static void reject(Runnable task, ThreadPoolExecutor executor) {
+    if (executor.isShutdown()) {
+      throw new RejectedExecutionException("dsp executor is shut down");
+    } else {
+      throw new RejectedExecutionException("all " + executor.getMaximumPoolSize() + " dsp threads busy");
+    }
+  }
+
+  private static class DspThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      return new Thread(runnable, "dsp-" + count.getAndIncrement());
+    }
+  }
+
+}
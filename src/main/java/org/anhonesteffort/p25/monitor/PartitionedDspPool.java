@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.monitor;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.anhonesteffort.p25.P25DcodrConfig;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.ChannelId;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PartitionedDspPool {
+
+  /*
+  notice:
+    a channel holds its dsp thread until it's closed so tasks are never
+    queued, a queued channel would accept samples and never decode them.
+    control channels and qualifies take a reserved slot first and fall
+    back to the shared slots, traffic captures only get the shared slots.
+    a grant storm can fill every shared slot and a control channel can
+    still be re-followed. on top of the slots every channel is charged
+    its measured cpu cost, see DspCostModel, so a pool sized larger than
+    the host can decode is still refused before it overcommits. traffic
+    also leaves headroom for the control slots still in reserve. a
+    preempting submit takes the victim's slot and charge over directly
+    so nothing else can claim them between the cancel and the submit.
+   */
+
+  public enum Partition { CONTROL, TRAFFIC }
+
+  private final ConcurrentHashMap<Future<?>, Grant> grants         = new ConcurrentHashMap<>();
+  private final AtomicInteger                       controlRunning = new AtomicInteger(0);
+  private final AtomicInteger                       trafficRunning = new AtomicInteger(0);
+
+  private final ListeningExecutorService executor;
+  private final Semaphore                reserved;
+  private final Semaphore                shared;
+  private final DspCostModel             costs;
+  private final long                     retryAfterMs;
+
+  public PartitionedDspPool(ListeningExecutorService executor,
+                            int                      poolSize,
+                            int                      reservedControl,
+                            DspCostModel             costs,
+                            long                     retryAfterMs)
+  {
+    if (reservedControl < 0 || reservedControl >= poolSize) {
+      throw new IllegalArgumentException("reserved control slots must be >= 0 and < pool size");
+    }
+
+    this.executor     = executor;
+    this.costs        = costs;
+    this.retryAfterMs = retryAfterMs;
+    reserved          = new Semaphore(reservedControl);
+    shared            = new Semaphore(poolSize - reservedControl);
+
+    P25DcodrMetrics.getInstance().registerDspOccupancy("control", controlRunning::get);
+    P25DcodrMetrics.getInstance().registerDspOccupancy("traffic", trafficRunning::get);
+  }
+
+  public PartitionedDspPool(P25DcodrConfig config, DspCostModel costs) {
+    this(
+        MoreExecutors.listeningDecorator(DspThreads.newExecutor(config, slotsFor(config))),
+        slotsFor(config), config.getDspReservedControl(), costs, config.getDspRetryAfterMs()
+    );
+  }
+
+  private static int slotsFor(P25DcodrConfig config) {
+    if (config.getDspVirtualThreads() && DspThreads.isVirtualSupported()) {
+      return config.getDspVirtualChannels();
+    } else {
+      return config.getDspPoolSize();
+    }
+  }
+
+  public static Partition partitionOf(ChannelId.Type type) {
+    switch (type) {
+      case CONTROL:
+      case QUALIFY:
+        return Partition.CONTROL;
+
+      default:
+        return Partition.TRAFFIC;
+    }
+  }
+
+  private double keepCoresFor(Partition partition) {
+    if (partition == Partition.CONTROL) {
+      return 0d;
+    } else {
+      return reserved.availablePermits() * costs.getCost(ChannelId.Type.CONTROL);
+    }
+  }
+
+  public boolean hasCapacity(ChannelId.Type type) {
+    if (!costs.canAdmit(type, keepCoresFor(partitionOf(type)))) {
+      return false;
+    } else if (partitionOf(type) == Partition.CONTROL) {
+      return reserved.availablePermits() > 0 || shared.availablePermits() > 0;
+    } else {
+      return shared.availablePermits() > 0;
+    }
+  }
+
+  public int getOccupancy(Partition partition) {
+    return partition == Partition.CONTROL ? controlRunning.get() : trafficRunning.get();
+  }
+
+  public long getRetryAfterSeconds() {
+    return Math.max(1l, TimeUnit.MILLISECONDS.toSeconds(retryAfterMs + 999l));
+  }
+
+  private Semaphore acquire(Partition partition) {
+    if (partition == Partition.CONTROL && reserved.tryAcquire()) {
+      return reserved;
+    } else if (shared.tryAcquire()) {
+      return shared;
+    } else {
+      P25DcodrMetrics.getInstance().dspRejected(partition.name().toLowerCase());
+      throw new RejectedExecutionException("no dsp slot left for " + partition.name().toLowerCase());
+    }
+  }
+
+  private AtomicInteger runningFor(Partition partition) {
+    return partition == Partition.CONTROL ? controlRunning : trafficRunning;
+  }
+
+  private static class Grant {
+    private final AtomicBoolean       held = new AtomicBoolean(true);
+    private final Semaphore           permit;
+    private final DspCostModel.Charge charge;
+    private final AtomicInteger       running;
+
+    public Grant(Semaphore permit, DspCostModel.Charge charge, AtomicInteger running) {
+      this.permit  = permit;
+      this.charge  = charge;
+      this.running = running;
+      running.incrementAndGet();
+    }
+
+    public boolean take() {
+      if (held.compareAndSet(true, false)) {
+        running.decrementAndGet();
+        return true;
+      }
+      return false;
+    }
+
+    public void release() {
+      if (take()) {
+        charge.release();
+        permit.release();
+      }
+    }
+  }
+
+  public <T> ListenableFuture<T> submit(ChannelId channelId, Callable<T> task) {
+    Partition                     partition = partitionOf(channelId.getType());
+    double                        keepCores = keepCoresFor(partition);
+    Semaphore                     permit    = acquire(partition);
+    Optional<DspCostModel.Charge> charge    = costs.tryCharge(channelId, keepCores);
+
+    if (!charge.isPresent()) {
+      permit.release();
+      P25DcodrMetrics.getInstance().dspRejected(partition.name().toLowerCase());
+      throw new RejectedExecutionException("no dsp headroom left for " + channelId.getType().name().toLowerCase());
+    }
+
+    return start(channelId, task, new Grant(permit, charge.get(), runningFor(partition)));
+  }
+
+  public <T> ListenableFuture<T> submitPreempting(ChannelId channelId, Callable<T> task, Future<?> victim) {
+    Optional<Grant> grant = Optional.ofNullable(grants.remove(victim));
+
+    if (!grant.isPresent() || !grant.get().take()) {
+      victim.cancel(true);
+      return submit(channelId, task);
+    }
+
+    victim.cancel(true);
+
+    DspCostModel.Charge charge = costs.handOff(grant.get().charge, channelId);
+    return start(channelId, task, new Grant(grant.get().permit, charge, runningFor(partitionOf(channelId.getType()))));
+  }
+
+  private <T> ListenableFuture<T> start(ChannelId channelId, Callable<T> task, Grant grant) {
+    long submittedAt = System.nanoTime();
+
+    try {
+
+      ListenableFuture<T> future = executor.submit(() -> {
+        P25DcodrMetrics.getInstance().dspTimeToStart(channelId.getType(), System.nanoTime() - submittedAt);
+        grant.charge.onStart();
+        return task.call();
+      });
+
+      grants.put(future, grant);
+      future.addListener(() -> {
+        grants.remove(future);
+        grant.release();
+      }, MoreExecutors.directExecutor());
+      return future;
+
+    } catch (RejectedExecutionException e) {
+      grant.release();
+      throw e;
+    }
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.monitor;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.anhonesteffort.p25.model.GroupChannelId;
+
+import javax.validation.constraints.NotNull;
+
+public class TalkgroupPriorityConfig {
+
+            private Integer wacn;
+            private Integer systemId;
+  @NotNull  private Integer groupId;
+  @NotNull  private Integer priority;
+
+  public TalkgroupPriorityConfig() { }
+
+  public TalkgroupPriorityConfig(Integer wacn, Integer systemId, Integer groupId, Integer priority) {
+    this.wacn     = wacn;
+    this.systemId = systemId;
+    this.groupId  = groupId;
+    this.priority = priority;
+  }
+
+  @JsonProperty
+  public Integer getWacn() {
+    return wacn;
+  }
+
+  @JsonProperty
+  public Integer getSystemId() {
+    return systemId;
+  }
+
+  @JsonProperty
+  public Integer getGroupId() {
+    return groupId;
+  }
+
+  @JsonProperty
+  public Integer getPriority() {
+    return priority;
+  }
+
+  public boolean matches(GroupChannelId channelId) {
+    return groupId.equals(channelId.getGroupId()) &&
+           (systemId == null || systemId.equals(channelId.getSystemId())) &&
+           (wacn == null || wacn.equals(channelId.getWacn()));
+  }
+
+  public int getSpecificity() {
+    return (systemId != null ? 1 : 0) + (wacn != null ? 1 : 0);
+  }
+
+}
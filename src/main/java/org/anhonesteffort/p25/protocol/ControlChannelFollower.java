@@ -20,6 +20,7 @@ package org.anhonesteffort.p25.protocol;
 import io.radiowitness.kinesis.producer.KinesisRecordProducer;
 import org.anhonesteffort.p25.P25Config;
 import org.anhonesteffort.p25.kinesis.KinesisDataUnitSink;
+import org.anhonesteffort.p25.model.ChannelPlan;
 import org.anhonesteffort.p25.model.GroupChannelId;
 import org.anhonesteffort.p25.model.FollowRequest;
 import org.anhonesteffort.p25.model.GroupCaptureRequest;
@@ -47,6 +48,8 @@ public class ControlChannelFollower extends KinesisDataUnitSink implements Invoc
   private final FollowRequest followRequest;
   private final WebTarget trafficTarget;
 
+  private Optional<ChannelPlan> channelPlan = Optional.empty();
+
   public ControlChannelFollower(KinesisRecordProducer sender,
                                 FollowRequest         followRequest,
                                 Double                srcLatitude,
@@ -86,11 +89,17 @@ public class ControlChannelFollower extends KinesisDataUnitSink implements Invoc
     );
   }
 
+  private ChannelPlan planWith(Double frequency) {
+    channelPlan = Optional.of(channelPlan.map(plan -> plan.include(frequency))
+                                         .orElse(new ChannelPlan(frequency, frequency)));
+    return channelPlan.get();
+  }
+
   private GroupCaptureRequest buildCaptureRequest(GroupVoiceChannelGrant grant, Double frequency) {
     return new GroupCaptureRequest(
         followRequest.getLatitude(),     followRequest.getLongitude(),
         followRequest.getPolarization(), frequency,
-        buildChannelId(grant, frequency)
+        buildChannelId(grant, frequency), planWith(frequency)
     );
   }
 
@@ -98,7 +107,7 @@ public class ControlChannelFollower extends KinesisDataUnitSink implements Invoc
     return new GroupCaptureRequest(
         followRequest.getLatitude(),     followRequest.getLongitude(),
         followRequest.getPolarization(), frequency,
-        buildChannelId(grant, frequency)
+        buildChannelId(grant, frequency), planWith(frequency)
     );
   }
 
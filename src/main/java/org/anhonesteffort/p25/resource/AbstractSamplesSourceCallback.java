@@ -19,7 +19,6 @@ package org.anhonesteffort.p25.resource;
 
 import com.google.common.util.concurrent.FutureCallback;
 import org.anhonesteffort.chnlzr.ProtocolErrorException;
-import org.anhonesteffort.p25.chnlzr.SamplesSourceHandler;
 import org.anhonesteffort.p25.metric.P25DcodrMetrics;
 import org.anhonesteffort.p25.model.ChannelId;
 import org.slf4j.Logger;
@@ -29,7 +28,7 @@ import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.Response;
 import java.util.concurrent.CancellationException;
 
-public abstract class AbstractSamplesSourceCallback implements FutureCallback<SamplesSourceHandler> {
+public abstract class AbstractSamplesSourceCallback<T> implements FutureCallback<T> {
 
   protected final AsyncResponse response;
   protected final ChannelId     channelId;
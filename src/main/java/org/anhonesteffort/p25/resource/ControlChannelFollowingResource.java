@@ -20,7 +20,6 @@ package org.anhonesteffort.p25.resource;
 import com.codahale.metrics.annotation.Timed;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
 import io.radiowitness.kinesis.producer.KinesisRecordProducer;
 import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
 import org.anhonesteffort.p25.P25Channel;
@@ -28,6 +27,7 @@ import org.anhonesteffort.p25.P25ChannelSpec;
 import org.anhonesteffort.p25.P25Config;
 import org.anhonesteffort.p25.P25DcodrConfig;
 import org.anhonesteffort.p25.chnlzr.ChnlzrController;
+import org.anhonesteffort.p25.chnlzr.ResumingSamplesSource;
 import org.anhonesteffort.p25.chnlzr.SamplesSourceHandler;
 import org.anhonesteffort.p25.kinesis.KinesisRecordProducerFactory;
 import org.anhonesteffort.p25.model.ChannelId;
@@ -35,7 +35,9 @@ import org.anhonesteffort.p25.model.FollowList;
 import org.anhonesteffort.p25.model.FollowRequest;
 import org.anhonesteffort.p25.model.UnfollowRequest;
 import org.anhonesteffort.p25.monitor.ChannelMonitor;
+import org.anhonesteffort.p25.monitor.PartitionedDspPool;
 import org.anhonesteffort.p25.protocol.ControlChannelFollower;
+import org.anhonesteffort.p25.sample.SamplesQueueTracker;
 import org.glassfish.jersey.server.ManagedAsync;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,11 +53,13 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -76,14 +80,14 @@ public class ControlChannelFollowingResource {
   private final ChannelMonitor               channelMonitor;
   private final KinesisRecordProducerFactory senderFactory;
   private final WebTarget                    trafficTarget;
-  private final ListeningExecutorService     dspPool;
+  private final PartitionedDspPool           dspPool;
 
   public ControlChannelFollowingResource(P25DcodrConfig               config,
                                          ChnlzrController             chnlzr,
                                          ChannelMonitor               channelMonitor,
                                          KinesisRecordProducerFactory senderFactory,
                                          WebTarget                    trafficTarget,
-                                         ListeningExecutorService     dspPool)
+                                         PartitionedDspPool           dspPool)
   {
     this.config         = config;
     this.chnlzr         = chnlzr;
@@ -123,6 +127,10 @@ public class ControlChannelFollowingResource {
       {
         response.resume(Response.status(409).build());
         return;
+      } else if (!dspPool.hasCapacity(request.getChannelId().getType())) {
+        log.warn(request.getChannelId() + " no dsp capacity left");
+        response.resume(Response.status(503).header(HttpHeaders.RETRY_AFTER, dspPool.getRetryAfterSeconds()).build());
+        return;
       } else {
         pendingRequests.add(request.getChannelId());
         log.info(request.getChannelId() + " requesting channel");
@@ -132,7 +140,7 @@ public class ControlChannelFollowingResource {
     ChannelRequest.Reader                  channelRequest = transform(request);
     ListenableFuture<SamplesSourceHandler> sourceFuture   = chnlzr.createSourceFor(channelRequest);
 
-    Futures.addCallback(sourceFuture, new SamplesSourceCallback(request, response));
+    Futures.addCallback(sourceFuture, new SamplesSourceCallback(request, channelRequest, response));
 
     response.setTimeout(config.getChannelRequestTimeoutMs(), TimeUnit.MILLISECONDS);
     response.setTimeoutHandler(asyncResponse -> sourceFuture.cancel(true));
@@ -144,12 +152,17 @@ public class ControlChannelFollowingResource {
     channelMonitor.cancel(request);
   }
 
-  private class SamplesSourceCallback extends AbstractSamplesSourceCallback {
-    private final FollowRequest request;
+  private class SamplesSourceCallback extends AbstractSamplesSourceCallback<SamplesSourceHandler> {
+    private final FollowRequest         request;
+    private final ChannelRequest.Reader channelRequest;
 
-    public SamplesSourceCallback(FollowRequest request, AsyncResponse response) {
+    public SamplesSourceCallback(FollowRequest         request,
+                                 ChannelRequest.Reader channelRequest,
+                                 AsyncResponse         response)
+    {
       super(response, request.getChannelId());
-      this.request = request;
+      this.request        = request;
+      this.channelRequest = channelRequest;
     }
 
     @Override
@@ -159,13 +172,26 @@ public class ControlChannelFollowingResource {
 
     @Override
     public void onSuccess(SamplesSourceHandler samplesSource) {
-      P25ChannelSpec         channelSpec   = new P25ChannelSpec(request.getFrequency());
-      P25Channel             channel       = new P25Channel(config.getP25Config(), channelSpec, config.getSamplesQueueSize());
-      KinesisRecordProducer  sender        = senderFactory.create(request.getChannelId());
-      Double                 srcLatitude   = samplesSource.getCapabilities().getLatitude();
-      Double                 srcLongitude  = samplesSource.getCapabilities().getLongitude();
-      ControlChannelFollower follower      = new ControlChannelFollower(sender, request, srcLatitude, srcLongitude, trafficTarget);
-      ListenableFuture<Void> channelFuture = dspPool.submit(channel);
+      P25ChannelSpec         channelSpec = new P25ChannelSpec(request.getFrequency());
+      P25Channel             channel     = new P25Channel(config.getP25Config(), channelSpec, config.getSamplesQueueSize());
+      ListenableFuture<Void> channelFuture;
+
+      try {
+
+        channelFuture = dspPool.submit(channelId, channel);
+
+      } catch (RejectedExecutionException e) {
+        log.warn(channelId + " " + e.getMessage());
+        pendingRequests.remove(channelId);
+        samplesSource.close();
+        response.resume(Response.status(503).header(HttpHeaders.RETRY_AFTER, dspPool.getRetryAfterSeconds()).build());
+        return;
+      }
+
+      KinesisRecordProducer  sender       = senderFactory.create(request.getChannelId());
+      Double                 srcLatitude  = samplesSource.getCapabilities().getLatitude();
+      Double                 srcLongitude = samplesSource.getCapabilities().getLongitude();
+      ControlChannelFollower follower     = new ControlChannelFollower(sender, request, srcLatitude, srcLongitude, trafficTarget);
 
       if (!channelMonitor.monitor(request, channelFuture, follower)) {
         pendingRequests.remove(channelId);
@@ -176,12 +202,13 @@ public class ControlChannelFollowingResource {
         log.info(channelId + " now following");
         pendingRequests.remove(channelId);
         channel.addSink(follower);
-        samplesSource.setSink(channel);
+        ResumingSamplesSource resumingSource = new ResumingSamplesSource(config, chnlzr, channelRequest, samplesSource);
+        resumingSource.setSink(channel, new SamplesQueueTracker(config, channelId));
         response.resume(Response.ok().build());
 
-        MonitoredChannelCleanupCallback callback = new MonitoredChannelCleanupCallback(samplesSource, channelId);
+        MonitoredChannelCleanupCallback callback = new MonitoredChannelCleanupCallback(resumingSource, channelId);
         Futures.addCallback(channelFuture, callback);
-        Futures.addCallback(samplesSource.getCloseFuture(), callback);
+        Futures.addCallback(resumingSource.getCloseFuture(), callback);
       }
     }
 
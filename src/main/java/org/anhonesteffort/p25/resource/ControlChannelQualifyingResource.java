@@ -21,7 +21,6 @@ import com.codahale.metrics.annotation.Timed;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
 import org.anhonesteffort.chnlzr.ProtocolErrorException;
 import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
 import org.anhonesteffort.p25.P25Channel;
@@ -29,11 +28,14 @@ import org.anhonesteffort.p25.P25ChannelSpec;
 import org.anhonesteffort.p25.P25Config;
 import org.anhonesteffort.p25.P25DcodrConfig;
 import org.anhonesteffort.p25.chnlzr.SamplesSourceHandler;
+import org.anhonesteffort.p25.model.ChannelId;
 import org.anhonesteffort.p25.model.ControlChannelQualities;
 import org.anhonesteffort.p25.model.QualifyChannelId;
 import org.anhonesteffort.p25.model.QualifyRequest;
+import org.anhonesteffort.p25.monitor.PartitionedDspPool;
 import org.anhonesteffort.p25.protocol.ControlChannelQualifier;
 import org.anhonesteffort.p25.chnlzr.ChnlzrController;
+import org.anhonesteffort.p25.sample.SamplesQueueTracker;
 import org.glassfish.jersey.server.ManagedAsync;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,11 +48,13 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import java.util.Optional;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -65,11 +69,11 @@ public class ControlChannelQualifyingResource {
 
   private final P25DcodrConfig           config;
   private final ChnlzrController         chnlzr;
-  private final ListeningExecutorService dspPool;
+  private final PartitionedDspPool       dspPool;
 
   public ControlChannelQualifyingResource(P25DcodrConfig           config,
                                           ChnlzrController         chnlzr,
-                                          ListeningExecutorService dspPool)
+                                          PartitionedDspPool       dspPool)
   {
     this.config  = config;
     this.chnlzr  = chnlzr;
@@ -87,6 +91,12 @@ public class ControlChannelQualifyingResource {
   @Timed
   @ManagedAsync
   public void qualify(@NotNull @Valid QualifyRequest request, @Suspended AsyncResponse response) {
+    if (!dspPool.hasCapacity(ChannelId.Type.QUALIFY)) {
+      log.warn("unable to qualify channel, no dsp capacity left");
+      response.resume(Response.status(503).header(HttpHeaders.RETRY_AFTER, dspPool.getRetryAfterSeconds()).build());
+      return;
+    }
+
     ChannelRequest.Reader                  channelRequest = transform(request);
     ListenableFuture<SamplesSourceHandler> sourceFuture   = chnlzr.createSourceFor(channelRequest);
 
@@ -96,7 +106,7 @@ public class ControlChannelQualifyingResource {
     response.setTimeoutHandler(asyncResponse -> sourceFuture.cancel(true));
   }
 
-  private class SamplesSourceCallback extends AbstractSamplesSourceCallback {
+  private class SamplesSourceCallback extends AbstractSamplesSourceCallback<SamplesSourceHandler> {
     private final ChannelRequest.Reader request;
 
     public SamplesSourceCallback(ChannelRequest.Reader request, AsyncResponse response) {
@@ -114,14 +124,25 @@ public class ControlChannelQualifyingResource {
       P25ChannelSpec          channelSpec = new P25ChannelSpec(request.getCenterFrequency());
       P25Channel              channel     = new P25Channel(config.getP25Config(), channelSpec, config.getSamplesQueueSize());
       ControlChannelQualifier qualifier   = new ControlChannelQualifier();
+      ListenableFuture<Void>  channelFuture;
+
+      try {
+
+        channelFuture = dspPool.submit(channelId, channel);
+
+      } catch (RejectedExecutionException e) {
+        log.warn("unable to qualify channel, " + e.getMessage());
+        samplesSource.close();
+        response.resume(Response.status(503).header(HttpHeaders.RETRY_AFTER, dspPool.getRetryAfterSeconds()).build());
+        return;
+      }
 
-      ListenableFuture<Void>   channelFuture   = dspPool.submit(channel);
       ChannelQualifiedCallback channelCallback = new ChannelQualifiedCallback(
           qualifier, response, samplesSource, channelFuture
       );
 
       channel.addSink(qualifier);
-      samplesSource.setSink(channel);
+      samplesSource.setSink(channel, new SamplesQueueTracker(config, channelId));
 
       Futures.addCallback(channelFuture, channelCallback);
       Futures.addCallback(samplesSource.getCloseFuture(), channelCallback);
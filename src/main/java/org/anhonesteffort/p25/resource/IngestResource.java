@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.resource;
+
+import com.codahale.metrics.annotation.Timed;
+import org.anhonesteffort.p25.chnlzr.IngestMonitor;
+import org.anhonesteffort.p25.model.IngestList;
+import org.anhonesteffort.p25.model.IngestStatus;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.util.stream.Collectors;
+
+@Path("/ingest")
+@Produces(MediaType.APPLICATION_JSON)
+public class IngestResource {
+
+  private final IngestMonitor ingest;
+
+  public IngestResource(IngestMonitor ingest) {
+    this.ingest = ingest;
+  }
+
+  @GET
+  @Timed
+  public IngestList getList() {
+    return new IngestList(
+        ingest.getStreams().stream().map(IngestStatus::new).collect(Collectors.toList())
+    );
+  }
+
+}
@@ -19,7 +19,8 @@ package org.anhonesteffort.p25.resource;
 
 import com.google.common.util.concurrent.FutureCallback;
 import org.anhonesteffort.chnlzr.ProtocolErrorException;
-import org.anhonesteffort.p25.chnlzr.SamplesSourceHandler;
+import org.anhonesteffort.p25.chnlzr.ResumingSamplesSource;
+import org.anhonesteffort.p25.chnlzr.WidebandSource;
 import org.anhonesteffort.p25.metric.P25DcodrMetrics;
 import org.anhonesteffort.p25.model.ChannelId;
 import org.slf4j.Logger;
@@ -33,27 +34,35 @@ class MonitoredChannelCleanupCallback implements FutureCallback<Void> {
 
   private static final Logger log = LoggerFactory.getLogger(MonitoredChannelCleanupCallback.class);
 
-  private final SamplesSourceHandler samplesSource;
-  private final ChannelId            channelId;
+  private final Runnable  closeSource;
+  private final ChannelId channelId;
 
   private AtomicBoolean cleanupComplete = new AtomicBoolean(false);
 
-  public MonitoredChannelCleanupCallback(SamplesSourceHandler samplesSource, ChannelId channelId) {
-    this.samplesSource = samplesSource;
-    this.channelId     = channelId;
+  private MonitoredChannelCleanupCallback(Runnable closeSource, ChannelId channelId) {
+    this.closeSource = closeSource;
+    this.channelId   = channelId;
+  }
+
+  public MonitoredChannelCleanupCallback(ResumingSamplesSource samplesSource, ChannelId channelId) {
+    this(samplesSource::close, channelId);
+  }
+
+  public MonitoredChannelCleanupCallback(WidebandSource.Tap samplesTap, ChannelId channelId) {
+    this(samplesTap::close, channelId);
   }
 
   @Override
   public void onSuccess(Void aVoid) {
     if (cleanupComplete.compareAndSet(false, true)) {
-      samplesSource.close();
+      closeSource.run();
     }
   }
 
   @Override
   public void onFailure(@Nonnull Throwable cause) {
     if (cleanupComplete.compareAndSet(false, true)) {
-      samplesSource.close();
+      closeSource.run();
 
       if (cause instanceof ProtocolErrorException) {
         ProtocolErrorException error = (ProtocolErrorException) cause;
@@ -20,7 +20,6 @@ package org.anhonesteffort.p25.resource;
 import com.codahale.metrics.annotation.Timed;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
 import io.radiowitness.kinesis.producer.KinesisRecordProducer;
 import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
 import org.anhonesteffort.p25.P25Channel;
@@ -28,13 +27,18 @@ import org.anhonesteffort.p25.P25ChannelSpec;
 import org.anhonesteffort.p25.P25Config;
 import org.anhonesteffort.p25.P25DcodrConfig;
 import org.anhonesteffort.p25.chnlzr.ChnlzrController;
+import org.anhonesteffort.p25.chnlzr.ResumingSamplesSource;
 import org.anhonesteffort.p25.chnlzr.SamplesSourceHandler;
+import org.anhonesteffort.p25.chnlzr.WidebandChannelizer;
+import org.anhonesteffort.p25.chnlzr.WidebandSource;
 import org.anhonesteffort.p25.kinesis.KinesisRecordProducerFactory;
 import org.anhonesteffort.p25.metric.P25DcodrMetrics;
 import org.anhonesteffort.p25.model.ChannelId;
 import org.anhonesteffort.p25.model.GroupCaptureRequest;
 import org.anhonesteffort.p25.monitor.ChannelMonitor;
+import org.anhonesteffort.p25.monitor.PartitionedDspPool;
 import org.anhonesteffort.p25.protocol.GroupTrafficChannelCapture;
+import org.anhonesteffort.p25.sample.SamplesQueueTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,10 +50,14 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.Optional;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static org.anhonesteffort.chnlzr.capnp.Proto.ChannelRequest;
@@ -64,23 +72,26 @@ public class TrafficChannelCaptureResource {
   private final Queue<ChannelId> pendingRequests = new ConcurrentLinkedQueue<>();
   private final Object           txnLock         = new Object();
 
-  private final P25DcodrConfig               config;
-  private final ChnlzrController             chnlzr;
-  private final ChannelMonitor               channelMonitor;
-  private final KinesisRecordProducerFactory senderFactory;
-  private final ListeningExecutorService     dspPool;
-
-  public TrafficChannelCaptureResource(P25DcodrConfig               config,
-                                       ChnlzrController             chnlzr,
-                                       ChannelMonitor               channelMonitor,
-                                       KinesisRecordProducerFactory senderFactory,
-                                       ListeningExecutorService     dspPool)
+  private final P25DcodrConfig                config;
+  private final ChnlzrController              chnlzr;
+  private final ChannelMonitor                channelMonitor;
+  private final KinesisRecordProducerFactory  senderFactory;
+  private final PartitionedDspPool            dspPool;
+  private final Optional<WidebandChannelizer> wideband;
+
+  public TrafficChannelCaptureResource(P25DcodrConfig                config,
+                                       ChnlzrController              chnlzr,
+                                       ChannelMonitor                channelMonitor,
+                                       KinesisRecordProducerFactory  senderFactory,
+                                       PartitionedDspPool            dspPool,
+                                       Optional<WidebandChannelizer> wideband)
   {
     this.config         = config;
     this.chnlzr         = chnlzr;
     this.channelMonitor = channelMonitor;
     this.senderFactory  = senderFactory;
     this.dspPool        = dspPool;
+    this.wideband       = wideband;
   }
 
   private ChannelRequest.Reader transform(GroupCaptureRequest request) {
@@ -90,6 +101,20 @@ public class TrafficChannelCaptureResource {
     );
   }
 
+  private ListenableFuture<Void> submitOrPreempt(GroupCaptureRequest request, P25Channel channel) {
+    try {
+
+      return dspPool.submit(request.getChannelId(), channel);
+
+    } catch (RejectedExecutionException e) {
+      Optional<Future<?>> victim = channelMonitor.takePreemptable(request);
+      if (!victim.isPresent()) {
+        throw e;
+      }
+      return dspPool.submitPreempting(request.getChannelId(), channel, victim.get());
+    }
+  }
+
   @POST
   @Timed
   @Path("/group")
@@ -100,6 +125,10 @@ public class TrafficChannelCaptureResource {
       {
         response.resume(Response.status(409).build());
         return;
+      } else if (!dspPool.hasCapacity(request.getChannelId().getType()) && !channelMonitor.canPreempt(request)) {
+        log.warn(request.getChannelId() + " no dsp capacity left");
+        response.resume(Response.status(503).header(HttpHeaders.RETRY_AFTER, dspPool.getRetryAfterSeconds()).build());
+        return;
       } else {
         pendingRequests.add(request.getChannelId());
         P25DcodrMetrics.getInstance().groupCaptureRequest();
@@ -107,21 +136,38 @@ public class TrafficChannelCaptureResource {
       }
     }
 
+    if (wideband.isPresent()) {
+      ListenableFuture<WidebandSource.Tap> tapFuture = wideband.get().tapFor(
+          request.getFrequency(), Optional.ofNullable(request.getPlan())
+      );
+
+      Futures.addCallback(tapFuture, new WidebandTapCallback(request, response));
+
+      response.setTimeout(config.getChannelRequestTimeoutMs(), TimeUnit.MILLISECONDS);
+      response.setTimeoutHandler(asyncResponse -> tapFuture.cancel(true));
+      return;
+    }
+
     ChannelRequest.Reader                  channelRequest = transform(request);
-    ListenableFuture<SamplesSourceHandler> sourceFuture   = chnlzr.createSourceFor(channelRequest);
+    ListenableFuture<SamplesSourceHandler> sourceFuture   = chnlzr.createSourceFor(channelRequest, true);
 
-    Futures.addCallback(sourceFuture, new SamplesSourceCallback(request, response));
+    Futures.addCallback(sourceFuture, new SamplesSourceCallback(request, channelRequest, response));
 
     response.setTimeout(config.getChannelRequestTimeoutMs(), TimeUnit.MILLISECONDS);
     response.setTimeoutHandler(asyncResponse -> sourceFuture.cancel(true));
   }
 
-  private class SamplesSourceCallback extends AbstractSamplesSourceCallback {
-    private final GroupCaptureRequest request;
+  private class SamplesSourceCallback extends AbstractSamplesSourceCallback<SamplesSourceHandler> {
+    private final GroupCaptureRequest   request;
+    private final ChannelRequest.Reader channelRequest;
 
-    public SamplesSourceCallback(GroupCaptureRequest request, AsyncResponse response) {
+    public SamplesSourceCallback(GroupCaptureRequest   request,
+                                 ChannelRequest.Reader channelRequest,
+                                 AsyncResponse         response)
+    {
       super(response, request.getChannelId());
-      this.request = request;
+      this.request        = request;
+      this.channelRequest = channelRequest;
     }
 
     @Override
@@ -131,13 +177,26 @@ public class TrafficChannelCaptureResource {
 
     @Override
     public void onSuccess(SamplesSourceHandler samplesSource) {
-      P25ChannelSpec             channelSpec   = new P25ChannelSpec(request.getFrequency());
-      P25Channel                 channel       = new P25Channel(config.getP25Config(), channelSpec, config.getSamplesQueueSize());
-      KinesisRecordProducer      sender        = senderFactory.create(request.getChannelId());
-      Double                     srcLatitude   = samplesSource.getCapabilities().getLatitude();
-      Double                     srcLongitude  = samplesSource.getCapabilities().getLongitude();
-      GroupTrafficChannelCapture capture       = new GroupTrafficChannelCapture(sender, request.getChannelId(), srcLatitude, srcLongitude);
-      ListenableFuture<Void>     channelFuture = dspPool.submit(channel);
+      P25ChannelSpec         channelSpec = new P25ChannelSpec(request.getFrequency());
+      P25Channel             channel     = new P25Channel(config.getP25Config(), channelSpec, config.getSamplesQueueSize());
+      ListenableFuture<Void> channelFuture;
+
+      try {
+
+        channelFuture = submitOrPreempt(request, channel);
+
+      } catch (RejectedExecutionException e) {
+        log.warn(channelId + " " + e.getMessage());
+        pendingRequests.remove(channelId);
+        samplesSource.close();
+        response.resume(Response.status(503).header(HttpHeaders.RETRY_AFTER, dspPool.getRetryAfterSeconds()).build());
+        return;
+      }
+
+      KinesisRecordProducer      sender       = senderFactory.create(request.getChannelId());
+      Double                     srcLatitude  = samplesSource.getCapabilities().getLatitude();
+      Double                     srcLongitude = samplesSource.getCapabilities().getLongitude();
+      GroupTrafficChannelCapture capture      = new GroupTrafficChannelCapture(sender, request.getChannelId(), srcLatitude, srcLongitude);
 
       if (!channelMonitor.monitor(request, channelFuture, capture)) {
         pendingRequests.remove(channelId);
@@ -149,12 +208,13 @@ public class TrafficChannelCaptureResource {
         log.info(channelId + " now capturing");
         pendingRequests.remove(channelId);
         channel.addSink(capture);
-        samplesSource.setSink(channel);
+        ResumingSamplesSource resumingSource = new ResumingSamplesSource(config, chnlzr, channelRequest, samplesSource);
+        resumingSource.setSink(channel, new SamplesQueueTracker(config, channelId));
         response.resume(Response.ok().build());
 
-        MonitoredChannelCleanupCallback callback = new MonitoredChannelCleanupCallback(samplesSource, channelId);
+        MonitoredChannelCleanupCallback callback = new MonitoredChannelCleanupCallback(resumingSource, channelId);
         Futures.addCallback(channelFuture, callback);
-        Futures.addCallback(samplesSource.getCloseFuture(), callback);
+        Futures.addCallback(resumingSource.getCloseFuture(), callback);
       }
     }
 
@@ -165,4 +225,71 @@ public class TrafficChannelCaptureResource {
     }
   }
 
+  private class WidebandTapCallback extends AbstractSamplesSourceCallback<WidebandSource.Tap> {
+    private final GroupCaptureRequest request;
+
+    public WidebandTapCallback(GroupCaptureRequest request, AsyncResponse response) {
+      super(response, request.getChannelId());
+      this.request = request;
+    }
+
+    @Override
+    protected Logger log() {
+      return log;
+    }
+
+    @Override
+    public void onSuccess(WidebandSource.Tap samplesTap) {
+      P25ChannelSpec         channelSpec = new P25ChannelSpec(request.getFrequency());
+      P25Channel             channel     = new P25Channel(config.getP25Config(), channelSpec, config.getSamplesQueueSize());
+      ListenableFuture<Void> channelFuture;
+
+      try {
+
+        channelFuture = submitOrPreempt(request, channel);
+
+      } catch (RejectedExecutionException e) {
+        log.warn(channelId + " " + e.getMessage());
+        pendingRequests.remove(channelId);
+        samplesTap.close();
+        response.resume(Response.status(503).header(HttpHeaders.RETRY_AFTER, dspPool.getRetryAfterSeconds()).build());
+        return;
+      }
+
+      KinesisRecordProducer      sender       = senderFactory.create(request.getChannelId());
+      Double                     srcLatitude  = samplesTap.getCapabilities().getLatitude();
+      Double                     srcLongitude = samplesTap.getCapabilities().getLongitude();
+      GroupTrafficChannelCapture capture      = new GroupTrafficChannelCapture(sender, request.getChannelId(), srcLatitude, srcLongitude);
+
+      if (!channelMonitor.monitor(request, channelFuture, capture)) {
+        pendingRequests.remove(channelId);
+        channelFuture.cancel(true);
+        samplesTap.close();
+        response.resume(Response.status(409).build());
+      } else {
+        P25DcodrMetrics.getInstance().groupCaptureSuccess();
+        log.info(channelId + " now capturing from wideband");
+        pendingRequests.remove(channelId);
+        channel.addSink(capture);
+        samplesTap.setSink(channel, new SamplesQueueTracker(config, channelId));
+        response.resume(Response.ok().build());
+
+        MonitoredChannelCleanupCallback callback = new MonitoredChannelCleanupCallback(samplesTap, channelId);
+        Futures.addCallback(channelFuture, callback);
+        Futures.addCallback(samplesTap.getCloseFuture(), callback);
+      }
+    }
+
+    @Override
+    public void onFailure(@Nonnull Throwable throwable) {
+      pendingRequests.remove(channelId);
+      if (throwable instanceof RejectedExecutionException) {
+        log.warn(channelId + " wideband " + throwable.getMessage());
+        response.resume(Response.status(503).header(HttpHeaders.RETRY_AFTER, dspPool.getRetryAfterSeconds()).build());
+      } else {
+        super.onFailure(throwable);
+      }
+    }
+  }
+
 }
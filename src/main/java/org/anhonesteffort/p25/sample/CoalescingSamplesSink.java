@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class CoalescingSamplesSink implements SamplesBlockSink {
+
+  /*
+  notice:
+    not thread safe, consume() and the flush deadline must both run
+    on the single thread behind the scheduler, for SamplesSourceHandler
+    that is the netty event loop of the chnlzr connection.
+   */
+
+  private static final int BLOCK_POOL_SIZE = 4;
+
+  private final SamplesBlockPool         pool = new SamplesBlockPool(BLOCK_POOL_SIZE);
+  private final SamplesBlockSink         sink;
+  private final ScheduledExecutorService scheduler;
+  private final int                      blockSize;
+  private final long                     maxDelayMs;
+
+  private Optional<FloatSamplesBlock>  pending  = Optional.empty();
+  private Optional<ScheduledFuture<?>> deadline = Optional.empty();
+
+  public CoalescingSamplesSink(SamplesBlockSink         sink,
+                               ScheduledExecutorService scheduler,
+                               int                      blockSize,
+                               long                     maxDelayMs)
+  {
+    this.sink       = sink;
+    this.scheduler  = scheduler;
+    this.blockSize  = blockSize;
+    this.maxDelayMs = maxDelayMs;
+  }
+
+  public void flush() {
+    if (deadline.isPresent()) {
+      deadline.get().cancel(false);
+      deadline = Optional.empty();
+    }
+    if (pending.isPresent()) {
+      FloatSamplesBlock block = pending.get();
+      pending = Optional.empty();
+      sink.consume(block);
+    }
+  }
+
+  private void onDeadline(FloatSamplesBlock block) {
+    if (pending.isPresent() && pending.get() == block) {
+      deadline = Optional.empty();
+      flush();
+    }
+  }
+
+  @Override
+  public void onSourceStateChange(long sampleRate, double frequency) {
+    flush();
+    sink.onSourceStateChange(sampleRate, frequency);
+  }
+
+  @Override
+  public void consume(SamplesBlock block) {
+    if (block.getSampleCount() >= blockSize) {
+      flush();
+      sink.consume(block);
+      return;
+    }
+
+    if (pending.isPresent() &&
+        (pending.get().getSampleCount() + block.getSampleCount()) > pending.get().getCapacity())
+    {
+      flush();
+    }
+
+    if (!pending.isPresent()) {
+      FloatSamplesBlock next = pool.acquire(blockSize);
+      pending  = Optional.of(next);
+      deadline = Optional.of(scheduler.schedule(() -> onDeadline(next), maxDelayMs, TimeUnit.MILLISECONDS));
+    }
+
+    pending.get().append(block);
+    block.release();
+
+    if (pending.get().getSampleCount() >= blockSize) {
+      flush();
+    }
+  }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import io.dropwizard.lifecycle.Managed;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class CooperativeScheduler implements Managed {
+
+  /*
+  notice:
+    each channel gets a mailbox and a mailbox is only ever run by one
+    worker at a time, so work posted to it is handled in order without
+    locks. a worker handles at most budget items from a mailbox before
+    putting it back on the run queue so busy channels can't starve the
+    rest. only samples hand-off and conversion run here, P25Channel
+    still blocks a dspPool thread per channel for its decode loop.
+   */
+
+  private static final long STOP_WAIT_MS = 1000l;
+
+  private static final Logger log = LoggerFactory.getLogger(CooperativeScheduler.class);
+
+  private final BlockingQueue<Mailbox<?>> runQueue = new LinkedBlockingQueue<>();
+  private final List<Thread>              workers  = new ArrayList<>();
+  private final AtomicBoolean             started  = new AtomicBoolean(false);
+  private final AtomicBoolean             running  = new AtomicBoolean(true);
+  private final int                       budget;
+
+  public CooperativeScheduler(int workerCount, int budget) {
+    this.budget = budget;
+
+    for (int i = 0; i < workerCount; i++) {
+      Thread worker = new Thread(this::work, "dsp-worker-" + i);
+      worker.setDaemon(true);
+      workers.add(worker);
+    }
+
+    P25DcodrMetrics.getInstance().registerDspRunQueue(runQueue::size);
+  }
+
+  public int getWorkerCount() {
+    return workers.size();
+  }
+
+  public <T> Mailbox<T> open(Consumer<T> handler) {
+    return new Mailbox<>(handler);
+  }
+
+  private void work() {
+    while (running.get()) {
+      try {
+
+        runQueue.take().run();
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Throwable e) {
+        log.error("dsp worker caught unexpected error", e);
+      }
+    }
+  }
+
+  @Override
+  public void start() {
+    if (running.get() && started.compareAndSet(false, true)) {
+      workers.forEach(Thread::start);
+    }
+  }
+
+  public void shutdown() {
+    if (running.compareAndSet(true, false)) {
+      workers.forEach(Thread::interrupt);
+    }
+  }
+
+  @Override
+  public void stop() throws InterruptedException {
+    shutdown();
+    if (started.get()) {
+      for (Thread worker : workers) {
+        worker.join(STOP_WAIT_MS);
+      }
+    }
+  }
+
+  public class Mailbox<T> {
+    private final Queue<T>      pending   = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth     = new AtomicInteger(0);
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final Consumer<T>   handler;
+
+    private Mailbox(Consumer<T> handler) {
+      this.handler = handler;
+    }
+
+    public int getDepth() {
+      return depth.get();
+    }
+
+    public void post(T item) {
+      depth.incrementAndGet();
+      pending.offer(item);
+      if (scheduled.compareAndSet(false, true)) {
+        runQueue.offer(this);
+      }
+    }
+
+    private void run() {
+      for (int handled = 0; handled < budget; handled++) {
+        T item = pending.poll();
+        if (item == null) {
+          break;
+        }
+        depth.decrementAndGet();
+        handler.accept(item);
+      }
+
+      if (!pending.isEmpty()) {
+        runQueue.offer(this);
+        return;
+      }
+
+      scheduled.set(false);
+      if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+        runQueue.offer(this);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+public class FloatSamplesBlock implements SamplesBlock {
+
+  private static final float INT16_SCALE = 1f / 32768f;
+
+  private final SamplesBlockPool pool;
+  private final float[]          samples;
+  private       short[]          compact     = new short[0];
+  private       int              sampleCount = 0;
+
+  protected FloatSamplesBlock(SamplesBlockPool pool, int capacity) {
+    this.pool = pool;
+    samples   = new float[capacity * 2];
+  }
+
+  protected int getCapacity() {
+    return samples.length / 2;
+  }
+
+  protected void load(FloatBuffer interleaved) {
+    sampleCount = interleaved.remaining() / 2;
+    interleaved.get(samples, 0, sampleCount * 2);
+  }
+
+  protected void load(ShortBuffer interleaved) {
+    sampleCount = interleaved.remaining() / 2;
+    if (compact.length < samples.length) {
+      compact = new short[samples.length];
+    }
+
+    interleaved.get(compact, 0, sampleCount * 2);
+    for (int i = 0; i < sampleCount * 2; i++) {
+      samples[i] = compact[i] * INT16_SCALE;
+    }
+  }
+
+  protected void append(SamplesBlock block) {
+    block.copyTo(samples, sampleCount * 2);
+    sampleCount += block.getSampleCount();
+  }
+
+  protected void clear() {
+    sampleCount = 0;
+  }
+
+  public float[] getArray() {
+    return samples;
+  }
+
+  @Override
+  public int getSampleCount() {
+    return sampleCount;
+  }
+
+  @Override
+  public float getInPhase(int index) {
+    return samples[index * 2];
+  }
+
+  @Override
+  public float getQuadrature(int index) {
+    return samples[(index * 2) + 1];
+  }
+
+  @Override
+  public void copyTo(float[] destination, int offset) {
+    System.arraycopy(samples, 0, destination, offset, sampleCount * 2);
+  }
+
+  @Override
+  public void release() {
+    pool.recycle(this);
+  }
+
+}
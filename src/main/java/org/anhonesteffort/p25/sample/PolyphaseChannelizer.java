@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class PolyphaseChannelizer implements SamplesBlockSink {
+
+  /*
+  notice:
+    extracts narrow channels from one wideband stream. each tap mixes
+    its channel down to baseband with a recursive phasor, renormalized
+    once per output so no sin/cos is computed per sample, then feeds a
+    polyphase decimator of real subfilters, one per input phase, which
+    is only evaluated once every decimation-th input. grants sit on a
+    raster that doesn't line up with the bins of an fft bank at this
+    decimation and only a few channels of a site are granted at a time,
+    so taps are kept per channel rather than running an fft bank. runs
+    on the dsp thread of its wideband source, see SamplesBlockQueue.
+   */
+
+  private static final int BLOCK_POOL_SIZE = 4;
+
+  private final List<Tap> taps = new CopyOnWriteArrayList<>();
+  private final long      outputRate;
+  private final double    passband;
+  private final int       tapsPerPhase;
+
+  private volatile long   sampleRate = -1l;
+  private volatile double frequency  = 0d;
+
+  public PolyphaseChannelizer(long outputRate, double passband, int tapsPerPhase) {
+    this.outputRate   = outputRate;
+    this.passband     = passband;
+    this.tapsPerPhase = tapsPerPhase;
+  }
+
+  public int getTapCount() {
+    return taps.size();
+  }
+
+  public static int decimationFor(long sampleRate, long outputRate) {
+    return (int) Math.max(1l, Math.round((double) sampleRate / (double) outputRate));
+  }
+
+  protected static float[] lowpass(int length, double cutoff) {
+    float[] taps   = new float[length];
+    double  middle = (length - 1) / 2d;
+    double  sum    = 0d;
+
+    for (int i = 0; i < length; i++) {
+      double t      = i - middle;
+      double sinc   = (t == 0d) ? 2d * cutoff : Math.sin(2d * Math.PI * cutoff * t) / (Math.PI * t);
+      double window = 0.54d - (0.46d * Math.cos((2d * Math.PI * i) / Math.max(1, length - 1)));
+
+      taps[i] = (float) (sinc * window);
+      sum    += taps[i];
+    }
+
+    for (int i = 0; i < length; i++) {
+      taps[i] /= sum;
+    }
+
+    return taps;
+  }
+
+  public Tap addTap(double frequency) {
+    Tap tap = new Tap(frequency);
+    taps.add(tap);
+    tap.configure(sampleRate, this.frequency);
+    return tap;
+  }
+
+  @Override
+  public void onSourceStateChange(long sampleRate, double frequency) {
+    this.sampleRate = sampleRate;
+    this.frequency  = frequency;
+    taps.forEach(tap -> tap.configure(sampleRate, frequency));
+  }
+
+  @Override
+  public void consume(SamplesBlock block) {
+    taps.forEach(tap -> tap.consume(block));
+    block.release();
+  }
+
+  public class Tap {
+    private final SamplesBlockPool pool = new SamplesBlockPool(BLOCK_POOL_SIZE);
+    private final double           frequency;
+
+    private Optional<SamplesBlockSink> sink = Optional.empty();
+
+    private long      rate;
+    private int       decimation;
+    private float[][] subfilters;
+    private float[][] historyI;
+    private float[][] historyQ;
+    private float[]   output     = new float[0];
+    private int       position   = 0;
+    private int       phase      = 0;
+    private double    stepI      = 1d;
+    private double    stepQ      = 0d;
+    private double    phasorI    = 1d;
+    private double    phasorQ    = 0d;
+    private boolean   configured = false;
+
+    private Tap(double frequency) {
+      this.frequency = frequency;
+    }
+
+    public double getFrequency() {
+      return frequency;
+    }
+
+    public synchronized void setSink(SamplesBlockSink sink) {
+      this.sink = Optional.of(sink);
+      if (configured) {
+        sink.onSourceStateChange(rate, frequency);
+      }
+    }
+
+    private synchronized void configure(long sampleRate, double centerFrequency) {
+      if (sampleRate <= 0l) {
+        return;
+      }
+
+      decimation = decimationFor(sampleRate, outputRate);
+      rate       = Math.round((double) sampleRate / decimation);
+
+      double  omega     = (2d * Math.PI * (frequency - centerFrequency)) / sampleRate;
+      float[] prototype = lowpass(decimation * tapsPerPhase, passband / sampleRate);
+
+      subfilters = new float[decimation][tapsPerPhase];
+      historyI   = new float[decimation][tapsPerPhase * 2];
+      historyQ   = new float[decimation][tapsPerPhase * 2];
+      position   = 0;
+      phase      = 0;
+      stepI      = Math.cos(omega);
+      stepQ      = Math.sin(omega);
+      phasorI    = 1d;
+      phasorQ    = 0d;
+
+      for (int branch = 0; branch < decimation; branch++) {
+        for (int t = 0; t < tapsPerPhase; t++) {
+          subfilters[branch][tapsPerPhase - 1 - t] = prototype[(t * decimation) + branch];
+        }
+      }
+
+      configured = true;
+      if (sink.isPresent()) {
+        sink.get().onSourceStateChange(rate, frequency);
+      }
+    }
+
+    private synchronized void consume(SamplesBlock block) {
+      if (!configured || !sink.isPresent()) {
+        return;
+      }
+
+      int outputs = 0;
+
+      if (output.length < ((block.getSampleCount() / decimation) + 1) * 2) {
+        output = new float[((block.getSampleCount() / decimation) + 1) * 2];
+      }
+
+      for (int n = 0; n < block.getSampleCount(); n++) {
+        float  xI     = block.getInPhase(n);
+        float  xQ     = block.getQuadrature(n);
+        int    branch = decimation - 1 - phase;
+        double nextI  = (phasorI * stepI) - (phasorQ * stepQ);
+
+        historyI[branch][position]                = (float) ((xI * phasorI) + (xQ * phasorQ));
+        historyQ[branch][position]                = (float) ((xQ * phasorI) - (xI * phasorQ));
+        historyI[branch][position + tapsPerPhase] = historyI[branch][position];
+        historyQ[branch][position + tapsPerPhase] = historyQ[branch][position];
+
+        phasorQ = (phasorQ * stepI) + (phasorI * stepQ);
+        phasorI = nextI;
+
+        if (++phase < decimation) {
+          continue;
+        }
+
+        float accI = 0f;
+        float accQ = 0f;
+
+        for (branch = 0; branch < decimation; branch++) {
+          float[] coeffs = subfilters[branch];
+          float[] histI  = historyI[branch];
+          float[] histQ  = historyQ[branch];
+
+          for (int t = 0, h = position + 1; t < tapsPerPhase; t++, h++) {
+            accI += coeffs[t] * histI[h];
+            accQ += coeffs[t] * histQ[h];
+          }
+        }
+
+        output[outputs * 2]       = accI;
+        output[(outputs * 2) + 1] = accQ;
+        outputs++;
+
+        double gain = 1.5d - (0.5d * ((phasorI * phasorI) + (phasorQ * phasorQ)));
+        phasorI    *= gain;
+        phasorQ    *= gain;
+        phase       = 0;
+        position    = (position + 1) % tapsPerPhase;
+      }
+
+      if (outputs > 0) {
+        sink.get().consume(pool.acquire(FloatBuffer.wrap(output, 0, outputs * 2)));
+      }
+    }
+
+    public void close() {
+      taps.remove(this);
+    }
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import io.netty.util.ReferenceCounted;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RetainedSamplesBlock implements SamplesBlock {
+
+  /*
+  notice:
+    release() is idempotent so the handler can always release a block
+    whose sink threw, whether or not the sink got as far as releasing it.
+   */
+
+  private final AtomicBoolean    released = new AtomicBoolean(false);
+  private final ReferenceCounted owner;
+  private final FloatBuffer      samples;
+
+  public RetainedSamplesBlock(ReferenceCounted owner, FloatBuffer interleaved) {
+    this.owner = owner;
+    samples    = interleaved.slice();
+  }
+
+  @Override
+  public int getSampleCount() {
+    return samples.limit() / 2;
+  }
+
+  @Override
+  public float getInPhase(int index) {
+    return samples.get(index * 2);
+  }
+
+  @Override
+  public float getQuadrature(int index) {
+    return samples.get((index * 2) + 1);
+  }
+
+  @Override
+  public void copyTo(float[] destination, int offset) {
+    samples.duplicate().get(destination, offset, samples.limit());
+  }
+
+  @Override
+  public void release() {
+    if (released.compareAndSet(false, true)) {
+      owner.release();
+    }
+  }
+
+}
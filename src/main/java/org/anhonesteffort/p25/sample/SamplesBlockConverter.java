@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import org.anhonesteffort.dsp.ComplexNumber;
+import org.anhonesteffort.dsp.DynamicSink;
+import org.anhonesteffort.dsp.sample.Samples;
+
+import java.util.Optional;
+
+public class SamplesBlockConverter implements SamplesBlockSink {
+
+  /*
+  notice:
+    P25Channel only accepts Samples so blocks headed there are
+    converted here, the block is recycled as soon as it has been
+    copied out. this still allocates one ComplexNumber per sample,
+    pooled blocks only keep that work off of the event loop when a
+    scheduler is configured. removing it needs a primitive consume()
+    on P25Channel in p25-common, until then only sinks implementing
+    SamplesBlockSink directly avoid the allocations.
+   */
+
+  private final DynamicSink<Samples>           sink;
+  private final Optional<SamplesQueueTracker> queue;
+
+  public SamplesBlockConverter(DynamicSink<Samples> sink) {
+    this.sink  = sink;
+    this.queue = Optional.empty();
+  }
+
+  public SamplesBlockConverter(DynamicSink<Samples> sink, SamplesQueueTracker queue) {
+    this.sink  = sink;
+    this.queue = Optional.of(queue);
+  }
+
+  public DynamicSink<Samples> getSink() {
+    return sink;
+  }
+
+  @Override
+  public void onSourceStateChange(long sampleRate, double frequency) {
+    sink.onSourceStateChange(sampleRate, frequency);
+  }
+
+  @Override
+  public void consume(SamplesBlock block) {
+    if (queue.isPresent() && !queue.get().tryEnqueue()) {
+      block.release();
+      return;
+    }
+
+    ComplexNumber[] samples = new ComplexNumber[block.getSampleCount()];
+
+    for (int i = 0; i < samples.length; i++) {
+      samples[i] = new ComplexNumber(block.getInPhase(i), block.getQuadrature(i));
+    }
+
+    block.release();
+
+    if (queue.isPresent()) {
+      sink.consume(new TrackedSamples(samples, queue.get()));
+    } else {
+      sink.consume(new Samples(samples));
+    }
+  }
+
+}
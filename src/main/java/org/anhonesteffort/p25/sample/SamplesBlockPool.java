@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class SamplesBlockPool {
+
+  private final BlockingQueue<FloatSamplesBlock> free;
+
+  public SamplesBlockPool(int maxPooled) {
+    free = new ArrayBlockingQueue<>(maxPooled);
+  }
+
+  public int getPooledCount() {
+    return free.size();
+  }
+
+  public FloatSamplesBlock acquire(int capacity) {
+    Optional<FloatSamplesBlock> block = Optional.ofNullable(free.poll());
+
+    if (block.isPresent() && block.get().getCapacity() >= capacity) {
+      block.get().clear();
+      return block.get();
+    } else {
+      return new FloatSamplesBlock(this, capacity);
+    }
+  }
+
+  public FloatSamplesBlock acquire(FloatBuffer interleaved) {
+    FloatSamplesBlock block = acquire(interleaved.remaining() / 2);
+    block.load(interleaved);
+    return block;
+  }
+
+  public FloatSamplesBlock acquire(ShortBuffer interleaved) {
+    FloatSamplesBlock block = acquire(interleaved.remaining() / 2);
+    block.load(interleaved);
+    return block;
+  }
+
+  protected void recycle(FloatSamplesBlock block) {
+    free.offer(block);
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class SamplesBlockQueue implements SamplesBlockSink, Callable<Void> {
+
+  /*
+  notice:
+    hands blocks from the event loop to a dsp pool thread so work done
+    by the sink is admitted and charged like any other channel. depth is
+    counted against the queue tracker so a slow sink pauses reading at
+    its high water mark and drops past its capacity, the tracker is
+    swapped by setQueue() when the source resumes. blocks still queued
+    once call() returns or close() is called are released, not consumed.
+   */
+
+  private final BlockingQueue<Runnable> work    = new LinkedBlockingQueue<>();
+  private final SamplesBlockSink        sink;
+
+  private volatile Optional<SamplesQueueTracker> queue   = Optional.empty();
+  private volatile boolean                       running = true;
+
+  public SamplesBlockQueue(SamplesBlockSink sink) {
+    this.sink = sink;
+  }
+
+  public void setQueue(SamplesQueueTracker queue) {
+    this.queue = Optional.of(queue);
+  }
+
+  public int getDepth() {
+    return work.size();
+  }
+
+  private void drain() {
+    Runnable next;
+    while ((next = work.poll()) != null) {
+      next.run();
+    }
+  }
+
+  private void post(Runnable next) {
+    work.add(next);
+    if (!running) {
+      drain();
+    }
+  }
+
+  @Override
+  public void onSourceStateChange(long sampleRate, double frequency) {
+    post(() -> {
+      if (running) {
+        sink.onSourceStateChange(sampleRate, frequency);
+      }
+    });
+  }
+
+  @Override
+  public void consume(SamplesBlock block) {
+    Optional<SamplesQueueTracker> queue = this.queue;
+
+    if (!running || (queue.isPresent() && !queue.get().tryEnqueue())) {
+      block.release();
+      return;
+    }
+
+    post(() -> {
+      if (queue.isPresent()) {
+        queue.get().onDequeued();
+      }
+
+      if (running) {
+        sink.consume(block);
+      } else {
+        block.release();
+      }
+    });
+  }
+
+  @Override
+  public Void call() throws Exception {
+    try {
+
+      while (running) {
+        work.take().run();
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      close();
+    }
+
+    return null;
+  }
+
+  public void close() {
+    running = false;
+    drain();
+    work.add(() -> { });
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SamplesMailbox {
+
+  /*
+  notice:
+    one CooperativeScheduler mailbox per samples source, kept across
+    setSink() so each sink handed out by to() shares it and blocks from
+    the previous sink still reach that sink in order. nothing is dropped
+    here, crossing highWaterMark asks the source to stop reading until
+    the workers drain the mailbox down to lowWaterMark. a worker can
+    drain everything between the depth check and the pause, so the
+    depth is checked again once paused.
+   */
+
+  private final AtomicBoolean                          paused = new AtomicBoolean(false);
+  private final CooperativeScheduler.Mailbox<Runnable> mailbox;
+  private final int                                    highWaterMark;
+  private final int                                    lowWaterMark;
+
+  private volatile Optional<FlowControl> flowControl = Optional.empty();
+  private volatile long                  pausedAtNs  = 0l;
+
+  public SamplesMailbox(CooperativeScheduler scheduler, int highWaterMark, int lowWaterMark) {
+    if (lowWaterMark >= highWaterMark) {
+      throw new IllegalArgumentException(
+          "require lowWaterMark < highWaterMark, have " + lowWaterMark + ", " + highWaterMark
+      );
+    }
+
+    this.highWaterMark = highWaterMark;
+    this.lowWaterMark  = lowWaterMark;
+    mailbox            = scheduler.open(Runnable::run);
+  }
+
+  public interface FlowControl {
+    public void onFlowControlChange(SamplesMailbox mailbox);
+  }
+
+  public void setFlowControl(FlowControl flowControl) {
+    this.flowControl = Optional.of(flowControl);
+  }
+
+  public int getDepth() {
+    return mailbox.getDepth();
+  }
+
+  public boolean isPaused() {
+    return paused.get();
+  }
+
+  private void notifyFlowControl() {
+    Optional<FlowControl> control = flowControl;
+    if (control.isPresent()) {
+      control.get().onFlowControlChange(this);
+    }
+  }
+
+  private void post(Runnable work) {
+    mailbox.post(() -> {
+      try {
+        work.run();
+      } finally {
+        onHandled();
+      }
+    });
+
+    if (mailbox.getDepth() >= highWaterMark && paused.compareAndSet(false, true)) {
+      pausedAtNs = System.nanoTime();
+      if (mailbox.getDepth() > lowWaterMark || !paused.compareAndSet(true, false)) {
+        notifyFlowControl();
+      }
+    }
+  }
+
+  private void onHandled() {
+    if (mailbox.getDepth() <= lowWaterMark && paused.compareAndSet(true, false)) {
+      P25DcodrMetrics.getInstance().dspMailboxStalled(System.nanoTime() - pausedAtNs);
+      notifyFlowControl();
+    }
+  }
+
+  public SamplesBlockSink to(SamplesBlockSink sink) {
+    return new SamplesBlockSink() {
+      @Override
+      public void onSourceStateChange(long sampleRate, double frequency) {
+        post(() -> sink.onSourceStateChange(sampleRate, frequency));
+      }
+
+      @Override
+      public void consume(SamplesBlock block) {
+        post(() -> sink.consume(block));
+      }
+    };
+  }
+
+}
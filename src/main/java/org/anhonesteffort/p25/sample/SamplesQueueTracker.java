@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import org.anhonesteffort.p25.P25DcodrConfig;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.ChannelId;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SamplesQueueTracker {
+
+  /*
+  notice:
+    depth only falls when P25Channel reads each TrackedSamples, which
+    we don't control, so an element it drops leaks depth. a queue left
+    paused for stallTimeoutMs is assumed to have leaked and is resynced
+    to empty by resumeIfStalled(), the source calls it while paused.
+   */
+
+  private final AtomicInteger depth  = new AtomicInteger(0);
+  private final AtomicBoolean paused = new AtomicBoolean(false);
+
+  private final ChannelId channelId;
+  private final int       capacity;
+  private final int       highWaterMark;
+  private final int       lowWaterMark;
+  private final boolean   flowControlEnabled;
+  private final long      stallTimeoutMs;
+
+  private volatile Optional<FlowControl> flowControl = Optional.empty();
+  private volatile long                  pausedAtNs  = 0l;
+  private          int                   reported    = 0;
+  private          boolean               closed      = false;
+
+  public SamplesQueueTracker(P25DcodrConfig config, ChannelId channelId) {
+    this(
+        channelId, config.getSamplesQueueSize(), config.getSamplesHighWaterMark(),
+        config.getSamplesLowWaterMark(), config.getSamplesFlowControl(), config.getSamplesStallTimeoutMs()
+    );
+  }
+
+  public SamplesQueueTracker(ChannelId channelId,
+                             int       capacity,
+                             int       highWaterMark,
+                             int       lowWaterMark,
+                             boolean   flowControlEnabled)
+  {
+    this(channelId, capacity, highWaterMark, lowWaterMark, flowControlEnabled, 0l);
+  }
+
+  public SamplesQueueTracker(ChannelId channelId,
+                             int       capacity,
+                             int       highWaterMark,
+                             int       lowWaterMark,
+                             boolean   flowControlEnabled,
+                             long      stallTimeoutMs)
+  {
+    if (highWaterMark > capacity || lowWaterMark >= highWaterMark) {
+      throw new IllegalArgumentException(
+          "require lowWaterMark < highWaterMark <= capacity, have " +
+          lowWaterMark + ", " + highWaterMark + ", " + capacity
+      );
+    }
+
+    this.channelId          = channelId;
+    this.capacity           = capacity;
+    this.highWaterMark      = highWaterMark;
+    this.lowWaterMark       = lowWaterMark;
+    this.flowControlEnabled = flowControlEnabled;
+    this.stallTimeoutMs     = stallTimeoutMs;
+  }
+
+  public SamplesQueueTracker renew() {
+    return new SamplesQueueTracker(
+        channelId, capacity, highWaterMark, lowWaterMark, flowControlEnabled, stallTimeoutMs
+    );
+  }
+
+  public interface FlowControl {
+    public void onFlowControlChange(SamplesQueueTracker queue);
+  }
+
+  public void setFlowControl(FlowControl flowControl) {
+    this.flowControl = Optional.of(flowControl);
+  }
+
+  public ChannelId getChannelId() {
+    return channelId;
+  }
+
+  public int getDepth() {
+    return depth.get();
+  }
+
+  public boolean isPaused() {
+    return paused.get();
+  }
+
+  public long getStallTimeoutMs() {
+    return stallTimeoutMs;
+  }
+
+  private void notifyFlowControl() {
+    Optional<FlowControl> control = flowControl;
+    if (control.isPresent()) {
+      control.get().onFlowControlChange(this);
+    }
+  }
+
+  private synchronized void report(int count) {
+    if (!closed) {
+      reported += count;
+      P25DcodrMetrics.getInstance().samplesQueued(channelId.getType(), count);
+    }
+  }
+
+  protected boolean tryEnqueue() {
+    int queued = depth.incrementAndGet();
+
+    if (queued > capacity) {
+      depth.decrementAndGet();
+      P25DcodrMetrics.getInstance().samplesQueueOverflow(channelId.getType());
+      return false;
+    }
+
+    report(1);
+    if (flowControlEnabled && queued >= highWaterMark && paused.compareAndSet(false, true)) {
+      pausedAtNs = System.nanoTime();
+      if (depth.get() > lowWaterMark || !paused.compareAndSet(true, false)) {
+        notifyFlowControl();
+      }
+    }
+
+    return true;
+  }
+
+  private void resume() {
+    if (paused.compareAndSet(true, false)) {
+      P25DcodrMetrics.getInstance().samplesQueueStalled(channelId.getType(), System.nanoTime() - pausedAtNs);
+      notifyFlowControl();
+    }
+  }
+
+  protected void onDequeued() {
+    int previous = depth.getAndUpdate(queued -> Math.max(0, queued - 1));
+    if (previous > 0) {
+      report(-1);
+    }
+    if (previous - 1 <= lowWaterMark) {
+      resume();
+    }
+  }
+
+  public boolean resumeIfStalled() {
+    if (stallTimeoutMs <= 0l || !paused.get() ||
+        (System.nanoTime() - pausedAtNs) < TimeUnit.MILLISECONDS.toNanos(stallTimeoutMs))
+    {
+      return false;
+    }
+
+    report(-depth.getAndSet(0));
+    P25DcodrMetrics.getInstance().samplesQueueResynced(channelId.getType());
+    resume();
+    return true;
+  }
+
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      P25DcodrMetrics.getInstance().samplesQueued(channelId.getType(), -reported);
+    }
+  }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import org.anhonesteffort.dsp.ComplexNumber;
+import org.anhonesteffort.dsp.sample.Samples;
+
+public class TrackedSamples extends Samples {
+
+  /*
+  notice:
+    P25Channel keeps its samples queue to itself, the first call
+    to getSamples() comes from the DSP thread taking this element
+    off of that queue so we count it as dequeued at that point.
+   */
+
+  private final SamplesQueueTracker queue;
+  private       boolean             dequeued = false;
+
+  public TrackedSamples(ComplexNumber[] samples, SamplesQueueTracker queue) {
+    super(samples);
+    this.queue = queue;
+  }
+
+  @Override
+  public ComplexNumber[] getSamples() {
+    if (!dequeued) {
+      dequeued = true;
+      queue.onDequeued();
+    }
+    return super.getSamples();
+  }
+
+}
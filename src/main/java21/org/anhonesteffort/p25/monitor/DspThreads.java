@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.monitor;
+
+import org.anhonesteffort.p25.P25DcodrConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class DspThreads {
+
+  /*
+  notice:
+    a channel blocked on its samples queue parks its virtual thread and
+    gives the carrier back, idle channels no longer cost a platform thread.
+    carrier count is the cpu concurrency limit. the jvm reads it once
+    from -Djdk.virtualThreadScheduler.parallelism, which must be given on
+    the command line, so all we can do is warn when it doesn't match
+    dspPoolSize. the jvm doesn't report cpu time for virtual threads so
+    dspVirtualChannels alone admits channels.
+   */
+
+  private static final Logger log         = LoggerFactory.getLogger(DspThreads.class);
+  private static final String PARALLELISM = "jdk.virtualThreadScheduler.parallelism";
+
+  public static boolean isVirtualSupported() {
+    return true;
+  }
+
+  public static ExecutorService newExecutor(P25DcodrConfig config, int slots) {
+    if (!config.getDspVirtualThreads()) {
+      return new ElasticDspExecutor(config, slots);
+    }
+
+    String parallelism = System.getProperty(PARALLELISM);
+    int    carriers    = Runtime.getRuntime().availableProcessors();
+
+    if (parallelism == null) {
+      log.warn("-D" + PARALLELISM + " not set, virtual dsp threads get one carrier per core");
+    } else {
+      try {
+        carriers = Integer.parseInt(parallelism.trim());
+      } catch (NumberFormatException e) {
+        log.warn("-D" + PARALLELISM + "=" + parallelism + " is not a number, the jvm will refuse it");
+      }
+    }
+
+    if (carriers != config.getDspPoolSize()) {
+      log.warn(
+          "virtual dsp threads get " + carriers + " carriers but dspPoolSize is " + config.getDspPoolSize() +
+          ", start the jvm with -D" + PARALLELISM + "=" + config.getDspPoolSize()
+      );
+    } else {
+      log.info("running dsp channels on virtual threads with " + carriers + " carriers");
+    }
+
+    return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dsp-", 0).factory());
+  }
+
+}
@@ -18,6 +18,8 @@
 package org.anhonesteffort.p25.chnlzr;
 
 import com.google.common.util.concurrent.SettableFuture;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import org.anhonesteffort.chnlzr.ProtocolErrorException;
 import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
@@ -25,6 +27,7 @@ import org.capnproto.MessageBuilder;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutionException;
 
 import static org.anhonesteffort.chnlzr.capnp.Proto.BaseMessage;
@@ -118,4 +121,44 @@ public class ChannelRequestHandlerTest {
     }
   }
 
+  @Test
+  public void testRetainedSamplesBeforeStateReleased() throws Exception {
+    final SettableFuture<ChannelRequestHandler> FUTURE  = SettableFuture.create();
+    final ChannelHandlerContext                 CONTEXT = Mockito.mock(ChannelHandlerContext.class);
+    final ChannelRequestHandler                 HANDLER = new ChannelRequestHandler(FUTURE, request());
+    final ByteBuf                               FRAME   = Unpooled.buffer(8);
+
+    HANDLER.handlerAdded(CONTEXT);
+    HANDLER.channelRead(CONTEXT, new RetainedSamples(FRAME, ByteBuffer.allocate(8)));
+
+    assert FRAME.refCnt() == 0;
+    assert FUTURE.isDone();
+    Mockito.verify(CONTEXT, Mockito.times(1)).close();
+
+    try {
+
+      FUTURE.get();
+      assert false;
+
+    } catch (ExecutionException e) {
+      assert (e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testRetainedSamplesAfterStateReleased() throws Exception {
+    final SettableFuture<ChannelRequestHandler> FUTURE  = SettableFuture.create();
+    final ChannelHandlerContext                 CONTEXT = Mockito.mock(ChannelHandlerContext.class);
+    final ChannelRequestHandler                 HANDLER = new ChannelRequestHandler(FUTURE, request());
+    final ByteBuf                               FRAME   = Unpooled.buffer(8);
+
+    HANDLER.handlerAdded(CONTEXT);
+    HANDLER.channelRead(CONTEXT, PROTO.state(10l, 20d).getRoot(BaseMessage.factory).asReader());
+    HANDLER.channelRead(CONTEXT, new RetainedSamples(FRAME, ByteBuffer.allocate(8)));
+
+    assert FRAME.refCnt() == 0;
+    assert FUTURE.get().equals(HANDLER);
+    Mockito.verify(CONTEXT, Mockito.never()).close();
+  }
+
 }
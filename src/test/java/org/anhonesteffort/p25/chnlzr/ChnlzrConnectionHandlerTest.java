@@ -18,6 +18,8 @@
 package org.anhonesteffort.p25.chnlzr;
 
 import com.google.common.util.concurrent.SettableFuture;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
 import org.capnproto.MessageBuilder;
@@ -26,6 +28,7 @@ import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutionException;
 
 import static org.anhonesteffort.chnlzr.capnp.Proto.BaseMessage;
@@ -114,4 +117,28 @@ public class ChnlzrConnectionHandlerTest {
     Mockito.verify(CONTEXT, Mockito.times(1)).close();
   }
 
+  @Test
+  public void testRetainedSamplesBeforeCapabilitiesReleased() throws Exception {
+    final SettableFuture<ChnlzrConnectionHandler> FUTURE  = SettableFuture.create();
+    final ChannelHandlerContext                   CONTEXT = Mockito.mock(ChannelHandlerContext.class);
+    final ChnlzrConnectionHandler                 HANDLER = new ChnlzrConnectionHandler(FUTURE);
+    final ByteBuf                                 FRAME   = Unpooled.buffer(8);
+
+    HANDLER.channelActive(CONTEXT);
+    HANDLER.channelRead(CONTEXT, new RetainedSamples(FRAME, ByteBuffer.allocate(8)));
+
+    assert FRAME.refCnt() == 0;
+    assert FUTURE.isDone();
+    Mockito.verify(CONTEXT, Mockito.times(1)).close();
+
+    try {
+
+      FUTURE.get();
+      assert false;
+
+    } catch (ExecutionException e) {
+      assert (e.getCause() instanceof IllegalStateException);
+    }
+  }
+
 }
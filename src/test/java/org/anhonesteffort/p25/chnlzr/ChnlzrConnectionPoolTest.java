@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.google.common.util.concurrent.Futures;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.anhonesteffort.chnlzr.ChnlzrConfig;
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ChnlzrConnectionPoolTest {
+
+  @Before
+  public void mockMetrics() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+  }
+
+  private ChnlzrConnectionFactory factory(EventLoopGroup group) {
+    final ChnlzrConfig CONFIG = Mockito.mock(ChnlzrConfig.class);
+
+    Mockito.when(CONFIG.connectionTimeoutMs()).thenReturn(1000);
+    Mockito.when(CONFIG.idleStateThresholdMs()).thenReturn(60000l);
+    Mockito.when(CONFIG.bufferHighWaterMark()).thenReturn(32768);
+    Mockito.when(CONFIG.bufferLowWaterMark()).thenReturn(8192);
+
+    return new ChnlzrConnectionFactory(CONFIG, NioSocketChannel.class, group);
+  }
+
+  @Test
+  public void testWarmedConnectionReused() throws Exception {
+    final LocalChnlzrServer    SERVER = new LocalChnlzrServer(48000l, 512);
+    final EventLoopGroup       GROUP  = new NioEventLoopGroup(1);
+    final HostId               HOST   = SERVER.start();
+    final ChnlzrConnectionPool POOL   = new ChnlzrConnectionPool(factory(GROUP), GROUP, 1, 60000l);
+
+    POOL.warm(HOST);
+    for (int i = 0; i < 20 && POOL.getIdleCount(HOST) < 1; i++) {
+      Thread.sleep(50);
+    }
+
+    assert POOL.getIdleCount(HOST) == 1;
+
+    final ChnlzrConnectionHandler CONNECTION = POOL.acquire(HOST, 851000000d).get(1, TimeUnit.SECONDS);
+
+    assert CONNECTION.getCapabilities() != null;
+    assert CONNECTION.getContext().channel().isActive();
+
+    CONNECTION.getContext().close();
+    SERVER.stop();
+    GROUP.shutdownGracefully();
+  }
+
+  @Test
+  public void testDisabledPoolConnectsDirectly() throws Exception {
+    final LocalChnlzrServer    SERVER = new LocalChnlzrServer(48000l, 512);
+    final EventLoopGroup       GROUP  = new NioEventLoopGroup(1);
+    final HostId               HOST   = SERVER.start();
+    final ChnlzrConnectionPool POOL   = new ChnlzrConnectionPool(factory(GROUP));
+
+    POOL.warm(HOST);
+    assert POOL.getIdleCount(HOST) == 0;
+
+    final ChnlzrConnectionHandler CONNECTION = POOL.acquire(HOST, 851000000d).get(1, TimeUnit.SECONDS);
+
+    assert CONNECTION.getCapabilities() != null;
+    assert POOL.getIdleCount(HOST) == 0;
+
+    CONNECTION.getContext().close();
+    SERVER.stop();
+    GROUP.shutdownGracefully();
+  }
+
+  @Test
+  public void testTrippedHostNotWarmed() throws Exception {
+    final ChnlzrConnectionFactory FACTORY = Mockito.mock(ChnlzrConnectionFactory.class);
+    final CircuitBreaker          BREAKER = new CircuitBreaker(1, 60000l);
+    final HostId                  HOST    = new HostId("a", 1);
+    final ChnlzrConnectionPool    POOL    = new ChnlzrConnectionPool(
+        FACTORY, Mockito.mock(ScheduledExecutorService.class), 2, 60000l
+    );
+
+    BREAKER.onFailure();
+    assert BREAKER.getState() == CircuitBreaker.State.OPEN;
+
+    POOL.warm(HOST, BREAKER);
+    POOL.refill(HOST, System.nanoTime());
+
+    Mockito.verify(FACTORY, Mockito.never()).create(HOST);
+  }
+
+  @Test
+  public void testWarmFailuresBackOff() throws Exception {
+    final ChnlzrConnectionFactory FACTORY = Mockito.mock(ChnlzrConnectionFactory.class);
+    final HostId                  HOST    = new HostId("a", 1);
+    final ChnlzrConnectionPool    POOL    = new ChnlzrConnectionPool(
+        FACTORY, Mockito.mock(ScheduledExecutorService.class), 2, 60000l
+    );
+
+    Mockito.when(FACTORY.create(HOST)).thenReturn(
+        Futures.<ChnlzrConnectionHandler>immediateFailedFuture(new IOException("refused"))
+    );
+
+    final long NOW = System.nanoTime();
+
+    POOL.warm(HOST, new CircuitBreaker());
+    Mockito.verify(FACTORY, Mockito.times(1)).create(HOST);
+
+    POOL.refill(HOST, NOW);
+    POOL.refill(HOST, NOW + TimeUnit.MILLISECONDS.toNanos(ChnlzrConnectionPool.WARM_BACKOFF_MS / 2));
+    Mockito.verify(FACTORY, Mockito.times(1)).create(HOST);
+
+    POOL.refill(HOST, NOW + TimeUnit.MILLISECONDS.toNanos(ChnlzrConnectionPool.WARM_BACKOFF_MS * 2));
+    Mockito.verify(FACTORY, Mockito.times(2)).create(HOST);
+
+    POOL.refill(HOST, NOW + TimeUnit.MILLISECONDS.toNanos(ChnlzrConnectionPool.WARM_BACKOFF_MS * 3 / 2));
+    Mockito.verify(FACTORY, Mockito.times(2)).create(HOST);
+
+    POOL.refill(HOST, NOW + TimeUnit.MILLISECONDS.toNanos(ChnlzrConnectionPool.WARM_BACKOFF_MS * 4));
+    Mockito.verify(FACTORY, Mockito.times(3)).create(HOST);
+  }
+
+}
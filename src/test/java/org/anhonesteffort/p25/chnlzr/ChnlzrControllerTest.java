@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.BaseMessage;
+import static org.anhonesteffort.chnlzr.capnp.Proto.ChannelRequest;
+
+public class ChnlzrControllerTest {
+
+  private static final ProtoFactory PROTO = new ProtoFactory();
+
+  @Before
+  public void mockMetrics() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+  }
+
+  private ChnlzrController controller(HostId ... hosts) {
+    final ChnlzrConnectionPool POOL = Mockito.mock(ChnlzrConnectionPool.class);
+    Mockito.when(POOL.probe(Mockito.any())).thenReturn(SettableFuture.create());
+    return new ChnlzrController(Arrays.asList(hosts), POOL, new IngestMonitor(), new SamplesSourceOptions());
+  }
+
+  @Test
+  public void testCandidatesCoverFrequency() {
+    final ChnlzrController CONTROLLER = controller(new HostId("a", 1), new HostId("b", 2), new HostId("c", 3));
+    final List<ChnlzrHost> HOSTS      = CONTROLLER.getHosts();
+
+    HOSTS.get(0).setCoverage(800e6, 860e6);
+    HOSTS.get(1).setCoverage(850e6, 870e6);
+    HOSTS.get(2).setCoverage(450e6, 470e6);
+
+    final List<ChnlzrHost> CANDIDATES = CONTROLLER.candidatesFor(855e6);
+
+    assert CANDIDATES.size() == 2;
+    assert CANDIDATES.contains(HOSTS.get(0));
+    assert CANDIDATES.contains(HOSTS.get(1));
+  }
+
+  @Test
+  public void testCandidatesLeastLoadedFirst() {
+    final ChnlzrController CONTROLLER = controller(new HostId("a", 1), new HostId("b", 2));
+    final List<ChnlzrHost> HOSTS      = CONTROLLER.getHosts();
+
+    HOSTS.get(0).setCoverage(800e6, 860e6);
+    HOSTS.get(1).setCoverage(800e6, 860e6);
+    HOSTS.get(0).onStreamOpened();
+
+    assert CONTROLLER.candidatesFor(851e6).get(0) == HOSTS.get(1);
+
+    HOSTS.get(0).onStreamClosed();
+    HOSTS.get(1).onStreamOpened();
+
+    assert CONTROLLER.candidatesFor(851e6).get(0) == HOSTS.get(0);
+  }
+
+  @Test
+  public void testUnknownCoverageTriedLast() {
+    final ChnlzrController CONTROLLER = controller(new HostId("a", 1), new HostId("b", 2));
+    final List<ChnlzrHost> HOSTS      = CONTROLLER.getHosts();
+
+    HOSTS.get(1).setCoverage(800e6, 860e6);
+
+    final List<ChnlzrHost> CANDIDATES = CONTROLLER.candidatesFor(851e6);
+
+    assert CANDIDATES.size() == 2;
+    assert CANDIDATES.get(0) == HOSTS.get(1);
+    assert CANDIDATES.get(1) == HOSTS.get(0);
+  }
+
+  @Test
+  public void testCandidatesFollowHostChanges() {
+    final ChnlzrController CONTROLLER = controller(new HostId("a", 1), new HostId("b", 2));
+    final List<ChnlzrHost> HOSTS      = CONTROLLER.getHosts();
+
+    HOSTS.get(0).setCoverage(800e6, 860e6);
+    HOSTS.get(1).setCoverage(800e6, 860e6);
+    assert CONTROLLER.candidatesFor(851e6).size() == 2;
+
+    HOSTS.get(1).setCoverage(450e6, 470e6);
+    assert CONTROLLER.candidatesFor(851e6).size() == 1;
+    assert CONTROLLER.candidatesFor(460e6).get(0) == HOSTS.get(1);
+
+    final ChnlzrHost JOINED = CONTROLLER.addHost(new HostId("c", 3));
+    assert CONTROLLER.candidatesFor(851e6).size() == 2;
+
+    JOINED.setCoverage(850e6, 870e6);
+    CONTROLLER.removeHost(new HostId("a", 1));
+
+    final List<ChnlzrHost> CANDIDATES = CONTROLLER.candidatesFor(851e6);
+
+    assert CANDIDATES.size() == 1;
+    assert CANDIDATES.get(0) == JOINED;
+  }
+
+  private ChnlzrConnectionHandler connection() {
+    final ChnlzrConnectionHandler CONNECTION = Mockito.mock(ChnlzrConnectionHandler.class);
+    final ChannelHandlerContext   CONTEXT    = Mockito.mock(ChannelHandlerContext.class);
+    final Channel                 CHANNEL    = Mockito.mock(Channel.class);
+
+    Mockito.when(CONTEXT.channel()).thenReturn(CHANNEL);
+    Mockito.when(CONTEXT.pipeline()).thenReturn(Mockito.mock(ChannelPipeline.class));
+    Mockito.when(CHANNEL.closeFuture()).thenReturn(Mockito.mock(ChannelFuture.class));
+    Mockito.when(CONNECTION.getContext()).thenReturn(CONTEXT);
+    Mockito.when(CONNECTION.getSetupTimer()).thenReturn(new SetupTimer());
+    Mockito.when(CONNECTION.getCapabilities()).thenReturn(
+        PROTO.capabilities(0d, 0d, 0, 800e6, 860e6, 1000000l).getRoot(BaseMessage.factory).asReader().getCapabilities()
+    );
+
+    return CONNECTION;
+  }
+
+  private ChannelRequestHandler requesterOn(ChnlzrConnectionHandler connection) {
+    final ArgumentCaptor<ChannelHandler> REQUESTER = ArgumentCaptor.forClass(ChannelHandler.class);
+    Mockito.verify(connection.getContext().pipeline()).replace(
+        Mockito.eq(connection), Mockito.eq("requester"), REQUESTER.capture()
+    );
+    return (ChannelRequestHandler) REQUESTER.getValue();
+  }
+
+  @Test
+  public void testHedgeWinClosesFirstConnection() throws Exception {
+    final ScheduledExecutorService                SCHEDULER      = Mockito.mock(ScheduledExecutorService.class);
+    final ChnlzrConnectionPool                    POOL           = Mockito.mock(ChnlzrConnectionPool.class);
+    final HostId                                  FIRST          = new HostId("a", 1);
+    final HostId                                  SECOND         = new HostId("b", 2);
+    final SettableFuture<ChnlzrConnectionHandler> FIRST_CONNECT  = SettableFuture.create();
+    final SettableFuture<ChnlzrConnectionHandler> SECOND_CONNECT = SettableFuture.create();
+
+    Mockito.when(POOL.probe(Mockito.any())).thenReturn(SettableFuture.create());
+    Mockito.when(POOL.acquire(Mockito.eq(FIRST),  Mockito.anyDouble())).thenReturn(FIRST_CONNECT);
+    Mockito.when(POOL.acquire(Mockito.eq(SECOND), Mockito.anyDouble())).thenReturn(SECOND_CONNECT);
+
+    final ChnlzrController CONTROLLER = new ChnlzrController(
+        Arrays.asList(FIRST, SECOND), POOL, new IngestMonitor(), new SamplesSourceOptions(),
+        new HedgePolicy(SCHEDULER, 0.95d, 0l, 100l), () -> new CircuitBreaker(1, 60000l)
+    );
+    CONTROLLER.getHosts().get(0).setCoverage(800e6, 860e6);
+
+    final ChannelRequest.Reader                  REQUEST = PROTO.channelRequest(851e6, 12.5e3, 48000l, 0l);
+    final ListenableFuture<SamplesSourceHandler> SOURCE  = CONTROLLER.createSourceFor(REQUEST, true);
+    final ArgumentCaptor<Runnable>               HEDGE   = ArgumentCaptor.forClass(Runnable.class);
+
+    final ChnlzrConnectionHandler FIRST_CONNECTION = connection();
+    FIRST_CONNECT.set(FIRST_CONNECTION);
+    requesterOn(FIRST_CONNECTION).handlerAdded(FIRST_CONNECTION.getContext());
+
+    Mockito.verify(SCHEDULER).schedule(HEDGE.capture(), Mockito.eq(100l), Mockito.eq(TimeUnit.MILLISECONDS));
+    HEDGE.getValue().run();
+
+    final ChnlzrConnectionHandler SECOND_CONNECTION = connection();
+    final ChannelRequestHandler   SECOND_REQUESTER;
+
+    SECOND_CONNECT.set(SECOND_CONNECTION);
+    SECOND_REQUESTER = requesterOn(SECOND_CONNECTION);
+    SECOND_REQUESTER.handlerAdded(SECOND_CONNECTION.getContext());
+    SECOND_REQUESTER.channelRead(
+        SECOND_CONNECTION.getContext(), PROTO.state(48000l, 851e6).getRoot(BaseMessage.factory).asReader()
+    );
+
+    assert SOURCE.isDone() && SOURCE.get() != null;
+    Mockito.verify(FIRST_CONNECTION.getContext()).close();
+    Mockito.verify(SECOND_CONNECTION.getContext(), Mockito.never()).close();
+    assert CONTROLLER.getHosts().get(0).getBreaker().getState() == CircuitBreaker.State.CLOSED;
+
+    Mockito.verify(P25DcodrMetrics.getInstance()).chnlzrHedgeWon();
+    Mockito.verify(P25DcodrMetrics.getInstance()).chnlzrHedgeSaved(Mockito.anyLong());
+  }
+
+  @Test
+  public void testCancelledProbeReleasesHost() throws Exception {
+    final ChnlzrConnectionPool POOL = Mockito.mock(ChnlzrConnectionPool.class);
+    final HostId               HOST = new HostId("a", 1);
+
+    Mockito.when(POOL.probe(Mockito.any())).thenReturn(SettableFuture.create());
+    Mockito.when(POOL.acquire(Mockito.eq(HOST), Mockito.anyDouble()))
+           .thenReturn(SettableFuture.create(), SettableFuture.create(), SettableFuture.create());
+
+    final ChnlzrController CONTROLLER = new ChnlzrController(
+        Arrays.asList(HOST), POOL, new IngestMonitor(), new SamplesSourceOptions(),
+        new HedgePolicy(), () -> new CircuitBreaker(1, 0l)
+    );
+    final CircuitBreaker        BREAKER = CONTROLLER.getHosts().get(0).getBreaker();
+    final ChannelRequest.Reader REQUEST = PROTO.channelRequest(851e6, 12.5e3, 48000l, 0l);
+
+    BREAKER.onFailure();
+    assert BREAKER.getState() == CircuitBreaker.State.OPEN;
+
+    final ListenableFuture<SamplesSourceHandler> PROBE = CONTROLLER.createSourceFor(REQUEST);
+    assert BREAKER.getState() == CircuitBreaker.State.HALF_OPEN;
+
+    PROBE.cancel(false);
+    assert BREAKER.getState() == CircuitBreaker.State.OPEN;
+
+    final ListenableFuture<SamplesSourceHandler> RETRY = CONTROLLER.createSourceFor(REQUEST);
+
+    assert !RETRY.isDone();
+    Mockito.verify(POOL, Mockito.times(2)).acquire(Mockito.eq(HOST), Mockito.anyDouble());
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class CircuitBreakerTest {
+
+  private static final long OPEN_NS = TimeUnit.MILLISECONDS.toNanos(1000l);
+
+  @Test
+  public void testDisabled() {
+    final CircuitBreaker BREAKER = new CircuitBreaker();
+
+    for (int i = 0; i < 100; i++) {
+      assert !BREAKER.onFailure(0l);
+    }
+
+    assert BREAKER.getState() == CircuitBreaker.State.CLOSED;
+    assert BREAKER.allowRequest(0l);
+  }
+
+  @Test
+  public void testOpensAfterThreshold() {
+    final CircuitBreaker BREAKER = new CircuitBreaker(3, 1000l);
+
+    assert !BREAKER.onFailure(0l);
+    assert !BREAKER.onFailure(0l);
+    BREAKER.onSuccess();
+    assert !BREAKER.onFailure(0l);
+    assert !BREAKER.onFailure(0l);
+    assert BREAKER.allowRequest(0l);
+
+    assert BREAKER.onFailure(10l);
+    assert BREAKER.getState() == CircuitBreaker.State.OPEN;
+    assert !BREAKER.allowRequest(10l);
+    assert !BREAKER.allowRequest(OPEN_NS);
+  }
+
+  @Test
+  public void testHalfOpenProbe() {
+    final CircuitBreaker BREAKER = new CircuitBreaker(1, 1000l);
+
+    assert BREAKER.onFailure(0l);
+    assert BREAKER.allowRequest(OPEN_NS);
+    assert BREAKER.getState() == CircuitBreaker.State.HALF_OPEN;
+    assert !BREAKER.allowRequest(OPEN_NS);
+
+    assert BREAKER.onFailure(OPEN_NS);
+    assert BREAKER.getState() == CircuitBreaker.State.OPEN;
+    assert !BREAKER.allowRequest(OPEN_NS + 1l);
+    assert BREAKER.allowRequest(OPEN_NS * 2);
+
+    BREAKER.onSuccess();
+    assert BREAKER.getState() == CircuitBreaker.State.CLOSED;
+    assert BREAKER.allowRequest(OPEN_NS * 2);
+  }
+
+  @Test
+  public void testCancelledProbeReopens() {
+    final CircuitBreaker BREAKER = new CircuitBreaker(1, 1000l);
+
+    assert BREAKER.onFailure(0l);
+    assert BREAKER.allowRequest(OPEN_NS);
+    assert BREAKER.getState() == CircuitBreaker.State.HALF_OPEN;
+
+    BREAKER.onCancelled(OPEN_NS + 10l);
+    assert BREAKER.getState() == CircuitBreaker.State.OPEN;
+    assert !BREAKER.allowRequest(OPEN_NS + 20l);
+    assert BREAKER.allowRequest((OPEN_NS * 2) + 10l);
+    assert BREAKER.getState() == CircuitBreaker.State.HALF_OPEN;
+  }
+
+  @Test
+  public void testCancelWhileClosedIgnored() {
+    final CircuitBreaker BREAKER = new CircuitBreaker(1, 1000l);
+
+    BREAKER.onCancelled(0l);
+    assert BREAKER.getState() == CircuitBreaker.State.CLOSED;
+    assert BREAKER.allowRequest(0l);
+  }
+
+  @Test
+  public void testLostProbeGivenUp() {
+    final CircuitBreaker BREAKER = new CircuitBreaker(1, 1000l);
+
+    assert BREAKER.onFailure(0l);
+    assert BREAKER.allowRequest(OPEN_NS);
+    assert !BREAKER.allowRequest((OPEN_NS * 2) - 1l);
+
+    assert BREAKER.allowRequest(OPEN_NS * 2);
+    assert !BREAKER.allowRequest(OPEN_NS * 2);
+    assert BREAKER.getState() == CircuitBreaker.State.HALF_OPEN;
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import org.junit.Test;
+
+public class CoverageIndexTest {
+
+  @Test
+  public void testOverlappingIntervals() {
+    final CoverageIndex<String> INDEX = new CoverageIndex<>();
+
+    INDEX.put("a", 800e6, 860e6);
+    INDEX.put("b", 850e6, 870e6);
+    INDEX.put("c", 450e6, 470e6);
+
+    assert INDEX.get(855e6).size() == 2;
+    assert INDEX.get(865e6).contains("b") && INDEX.get(865e6).size() == 1;
+    assert INDEX.get(460e6).contains("c") && INDEX.get(460e6).size() == 1;
+    assert INDEX.get(100e6).isEmpty();
+    assert INDEX.get(900e6).isEmpty();
+  }
+
+  @Test
+  public void testBoundsInclusive() {
+    final CoverageIndex<String> INDEX = new CoverageIndex<>();
+
+    INDEX.put("a", 800e6, 860e6);
+
+    assert INDEX.get(800e6).contains("a");
+    assert INDEX.get(860e6).contains("a");
+    assert !INDEX.get(Math.nextDown(800e6)).contains("a");
+    assert !INDEX.get(Math.nextUp(860e6)).contains("a");
+  }
+
+  @Test
+  public void testUpdateAndRemove() {
+    final CoverageIndex<String> INDEX = new CoverageIndex<>();
+
+    INDEX.put("a", 800e6, 860e6);
+    INDEX.put("b", 850e6, 870e6);
+    INDEX.put("a", 400e6, 500e6);
+
+    assert !INDEX.get(855e6).contains("a");
+    assert INDEX.get(460e6).contains("a");
+
+    INDEX.remove("a");
+    INDEX.remove("b");
+
+    assert !INDEX.contains("a");
+    assert INDEX.get(460e6).isEmpty();
+    assert INDEX.getSegmentCount() == 0;
+  }
+
+}
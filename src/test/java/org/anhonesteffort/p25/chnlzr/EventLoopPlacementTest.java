@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.Test;
+
+public class EventLoopPlacementTest {
+
+  @Test
+  public void testFindsEveryLoop() {
+    final EventLoopGroup     GROUP     = new NioEventLoopGroup(3);
+    final EventLoopPlacement PLACEMENT = new EventLoopPlacement(GROUP);
+
+    assert PLACEMENT.getLoopCount() == 3;
+    GROUP.shutdownGracefully();
+  }
+
+  @Test
+  public void testLeastLoadedSpreadsStreams() {
+    final EventLoopGroup     GROUP     = new NioEventLoopGroup(2);
+    final EventLoopPlacement PLACEMENT = new EventLoopPlacement(GROUP, EventLoopPlacement.Policy.LEAST_LOADED);
+
+    final EventLoop FIRST  = PLACEMENT.place(851000000d);
+    final EventLoop SECOND = PLACEMENT.place(851000000d);
+
+    assert FIRST != SECOND;
+    assert PLACEMENT.getStreamCount(0) == 1;
+    assert PLACEMENT.getStreamCount(1) == 1;
+
+    PLACEMENT.release(FIRST);
+    assert PLACEMENT.place() == FIRST;
+
+    GROUP.shutdownGracefully();
+  }
+
+  @Test
+  public void testPartitionedIsSticky() {
+    final EventLoopGroup     GROUP     = new NioEventLoopGroup(2);
+    final EventLoopPlacement PLACEMENT = new EventLoopPlacement(GROUP, EventLoopPlacement.Policy.PARTITIONED);
+
+    final EventLoop FIRST  = PLACEMENT.place(851012500d);
+    final EventLoop SECOND = PLACEMENT.place(851012500d);
+
+    assert FIRST == SECOND;
+    assert PLACEMENT.loopFor(851012500d) == PLACEMENT.loopFor(851012500d);
+    assert PLACEMENT.loopFor(851012500d) < 2;
+
+    GROUP.shutdownGracefully();
+  }
+
+  @Test
+  public void testPartitionedSpreadsEvenly() {
+    final EventLoopGroup     GROUP     = new NioEventLoopGroup(4);
+    final EventLoopPlacement PLACEMENT = new EventLoopPlacement(GROUP, EventLoopPlacement.Policy.PARTITIONED);
+
+    for (int channel = 0; channel < 400; channel++) {
+      PLACEMENT.place(851000000d + (channel * 12500d));
+    }
+
+    for (int loop = 0; loop < PLACEMENT.getLoopCount(); loop++) {
+      assert PLACEMENT.getStreamCount(loop) >= 80;
+      assert PLACEMENT.getStreamCount(loop) <= 120;
+    }
+
+    GROUP.shutdownGracefully();
+  }
+
+}
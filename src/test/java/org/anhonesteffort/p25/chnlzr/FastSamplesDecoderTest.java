@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
+import org.capnproto.Data;
+import org.capnproto.MessageBuilder;
+import org.capnproto.Serialize;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
+import java.util.Optional;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.BaseMessage;
+
+public class FastSamplesDecoderTest {
+
+  private static final ProtoFactory PROTO = new ProtoFactory();
+
+  private byte[] serialize(MessageBuilder message) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Serialize.write(Channels.newChannel(bytes), message);
+    return bytes.toByteArray();
+  }
+
+  private MessageBuilder samples(float ... floats) {
+    ByteBuffer bytes = ByteBuffer.allocate(floats.length * 4);
+    for (float sample : floats) {
+      bytes.putFloat(sample);
+    }
+
+    MessageBuilder      message = new MessageBuilder();
+    BaseMessage.Builder base    = message.initRoot(BaseMessage.factory);
+
+    base.setType(BaseMessage.Type.SAMPLES);
+    base.initSamples().setSamples(new Data.Reader(bytes.array()));
+
+    return message;
+  }
+
+  @Test
+  public void testLayoutLearned() {
+    assert SamplesFrameLayout.learn().isPresent();
+  }
+
+  @Test
+  public void testDecodeSamplesFastPath() throws Exception {
+    final EmbeddedChannel CHANNEL = new EmbeddedChannel(new FastSamplesDecoder());
+    final byte[]          FRAME   = serialize(samples(1f, 2f, 3f, 4f));
+
+    CHANNEL.writeInbound(Unpooled.wrappedBuffer(FRAME));
+
+    final RetainedSamples SAMPLES = (RetainedSamples) CHANNEL.readInbound();
+    final FloatBuffer     FLOATS  = SAMPLES.getSamples();
+
+    assert FLOATS.remaining() == 4;
+    assert FLOATS.get(0)      == 1f;
+    assert FLOATS.get(3)      == 4f;
+
+    SAMPLES.release();
+    assert CHANNEL.readInbound() == null;
+  }
+
+  @Test
+  public void testDecodeOtherTypesGeneric() throws Exception {
+    final EmbeddedChannel CHANNEL = new EmbeddedChannel(new FastSamplesDecoder());
+    final byte[]          STATE   = serialize(PROTO.state(10l, 20d));
+    final byte[]          SAMPLES = serialize(samples(5f, 6f));
+
+    CHANNEL.writeInbound(Unpooled.wrappedBuffer(STATE, SAMPLES));
+
+    final BaseMessage.Reader MESSAGE = (BaseMessage.Reader) CHANNEL.readInbound();
+    final RetainedSamples    FLOATS  = (RetainedSamples) CHANNEL.readInbound();
+
+    assert MESSAGE.getChannelState().getSampleRate() == 10l;
+    assert FLOATS.getSamples().get(1)                == 6f;
+
+    FLOATS.release();
+  }
+
+  @Test
+  public void testUnknownLayoutFallsBack() throws Exception {
+    final EmbeddedChannel CHANNEL = new EmbeddedChannel(new FastSamplesDecoder(Optional.empty()));
+    final byte[]          FRAME   = serialize(samples(7f, 8f));
+
+    CHANNEL.writeInbound(Unpooled.wrappedBuffer(FRAME));
+
+    final RetainedSamples SAMPLES = (RetainedSamples) CHANNEL.readInbound();
+
+    assert SAMPLES.getSamples().get(0) == 7f;
+    SAMPLES.release();
+  }
+
+}
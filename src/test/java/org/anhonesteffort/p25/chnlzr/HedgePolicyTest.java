@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class HedgePolicyTest {
+
+  @Test
+  public void testDisabled() {
+    assert !new HedgePolicy().isEnabled();
+  }
+
+  @Test
+  public void testMaxDelayUntilWarm() {
+    final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor();
+    final HedgePolicy              POLICY    = new HedgePolicy(SCHEDULER, 0.95d, 10l, 500l);
+
+    assert POLICY.isEnabled();
+    assert POLICY.getDelayMs() == 500l;
+
+    POLICY.onGrant(TimeUnit.MILLISECONDS.toNanos(50l));
+    assert POLICY.getDelayMs() == 500l;
+
+    SCHEDULER.shutdownNow();
+  }
+
+  @Test
+  public void testPercentileDelay() {
+    final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor();
+    final HedgePolicy              POLICY    = new HedgePolicy(SCHEDULER, 0.5d, 10l, 500l);
+
+    for (int i = 0; i < 100; i++) {
+      POLICY.onGrant(TimeUnit.MILLISECONDS.toNanos(100l));
+    }
+    assert POLICY.getDelayMs() == 100l;
+
+    for (int i = 0; i < 256; i++) {
+      POLICY.onGrant(TimeUnit.MILLISECONDS.toNanos(1l));
+    }
+    assert POLICY.getDelayMs() == 10l;
+
+    for (int i = 0; i < 256; i++) {
+      POLICY.onGrant(TimeUnit.SECONDS.toNanos(5l));
+    }
+    assert POLICY.getDelayMs() == 500l;
+
+    SCHEDULER.shutdownNow();
+  }
+
+}
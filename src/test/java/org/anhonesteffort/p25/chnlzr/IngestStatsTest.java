@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.codahale.metrics.Clock;
+import org.anhonesteffort.p25.model.QualifyChannelId;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IngestStatsTest {
+
+  private static final long SAMPLE_RATE = 48000l;
+  private static final long MS          = 1_000_000l;
+
+  @Test
+  public void testSteadyStream() {
+    final IngestStats STATS = new IngestStats(new QualifyChannelId(10d), SAMPLE_RATE);
+
+    for (int i = 0; i < 10; i++) {
+      STATS.onMessage(3840, 480, i * 10 * MS);
+    }
+
+    assert STATS.getMessages()         == 10;
+    assert STATS.getBytes()            == 38400;
+    assert STATS.getSamples()          == 4800;
+    assert STATS.getGaps()             == 0;
+    assert STATS.getJitterNs()         == 0;
+    assert STATS.getSampleDeficit()    == 0;
+    assert STATS.getMeanMessageBytes() == 3840d;
+  }
+
+  @Test
+  public void testGapAndJitter() {
+    final IngestStats STATS = new IngestStats(new QualifyChannelId(10d), SAMPLE_RATE);
+
+    STATS.onMessage(3840, 480,  0);
+    STATS.onMessage(3840, 480, 10 * MS);
+    STATS.onMessage(3840, 480, 50 * MS);
+
+    assert STATS.getGaps()          == 1;
+    assert STATS.getJitterNs()      >  0;
+    assert STATS.getSampleDeficit() == 2400 - 960;
+  }
+
+  @Test
+  public void testStateChangeResetsBaseline() {
+    final IngestStats STATS = new IngestStats(new QualifyChannelId(10d), SAMPLE_RATE);
+
+    STATS.onMessage(3840, 480, 0);
+    STATS.onStateChange(SAMPLE_RATE * 2);
+    STATS.onMessage(3840, 480, 100 * MS);
+    STATS.onMessage(3840, 480, 105 * MS);
+
+    assert STATS.getGaps()          == 0;
+    assert STATS.getSampleDeficit() == 0;
+  }
+
+  @Test
+  public void testRatesFollowRecentTraffic() {
+    final AtomicLong  NOW   = new AtomicLong(0l);
+    final IngestStats STATS = new IngestStats(new QualifyChannelId(10d), SAMPLE_RATE, () -> 0, new Clock() {
+      @Override
+      public long getTick() {
+        return NOW.get();
+      }
+    });
+
+    for (int i = 0; i < 12000; i++) {
+      NOW.set(i * 10 * MS);
+      STATS.onMessage(3840, 480);
+    }
+
+    assert Math.abs(STATS.getMessagesPerSecond() - 100d)    < 5d;
+    assert Math.abs(STATS.getBytesPerSecond()    - 384000d) < 19200d;
+
+    NOW.addAndGet(60000l * MS);
+
+    assert STATS.getMessagesPerSecond() < 50d;
+    assert STATS.getBytesPerSecond()    < 192000d;
+  }
+
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.anhonesteffort.chnlzr.capnp.BaseMessageDecoder;
+import org.anhonesteffort.chnlzr.capnp.BaseMessageEncoder;
+import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
+import org.capnproto.Data;
+import org.capnproto.MessageBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.BaseMessage;
+import static org.anhonesteffort.chnlzr.capnp.Proto.Error;
+
+public class LocalChnlzrServer {
+
+  /*
+  notice:
+    a stand-in chnlzr for tests and load testing. a message rate of 0
+    streams as fast as the socket allows, sampleRate / samplesPerMessage
+    streams in real time. samples are a synthetic tone unless a file of
+    interleaved big-endian I/Q is given, float32 or int16 when compact.
+    real time is paced from a nanosecond clock that tests may replace.
+   */
+
+  private static final Logger log     = LoggerFactory.getLogger(LocalChnlzrServer.class);
+  private static final long   TICK_MS = 1l;
+
+  private final ProtoFactory          proto    = new ProtoFactory();
+  private final EventLoopGroup        group    = new NioEventLoopGroup();
+  private final Set<StreamingHandler> streams  = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger         failures = new AtomicInteger(0);
+  private final AtomicLong            sent     = new AtomicLong(0l);
+  private final long                  sampleRate;
+  private final int                   samplesPerMessage;
+
+  private volatile List<MessageBuilder> samples;
+  private volatile double               minFrequency    = 0d;
+  private volatile double               maxFrequency    = 1000000000d;
+  private volatile double               messageRate     = 0d;
+  private volatile int                  maxChannels     = Integer.MAX_VALUE;
+  private volatile long                 disconnectAfter = 0l;
+  private volatile int                  failureCode     = Error.ERROR_BANDWIDTH_UNAVAILABLE;
+  private volatile LongSupplier         nanoClock       = System::nanoTime;
+
+  private Channel server;
+
+  public LocalChnlzrServer(long sampleRate, int samplesPerMessage, boolean compactSamples) {
+    this.sampleRate        = sampleRate;
+    this.samplesPerMessage = samplesPerMessage;
+    this.samples           = Collections.singletonList(samplesMessage(toneSamples(samplesPerMessage, compactSamples)));
+  }
+
+  public LocalChnlzrServer(long sampleRate, int samplesPerMessage) {
+    this(sampleRate, samplesPerMessage, false);
+  }
+
+  private static byte[] toneSamples(int sampleCount, boolean compact) {
+    ByteBuffer samples = ByteBuffer.allocate(sampleCount * 2 * (compact ? 2 : 4));
+    for (int i = 0; i < sampleCount; i++) {
+      if (compact) {
+        samples.putShort((short) (Math.cos(i * 0.1d) * Short.MAX_VALUE));
+        samples.putShort((short) (Math.sin(i * 0.1d) * Short.MAX_VALUE));
+      } else {
+        samples.putFloat((float) Math.cos(i * 0.1d));
+        samples.putFloat((float) Math.sin(i * 0.1d));
+      }
+    }
+    return samples.array();
+  }
+
+  private static MessageBuilder samplesMessage(byte[] samples) {
+    MessageBuilder      message = new MessageBuilder();
+    BaseMessage.Builder base    = message.initRoot(BaseMessage.factory);
+
+    base.setType(BaseMessage.Type.SAMPLES);
+    base.initSamples().setSamples(new Data.Reader(samples));
+
+    return message;
+  }
+
+  public LocalChnlzrServer setSamplesFile(Path file, boolean compactSamples) throws IOException {
+    byte[]               bytes        = Files.readAllBytes(file);
+    int                  messageBytes = samplesPerMessage * 2 * (compactSamples ? 2 : 4);
+    List<MessageBuilder> messages     = new ArrayList<>();
+
+    for (int offset = 0; offset + messageBytes <= bytes.length; offset += messageBytes) {
+      byte[] chunk = new byte[messageBytes];
+      System.arraycopy(bytes, offset, chunk, 0, messageBytes);
+      messages.add(samplesMessage(chunk));
+    }
+
+    if (messages.isEmpty()) {
+      throw new IOException(file + " holds less than one message of samples");
+    }
+
+    samples = messages;
+    return this;
+  }
+
+  public LocalChnlzrServer setCoverage(double minFrequency, double maxFrequency) {
+    this.minFrequency = minFrequency;
+    this.maxFrequency = maxFrequency;
+    return this;
+  }
+
+  public LocalChnlzrServer setMessageRate(double messagesPerSecond) {
+    this.messageRate = messagesPerSecond;
+    return this;
+  }
+
+  public LocalChnlzrServer setRealTime() {
+    return setMessageRate((double) sampleRate / samplesPerMessage);
+  }
+
+  public LocalChnlzrServer setClock(LongSupplier nanoClock) {
+    this.nanoClock = nanoClock;
+    return this;
+  }
+
+  public LocalChnlzrServer setMaxChannels(int maxChannels) {
+    this.maxChannels = maxChannels;
+    return this;
+  }
+
+  public LocalChnlzrServer setDisconnectAfter(long messages) {
+    this.disconnectAfter = messages;
+    return this;
+  }
+
+  public void failNextRequests(int count, int errorCode) {
+    failureCode = errorCode;
+    failures.set(count);
+  }
+
+  public void disconnectAll() {
+    streams.forEach(stream -> stream.context.close());
+  }
+
+  public void sendErrorToAll(int errorCode) {
+    streams.forEach(stream -> stream.context.writeAndFlush(proto.error(errorCode)));
+  }
+
+  public int getChannelCount() {
+    return streams.size();
+  }
+
+  public long getMessagesSent() {
+    return sent.get();
+  }
+
+  public HostId start(String hostname, int port) throws InterruptedException {
+    ServerBootstrap bootstrap = new ServerBootstrap();
+
+    bootstrap.group(group)
+             .channel(NioServerSocketChannel.class)
+             .childOption(ChannelOption.TCP_NODELAY, true)
+             .childHandler(new ChannelInitializer<SocketChannel>() {
+               @Override
+               public void initChannel(SocketChannel ch) {
+                 ch.pipeline().addLast("encoder",  BaseMessageEncoder.INSTANCE);
+                 ch.pipeline().addLast("decoder",  new BaseMessageDecoder());
+                 ch.pipeline().addLast("streamer", new StreamingHandler());
+               }
+             });
+
+    server = bootstrap.bind(hostname, port).sync().channel();
+    return new HostId(hostname, ((InetSocketAddress) server.localAddress()).getPort());
+  }
+
+  public HostId start() throws InterruptedException {
+    return start("127.0.0.1", 0);
+  }
+
+  public void stop() {
+    if (server != null) {
+      server.close().syncUninterruptibly();
+    }
+    group.shutdownGracefully();
+  }
+
+  private class StreamingHandler extends ChannelHandlerAdapter {
+    private ChannelHandlerContext context;
+    private ScheduledFuture<?>    ticker;
+    private boolean               streaming = false;
+    private long                  startNs   = 0l;
+    private long                  written   = 0l;
+
+    private boolean writeNext() {
+      List<MessageBuilder> messages = samples;
+
+      context.write(messages.get((int) (written++ % messages.size())));
+      sent.incrementAndGet();
+
+      if (disconnectAfter > 0l && written >= disconnectAfter) {
+        context.flush();
+        context.close();
+        return false;
+      }
+      return true;
+    }
+
+    private void writeUnlimited() {
+      while (streaming && context.channel().isWritable() && writeNext()) { }
+      context.flush();
+    }
+
+    private void writeDue() {
+      long due = (long) ((nanoClock.getAsLong() - startNs) * messageRate / 1000000000d);
+
+      while (streaming && written < due && context.channel().isWritable() && writeNext()) { }
+      context.flush();
+    }
+
+    private void startStreaming() {
+      streaming = true;
+
+      if (messageRate > 0d) {
+        ticker = context.executor().scheduleAtFixedRate(this::writeDue, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+      } else {
+        writeUnlimited();
+      }
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext context) {
+      this.context = context;
+      context.writeAndFlush(proto.capabilities(0d, 0d, 0, minFrequency, maxFrequency, sampleRate));
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext context, Object msg) {
+      BaseMessage.Reader message = (BaseMessage.Reader) msg;
+
+      switch (message.getType()) {
+        case CHANNEL_REQUEST:
+          if (failures.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+            context.writeAndFlush(proto.error(failureCode));
+          } else if (streams.size() >= maxChannels) {
+            context.writeAndFlush(proto.error(Error.ERROR_BANDWIDTH_UNAVAILABLE));
+          } else {
+            startNs = nanoClock.getAsLong();
+            streams.add(this);
+            context.writeAndFlush(proto.state(sampleRate, message.getChannelRequest().getCenterFrequency()));
+            startStreaming();
+          }
+          break;
+
+        default:
+          break;
+      }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext context) {
+      if (streaming && messageRate <= 0d) {
+        writeUnlimited();
+      }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext context) {
+      streaming = false;
+      streams.remove(this);
+      if (ticker != null) {
+        ticker.cancel(false);
+      }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext context, Throwable cause) {
+      context.close();
+    }
+  }
+
+  private static String arg(String[] args, int index, String fallback) {
+    return (args.length > index) ? args[index] : fallback;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int     port              = Integer.parseInt(arg(args, 0, "7070"));
+    long    sampleRate        = Long.parseLong(arg(args, 1, "48000"));
+    int     samplesPerMessage = Integer.parseInt(arg(args, 2, "512"));
+    int     maxChannels       = Integer.parseInt(arg(args, 3, String.valueOf(Integer.MAX_VALUE)));
+    boolean compactSamples    = Boolean.parseBoolean(arg(args, 4, "false"));
+    String  samplesFile       = arg(args, 5, "");
+
+    LocalChnlzrServer server = new LocalChnlzrServer(sampleRate, samplesPerMessage, compactSamples)
+        .setRealTime()
+        .setMaxChannels(maxChannels);
+
+    if (!samplesFile.isEmpty()) {
+      server.setSamplesFile(Paths.get(samplesFile), compactSamples);
+    }
+
+    HostId host = server.start("0.0.0.0", port);
+    log.info("local chnlzr streaming " + sampleRate + " sps in real time on " + host);
+
+    Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    while (true) {
+      Thread.sleep(10000l);
+      log.info(server.getChannelCount() + " channels, " + server.getMessagesSent() + " messages sent");
+    }
+  }
+
+}
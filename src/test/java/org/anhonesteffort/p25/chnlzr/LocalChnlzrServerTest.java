@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.anhonesteffort.chnlzr.ChnlzrConfig;
+import org.anhonesteffort.chnlzr.ProtocolErrorException;
+import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.ChannelRequest;
+import static org.anhonesteffort.chnlzr.capnp.Proto.Error;
+
+public class LocalChnlzrServerTest {
+
+  private static final ProtoFactory          PROTO   = new ProtoFactory();
+  private static final ChannelRequest.Reader REQUEST = PROTO.channelRequest(851000000d, 12500d, 48000l, 0l);
+
+  private EventLoopGroup group;
+
+  @Before
+  public void setup() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+    group = new NioEventLoopGroup(1);
+  }
+
+  @After
+  public void teardown() {
+    group.shutdownGracefully();
+  }
+
+  private ChnlzrController controller(HostId host) {
+    final ChnlzrConfig CONFIG = Mockito.mock(ChnlzrConfig.class);
+
+    Mockito.when(CONFIG.connectionTimeoutMs()).thenReturn(1000);
+    Mockito.when(CONFIG.idleStateThresholdMs()).thenReturn(60000l);
+    Mockito.when(CONFIG.bufferHighWaterMark()).thenReturn(32768);
+    Mockito.when(CONFIG.bufferLowWaterMark()).thenReturn(8192);
+
+    return new ChnlzrController(host, new ChnlzrConnectionFactory(CONFIG, NioSocketChannel.class, group));
+  }
+
+  private void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 1000l;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5l);
+    }
+  }
+
+  @Test
+  public void testRealTimeStreaming() throws Exception {
+    final AtomicLong        CLOCK  = new AtomicLong(0l);
+    final LocalChnlzrServer SERVER = new LocalChnlzrServer(48000l, 480).setRealTime().setClock(CLOCK::get);
+    final HostId            HOST   = SERVER.start();
+
+    final SamplesSourceHandler SOURCE = controller(HOST).createSourceFor(REQUEST).get(1, TimeUnit.SECONDS);
+
+    await(() -> SERVER.getChannelCount() == 1);
+    assert SERVER.getMessagesSent() == 0l;
+
+    CLOCK.set(TimeUnit.MILLISECONDS.toNanos(100l));
+    await(() -> SERVER.getMessagesSent() >= 10l);
+    assert SERVER.getMessagesSent() == 10l;
+
+    CLOCK.set(TimeUnit.MILLISECONDS.toNanos(500l));
+    await(() -> SERVER.getMessagesSent() >= 50l);
+    assert SERVER.getMessagesSent() == 50l;
+
+    SOURCE.close();
+    SERVER.stop();
+  }
+
+  @Test
+  public void testMaxChannels() throws Exception {
+    final LocalChnlzrServer SERVER     = new LocalChnlzrServer(48000l, 480).setRealTime().setMaxChannels(1);
+    final HostId            HOST       = SERVER.start();
+    final ChnlzrController  CONTROLLER = controller(HOST);
+
+    final SamplesSourceHandler SOURCE = CONTROLLER.createSourceFor(REQUEST).get(1, TimeUnit.SECONDS);
+    assert SERVER.getChannelCount() == 1;
+
+    try {
+      CONTROLLER.createSourceFor(REQUEST).get(1, TimeUnit.SECONDS);
+      assert false;
+    } catch (ExecutionException e) {
+      assert e.getCause() instanceof ProtocolErrorException;
+    }
+
+    SOURCE.close();
+    SERVER.stop();
+  }
+
+  @Test
+  public void testInjectedFailures() throws Exception {
+    final LocalChnlzrServer SERVER     = new LocalChnlzrServer(48000l, 480).setRealTime();
+    final HostId            HOST       = SERVER.start();
+    final ChnlzrController  CONTROLLER = controller(HOST);
+
+    SERVER.failNextRequests(1, Error.ERROR_BANDWIDTH_UNAVAILABLE);
+
+    try {
+      CONTROLLER.createSourceFor(REQUEST).get(1, TimeUnit.SECONDS);
+      assert false;
+    } catch (ExecutionException e) {
+      assert e.getCause() instanceof ProtocolErrorException;
+    }
+
+    final SamplesSourceHandler SOURCE = CONTROLLER.createSourceFor(REQUEST).get(1, TimeUnit.SECONDS);
+    assert !SOURCE.getCloseFuture().isDone();
+
+    SERVER.disconnectAll();
+    SOURCE.getCloseFuture().get(1, TimeUnit.SECONDS);
+
+    SERVER.stop();
+  }
+
+  @Test
+  public void testDisconnectAfter() throws Exception {
+    final LocalChnlzrServer SERVER = new LocalChnlzrServer(48000l, 480).setDisconnectAfter(10l);
+    final HostId            HOST   = SERVER.start();
+
+    final SamplesSourceHandler SOURCE = controller(HOST).createSourceFor(REQUEST).get(1, TimeUnit.SECONDS);
+
+    SOURCE.getCloseFuture().get(1, TimeUnit.SECONDS);
+    assert SERVER.getMessagesSent() == 10l;
+
+    SERVER.stop();
+  }
+
+}
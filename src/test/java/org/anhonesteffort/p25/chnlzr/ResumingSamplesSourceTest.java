@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.anhonesteffort.chnlzr.ProtocolErrorException;
+import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
+import org.anhonesteffort.dsp.DynamicSink;
+import org.anhonesteffort.dsp.sample.Samples;
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.QualifyChannelId;
+import org.anhonesteffort.p25.sample.SamplesQueueTracker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.ChannelRequest;
+
+public class ResumingSamplesSourceTest {
+
+  private static final ProtoFactory          PROTO   = new ProtoFactory();
+  private static final ChannelRequest.Reader REQUEST = PROTO.channelRequest(40d, 50d, 60l, 70l);
+
+  private ScheduledExecutorService scheduler;
+
+  @Before
+  public void setup() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @After
+  public void teardown() {
+    scheduler.shutdownNow();
+  }
+
+  private SamplesSourceHandler source(SettableFuture<Void> closeFuture) {
+    final SamplesSourceHandler SOURCE = Mockito.mock(SamplesSourceHandler.class);
+    Mockito.when(SOURCE.getCloseFuture()).thenReturn(closeFuture);
+    Mockito.when(SOURCE.getEventLoop()).thenReturn(scheduler);
+    return SOURCE;
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testResumeReattachesSink() throws Exception {
+    final SettableFuture<Void>  DROPPED_CLOSE = SettableFuture.create();
+    final SamplesSourceHandler  DROPPED       = source(DROPPED_CLOSE);
+    final SamplesSourceHandler  RESUMED       = source(SettableFuture.create());
+    final ChnlzrController      CHNLZR        = Mockito.mock(ChnlzrController.class);
+    final DynamicSink<Samples>  SINK          = Mockito.mock(DynamicSink.class);
+    final SamplesQueueTracker   QUEUE         = new SamplesQueueTracker(new QualifyChannelId(10d), 4, 3, 1, false);
+    final ResumingSamplesSource SOURCE        = new ResumingSamplesSource(CHNLZR, REQUEST, DROPPED, 1000l, 10l);
+
+    Mockito.when(CHNLZR.createSourceFor(REQUEST)).thenReturn(Futures.immediateFuture(RESUMED));
+
+    SOURCE.setSink(SINK, QUEUE);
+    Mockito.verify(DROPPED).setSink(SINK, QUEUE);
+
+    DROPPED_CLOSE.setException(new IOException("connection reset"));
+
+    Mockito.verify(RESUMED, Mockito.timeout(1000)).setSink(Mockito.eq(SINK), Mockito.any());
+    assert !SOURCE.getCloseFuture().isDone();
+
+    SOURCE.close();
+    Mockito.verify(RESUMED).close();
+    assert SOURCE.getCloseFuture().isDone();
+  }
+
+  @Test
+  public void testRetryUntilResumed() throws Exception {
+    final SettableFuture<Void>  DROPPED_CLOSE = SettableFuture.create();
+    final SamplesSourceHandler  DROPPED       = source(DROPPED_CLOSE);
+    final SamplesSourceHandler  RESUMED       = source(SettableFuture.create());
+    final ChnlzrController      CHNLZR        = Mockito.mock(ChnlzrController.class);
+    final ResumingSamplesSource SOURCE        = new ResumingSamplesSource(CHNLZR, REQUEST, DROPPED, 1000l, 10l);
+
+    Mockito.when(CHNLZR.createSourceFor(REQUEST))
+           .thenReturn(Futures.immediateFailedFuture(new IOException("connection refused")))
+           .thenReturn(Futures.immediateFuture(RESUMED));
+
+    DROPPED_CLOSE.set(null);
+
+    Mockito.verify(CHNLZR, Mockito.timeout(1000).times(2)).createSourceFor(REQUEST);
+    Thread.sleep(50);
+    assert !SOURCE.getCloseFuture().isDone();
+
+    SOURCE.close();
+    Mockito.verify(RESUMED).close();
+  }
+
+  @Test
+  public void testGiveUpAfterDeadline() throws Exception {
+    final SettableFuture<Void>  DROPPED_CLOSE = SettableFuture.create();
+    final SamplesSourceHandler  DROPPED       = source(DROPPED_CLOSE);
+    final ChnlzrController      CHNLZR        = Mockito.mock(ChnlzrController.class);
+    final ResumingSamplesSource SOURCE        = new ResumingSamplesSource(CHNLZR, REQUEST, DROPPED, 50l, 10l);
+
+    Mockito.when(CHNLZR.createSourceFor(REQUEST))
+           .thenReturn(Futures.immediateFailedFuture(new IOException("connection refused")));
+
+    DROPPED_CLOSE.set(null);
+
+    try {
+      SOURCE.getCloseFuture().get(1000l, TimeUnit.MILLISECONDS);
+      assert false;
+    } catch (ExecutionException e) {
+      assert e.getCause() instanceof IOException;
+    }
+  }
+
+  @Test
+  public void testNoResumeOnProtocolError() throws Exception {
+    final SettableFuture<Void>  DROPPED_CLOSE = SettableFuture.create();
+    final SamplesSourceHandler  DROPPED       = source(DROPPED_CLOSE);
+    final ChnlzrController      CHNLZR        = Mockito.mock(ChnlzrController.class);
+    final ResumingSamplesSource SOURCE        = new ResumingSamplesSource(CHNLZR, REQUEST, DROPPED, 1000l, 10l);
+
+    DROPPED_CLOSE.setException(new ProtocolErrorException("revoked", 1));
+
+    assert SOURCE.getCloseFuture().isDone();
+    Mockito.verify(CHNLZR, Mockito.never()).createSourceFor(Mockito.any());
+  }
+
+  @Test
+  public void testNoResumeOnFormatCheckFailure() throws Exception {
+    final SettableFuture<Void>  DROPPED_CLOSE = SettableFuture.create();
+    final SamplesSourceHandler  DROPPED       = source(DROPPED_CLOSE);
+    final ChnlzrController      CHNLZR        = Mockito.mock(ChnlzrController.class);
+    final ResumingSamplesSource SOURCE        = new ResumingSamplesSource(CHNLZR, REQUEST, DROPPED, 1000l, 10l);
+
+    DROPPED_CLOSE.setException(new IllegalStateException("chnlzr sent unexpected while streaming"));
+
+    assert SOURCE.getCloseFuture().isDone();
+    Mockito.verify(CHNLZR, Mockito.never()).createSourceFor(Mockito.any());
+  }
+
+  @Test
+  public void testNoResumeWhenDisabled() throws Exception {
+    final SettableFuture<Void>  DROPPED_CLOSE = SettableFuture.create();
+    final SamplesSourceHandler  DROPPED       = source(DROPPED_CLOSE);
+    final ChnlzrController      CHNLZR        = Mockito.mock(ChnlzrController.class);
+    final ResumingSamplesSource SOURCE        = new ResumingSamplesSource(CHNLZR, REQUEST, DROPPED, 0l, 10l);
+
+    DROPPED_CLOSE.set(null);
+
+    assert SOURCE.getCloseFuture().isDone();
+    Mockito.verify(CHNLZR, Mockito.never()).createSourceFor(Mockito.any());
+  }
+
+}
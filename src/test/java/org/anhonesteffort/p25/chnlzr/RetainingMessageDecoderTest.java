@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
+import org.capnproto.MessageBuilder;
+import org.capnproto.Serialize;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.BaseMessage;
+
+public class RetainingMessageDecoderTest {
+
+  private static final ProtoFactory PROTO = new ProtoFactory();
+
+  private byte[] serialize(MessageBuilder message) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Serialize.write(Channels.newChannel(bytes), message);
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testDecodeWholeFrame() throws Exception {
+    final EmbeddedChannel CHANNEL = new EmbeddedChannel(new RetainingMessageDecoder());
+    final byte[]          FRAME   = serialize(PROTO.state(10l, 20d));
+
+    CHANNEL.writeInbound(Unpooled.wrappedBuffer(FRAME));
+
+    final BaseMessage.Reader MESSAGE = (BaseMessage.Reader) CHANNEL.readInbound();
+
+    assert MESSAGE.getChannelState().getSampleRate()      == 10l;
+    assert MESSAGE.getChannelState().getCenterFrequency() == 20d;
+    assert CHANNEL.readInbound() == null;
+  }
+
+  @Test
+  public void testDecodeSplitFrame() throws Exception {
+    final EmbeddedChannel CHANNEL = new EmbeddedChannel(new RetainingMessageDecoder());
+    final byte[]          FRAME   = serialize(PROTO.state(10l, 20d));
+
+    CHANNEL.writeInbound(Unpooled.wrappedBuffer(FRAME, 0, 3));
+    assert CHANNEL.readInbound() == null;
+
+    CHANNEL.writeInbound(Unpooled.wrappedBuffer(FRAME, 3, FRAME.length - 4));
+    assert CHANNEL.readInbound() == null;
+
+    CHANNEL.writeInbound(Unpooled.wrappedBuffer(FRAME, FRAME.length - 1, 1));
+
+    final BaseMessage.Reader MESSAGE = (BaseMessage.Reader) CHANNEL.readInbound();
+
+    assert MESSAGE.getChannelState().getSampleRate() == 10l;
+  }
+
+  @Test
+  public void testDecodeBackToBackFrames() throws Exception {
+    final EmbeddedChannel CHANNEL = new EmbeddedChannel(new RetainingMessageDecoder());
+    final byte[]          FIRST   = serialize(PROTO.state(10l, 20d));
+    final byte[]          SECOND  = serialize(PROTO.state(30l, 40d));
+
+    CHANNEL.writeInbound(Unpooled.wrappedBuffer(FIRST, SECOND));
+
+    assert ((BaseMessage.Reader) CHANNEL.readInbound()).getChannelState().getSampleRate() == 10l;
+    assert ((BaseMessage.Reader) CHANNEL.readInbound()).getChannelState().getSampleRate() == 30l;
+  }
+
+}
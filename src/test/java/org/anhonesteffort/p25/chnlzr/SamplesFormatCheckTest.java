@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import org.junit.Test;
+
+public class SamplesFormatCheckTest {
+
+  private static final long SAMPLE_RATE   = 48000l;
+  private static final long MS            = 1_000_000l;
+  private static final int  FLOAT32_BYTES = 480 * 8;
+  private static final int  INT16_BYTES   = 480 * 4;
+
+  private boolean stream(SamplesFormatCheck check, int bytesPerMessage, int messages) {
+    boolean matched = true;
+    for (int i = 0; i < messages; i++) {
+      matched &= check.onMessage(bytesPerMessage, i * 10 * MS);
+    }
+    return matched;
+  }
+
+  @Test
+  public void testDeclaredFormatsMatch() {
+    assert stream(new SamplesFormatCheck(false, SAMPLE_RATE), FLOAT32_BYTES, 200);
+    assert stream(new SamplesFormatCheck(true,  SAMPLE_RATE), INT16_BYTES,   200);
+  }
+
+  @Test
+  public void testFloat32DeclaredAsCompactFails() {
+    final SamplesFormatCheck CHECK = new SamplesFormatCheck(true, SAMPLE_RATE);
+
+    assert  stream(CHECK, FLOAT32_BYTES, 100);
+    assert !CHECK.onMessage(FLOAT32_BYTES, 100 * 10 * MS);
+    assert Math.abs(CHECK.getBytesPerSample() - 8d) < 0.1d;
+  }
+
+  @Test
+  public void testInt16DeclaredAsFloatFails() {
+    final SamplesFormatCheck CHECK = new SamplesFormatCheck(false, SAMPLE_RATE);
+
+    assert !stream(CHECK, INT16_BYTES, 200);
+    assert Math.abs(CHECK.getBytesPerSample() - 4d) < 0.1d;
+  }
+
+  @Test
+  public void testStateChangeRestartsWindow() {
+    final SamplesFormatCheck CHECK   = new SamplesFormatCheck(false, SAMPLE_RATE);
+          boolean            matched = stream(CHECK, FLOAT32_BYTES, 50);
+
+    CHECK.onStateChange(SAMPLE_RATE * 2);
+    for (int i = 0; i < 200; i++) {
+      matched &= CHECK.onMessage(FLOAT32_BYTES * 2, (1000 + (i * 10)) * MS);
+    }
+
+    assert matched;
+    assert Math.abs(CHECK.getBytesPerSample() - 8d) < 0.1d;
+  }
+
+  @Test
+  public void testPauseMidWindowIsNotAMismatch() {
+    final SamplesFormatCheck CHECK   = new SamplesFormatCheck(false, SAMPLE_RATE);
+          boolean            matched = stream(CHECK, FLOAT32_BYTES, 50);
+
+    CHECK.onFlowControlChange(500 * MS);
+    CHECK.onFlowControlChange(2500 * MS);
+
+    for (int i = 0; i < 200; i++) {
+      matched &= CHECK.onMessage(FLOAT32_BYTES, (2500 + (i / 20)) * MS);
+    }
+    for (int i = 0; i < 200; i++) {
+      matched &= CHECK.onMessage(FLOAT32_BYTES, (2510 + (i * 10)) * MS);
+    }
+
+    assert matched;
+    assert Math.abs(CHECK.getBytesPerSample() - 8d) < 0.1d;
+  }
+
+  @Test
+  public void testMismatchStillCaughtAfterPause() {
+    final SamplesFormatCheck CHECK = new SamplesFormatCheck(false, SAMPLE_RATE);
+
+    CHECK.onFlowControlChange(0l);
+    CHECK.onFlowControlChange(100 * MS);
+
+    assert !stream(CHECK, INT16_BYTES, 200);
+    assert Math.abs(CHECK.getBytesPerSample() - 4d) < 0.1d;
+  }
+
+  @Test
+  public void testUnknownRateIsNotChecked() {
+    assert stream(new SamplesFormatCheck(true, 0l), FLOAT32_BYTES, 200);
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.anhonesteffort.chnlzr.capnp.ProtoFactory;
+import org.anhonesteffort.dsp.DynamicSink;
+import org.anhonesteffort.dsp.sample.Samples;
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.anhonesteffort.chnlzr.capnp.Proto.BaseMessage;
+import static org.anhonesteffort.chnlzr.capnp.Proto.Capabilities;
+import static org.anhonesteffort.chnlzr.capnp.Proto.ChannelState;
+
+public class SamplesSourceHandlerTest {
+
+  private static final ProtoFactory PROTO = new ProtoFactory();
+
+  @Before
+  public void setup() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+  }
+
+  private ChannelHandlerContext context() {
+    final ChannelHandlerContext CONTEXT = Mockito.mock(ChannelHandlerContext.class);
+    final Channel               CHANNEL = Mockito.mock(Channel.class);
+    final EventLoop             LOOP    = Mockito.mock(EventLoop.class);
+
+    Mockito.when(CONTEXT.channel()).thenReturn(CHANNEL);
+    Mockito.when(CHANNEL.closeFuture()).thenReturn(Mockito.mock(ChannelFuture.class));
+    Mockito.when(CHANNEL.eventLoop()).thenReturn(LOOP);
+    Mockito.doAnswer(invocation -> {
+      ((Runnable) invocation.getArguments()[0]).run();
+      return null;
+    }).when(LOOP).execute(Mockito.any(Runnable.class));
+    Mockito.doReturn(Mockito.mock(ScheduledFuture.class)).when(LOOP).schedule(
+        Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.eq(TimeUnit.MILLISECONDS)
+    );
+
+    return CONTEXT;
+  }
+
+  private SamplesSourceHandler handler(SamplesSourceOptions options) {
+    final Capabilities.Reader CAPABILITIES = PROTO.capabilities(10d, 20d, 0, 30d, 40d, 50l).getRoot(BaseMessage.factory).asReader().getCapabilities();
+    final ChannelState.Reader STATE        = PROTO.state(48000l, 851000000d).getRoot(BaseMessage.factory).asReader().getChannelState();
+
+    return new SamplesSourceHandler(context(), CAPABILITIES, STATE, new IngestMonitor(), options, new SetupTimer());
+  }
+
+  private RetainedSamples samples(float ... floats) {
+    final ByteBuffer PAYLOAD = ByteBuffer.allocate(floats.length * Float.BYTES);
+    for (float sample : floats) {
+      PAYLOAD.putFloat(sample);
+    }
+    PAYLOAD.flip();
+    return new RetainedSamples(Unpooled.buffer(PAYLOAD.remaining()), PAYLOAD);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testSinkSwapFlushesCoalescedSamples() throws Exception {
+    final SamplesSourceHandler HANDLER = handler(new SamplesSourceOptions(4, 1000l, false));
+    final DynamicSink<Samples> FIRST   = Mockito.mock(DynamicSink.class);
+    final DynamicSink<Samples> SECOND  = Mockito.mock(DynamicSink.class);
+
+    HANDLER.setSink(FIRST);
+    HANDLER.channelRead(null, samples(1f, 2f));
+    Mockito.verify(FIRST, Mockito.never()).consume(Mockito.any());
+
+    HANDLER.setSink(SECOND);
+
+    Mockito.verify(FIRST,  Mockito.times(1)).consume(Mockito.any());
+    Mockito.verify(SECOND, Mockito.never()).consume(Mockito.any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRetainedSamplesReleasedWhenSinkThrows() throws Exception {
+    final SamplesSourceHandler HANDLER = handler(new SamplesSourceOptions());
+    final DynamicSink<Samples> SINK    = Mockito.mock(DynamicSink.class);
+    final RetainedSamples      SAMPLES = samples(1f, 2f);
+
+    Mockito.doThrow(new IllegalStateException("sink failed")).when(SINK).consume(Mockito.any());
+    HANDLER.setSink(SINK);
+
+    try {
+
+      HANDLER.channelRead(null, SAMPLES);
+      assert false;
+
+    } catch (IllegalStateException e) {
+      assert SAMPLES.refCnt() == 0;
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.ChannelId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class SetupTimerTest {
+
+  @Before
+  public void mockMetrics() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+  }
+
+  @Test
+  public void testRequestPhasesWaitForType() {
+    final HostId          HOST    = new HostId("setup-timer-type", 1);
+    final SetupTimer      TIMER   = new SetupTimer(HOST);
+    final P25DcodrMetrics METRICS = P25DcodrMetrics.getInstance();
+
+    TIMER.onConnected();
+    TIMER.onCapabilities();
+    Mockito.verify(METRICS).chnlzrSetupConnect(Mockito.eq(HOST), Mockito.anyLong());
+    Mockito.verify(METRICS).chnlzrSetupCapabilities(Mockito.eq(HOST), Mockito.anyLong());
+
+    TIMER.onRequestSent();
+    TIMER.onChannelState();
+    TIMER.onSamples();
+    Mockito.verify(METRICS, Mockito.never()).chnlzrSetupChannelState(Mockito.eq(HOST), Mockito.any(), Mockito.anyLong());
+
+    TIMER.setChannelType(ChannelId.Type.CONTROL);
+    TIMER.onSamples();
+
+    Mockito.verify(METRICS).chnlzrSetupChannelState(Mockito.eq(HOST), Mockito.eq(ChannelId.Type.CONTROL), Mockito.anyLong());
+    Mockito.verify(METRICS).chnlzrSetupFirstSamples(Mockito.eq(HOST), Mockito.eq(ChannelId.Type.CONTROL), Mockito.anyLong());
+  }
+
+  @Test
+  public void testSamplesBeforeRequestIgnored() {
+    final HostId          HOST    = new HostId("setup-timer-early", 1);
+    final SetupTimer      TIMER   = new SetupTimer(HOST);
+    final P25DcodrMetrics METRICS = P25DcodrMetrics.getInstance();
+
+    TIMER.setChannelType(ChannelId.Type.TRAFFIC_GROUP);
+    TIMER.onSamples();
+
+    Mockito.verify(METRICS, Mockito.never()).chnlzrSetupFirstSamples(Mockito.eq(HOST), Mockito.any(), Mockito.anyLong());
+  }
+
+  @Test
+  public void testCapabilitiesBeforeConnectIgnored() {
+    final HostId          HOST    = new HostId("setup-timer-unconnected", 1);
+    final SetupTimer      TIMER   = new SetupTimer(HOST);
+    final P25DcodrMetrics METRICS = P25DcodrMetrics.getInstance();
+
+    TIMER.onCapabilities();
+
+    Mockito.verify(METRICS, Mockito.never()).chnlzrSetupCapabilities(Mockito.eq(HOST), Mockito.anyLong());
+  }
+
+}
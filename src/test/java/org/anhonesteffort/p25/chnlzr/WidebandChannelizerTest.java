@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.chnlzr;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.anhonesteffort.chnlzr.ProtocolErrorException;
+import org.anhonesteffort.p25.P25Config;
+import org.anhonesteffort.p25.P25DcodrConfig;
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.ChannelPlan;
+import org.anhonesteffort.p25.model.WidebandChannelId;
+import org.anhonesteffort.p25.monitor.PartitionedDspPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class WidebandChannelizerTest {
+
+  private static final Optional<ChannelPlan> PLAN = Optional.of(new ChannelPlan(851000000d, 851500000d));
+
+  private ScheduledExecutorService scheduler;
+
+  @Before
+  public void setup() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @After
+  public void teardown() {
+    scheduler.shutdownNow();
+  }
+
+  private P25DcodrConfig config(long idleMs) {
+    P25DcodrConfig config = Mockito.mock(P25DcodrConfig.class);
+    Mockito.when(config.getP25Config()).thenReturn(new P25Config());
+    Mockito.when(config.getWidebandBandwidth()).thenReturn(1000000d);
+    Mockito.when(config.getWidebandTapsPerPhase()).thenReturn(16);
+    Mockito.when(config.getWidebandIdleMs()).thenReturn(idleMs);
+    Mockito.when(config.getChannelRequestTimeoutMs()).thenReturn(1000l);
+    Mockito.when(config.getStreamResumeTimeoutMs()).thenReturn(0l);
+    Mockito.when(config.getStreamResumeRetryDelayMs()).thenReturn(10l);
+    Mockito.when(config.getSamplesQueueSize()).thenReturn(20);
+    Mockito.when(config.getSamplesHighWaterMark()).thenReturn(16);
+    Mockito.when(config.getSamplesLowWaterMark()).thenReturn(4);
+    return config;
+  }
+
+  private PartitionedDspPool dspPool() {
+    final PartitionedDspPool DSP_POOL = Mockito.mock(PartitionedDspPool.class);
+    Mockito.when(DSP_POOL.submit(Mockito.any(), Mockito.any())).thenReturn(SettableFuture.create());
+    return DSP_POOL;
+  }
+
+  private SamplesSourceHandler source() {
+    final SamplesSourceHandler SOURCE = Mockito.mock(SamplesSourceHandler.class);
+    Mockito.when(SOURCE.getCloseFuture()).thenReturn(SettableFuture.create());
+    return SOURCE;
+  }
+
+  @Test
+  public void testCenterFavorsChannelPlan() {
+    assert WidebandChannelizer.centerFor(851100000d, PLAN,             1000000d) == 851250000d;
+    assert WidebandChannelizer.centerFor(851100000d, Optional.empty(), 1000000d) == 851100000d;
+    assert WidebandChannelizer.centerFor(853000000d, PLAN,             1000000d) == 853000000d - 493750d;
+  }
+
+  @Test
+  public void testTapsInsideBandShareOneStream() throws Exception {
+    final SettableFuture<SamplesSourceHandler> SOURCE_FUTURE = SettableFuture.create();
+    final ChnlzrController                     CHNLZR        = Mockito.mock(ChnlzrController.class);
+
+    Mockito.when(CHNLZR.createSourceFor(Mockito.any(), Mockito.eq(true))).thenReturn(SOURCE_FUTURE);
+
+    final WidebandChannelizer                  WIDEBAND = new WidebandChannelizer(config(60000l), CHNLZR, dspPool(), scheduler);
+    final ListenableFuture<WidebandSource.Tap> FIRST    = WIDEBAND.tapFor(851100000d, PLAN);
+    final ListenableFuture<WidebandSource.Tap> SECOND   = WIDEBAND.tapFor(851400000d, PLAN);
+
+    Mockito.verify(CHNLZR, Mockito.times(1)).createSourceFor(Mockito.any(), Mockito.eq(true));
+    assert !FIRST.isDone() && !SECOND.isDone();
+
+    SOURCE_FUTURE.set(source());
+
+    assert FIRST.get()  != null;
+    assert SECOND.get() != null;
+    assert WIDEBAND.getSourceCount() == 1;
+  }
+
+  @Test
+  public void testTapOutsideBandOpensNewStream() {
+    final ChnlzrController    CHNLZR   = Mockito.mock(ChnlzrController.class);
+    final WidebandChannelizer WIDEBAND = new WidebandChannelizer(config(60000l), CHNLZR, dspPool(), scheduler);
+
+    Mockito.when(CHNLZR.createSourceFor(Mockito.any(), Mockito.eq(true))).thenReturn(SettableFuture.create());
+
+    WIDEBAND.tapFor(851100000d, PLAN);
+    WIDEBAND.tapFor(853000000d, PLAN);
+
+    Mockito.verify(CHNLZR, Mockito.times(2)).createSourceFor(Mockito.any(), Mockito.eq(true));
+    assert WIDEBAND.getSourceCount() == 2;
+  }
+
+  @Test
+  public void testDeniedStreamFailsTap() throws Exception {
+    final ChnlzrController       CHNLZR   = Mockito.mock(ChnlzrController.class);
+    final WidebandChannelizer    WIDEBAND = new WidebandChannelizer(config(60000l), CHNLZR, dspPool(), scheduler);
+    final ProtocolErrorException DENIED   = new ProtocolErrorException("denied", 1);
+
+    Mockito.when(CHNLZR.createSourceFor(Mockito.any(), Mockito.eq(true))).thenReturn(
+        Futures.immediateFailedFuture(DENIED)
+    );
+
+    final ListenableFuture<WidebandSource.Tap> TAP = WIDEBAND.tapFor(851100000d, PLAN);
+
+    try {
+
+      TAP.get();
+      assert false;
+
+    } catch (ExecutionException e) {
+      assert e.getCause() == DENIED;
+    }
+
+    assert WIDEBAND.getSourceCount() == 0;
+  }
+
+  @Test
+  public void testRejectedDspTaskFailsTap() throws Exception {
+    final ChnlzrController           CHNLZR   = Mockito.mock(ChnlzrController.class);
+    final PartitionedDspPool         DSP_POOL = Mockito.mock(PartitionedDspPool.class);
+    final WidebandChannelizer        WIDEBAND = new WidebandChannelizer(config(60000l), CHNLZR, DSP_POOL, scheduler);
+    final RejectedExecutionException REJECTED = new RejectedExecutionException("no dsp slot left for traffic");
+
+    Mockito.when(DSP_POOL.submit(Mockito.any(), Mockito.any())).thenThrow(REJECTED);
+
+    final ListenableFuture<WidebandSource.Tap> TAP = WIDEBAND.tapFor(851100000d, PLAN);
+
+    try {
+
+      TAP.get();
+      assert false;
+
+    } catch (ExecutionException e) {
+      assert e.getCause() == REJECTED;
+    }
+
+    Mockito.verify(CHNLZR, Mockito.never()).createSourceFor(Mockito.any(), Mockito.anyBoolean());
+    assert WIDEBAND.getSourceCount() == 0;
+  }
+
+  @Test
+  public void testFinishedDspTaskClosesStream() throws Exception {
+    final SamplesSourceHandler SOURCE   = source();
+    final ChnlzrController     CHNLZR   = Mockito.mock(ChnlzrController.class);
+    final PartitionedDspPool   DSP_POOL = Mockito.mock(PartitionedDspPool.class);
+    final SettableFuture<Void> DSP      = SettableFuture.create();
+    final WidebandChannelizer  WIDEBAND = new WidebandChannelizer(config(60000l), CHNLZR, DSP_POOL, scheduler);
+
+    Mockito.when(DSP_POOL.submit(Mockito.any(), Mockito.<Callable<Void>>any())).thenReturn(DSP);
+    Mockito.when(CHNLZR.createSourceFor(Mockito.any(), Mockito.eq(true))).thenReturn(
+        Futures.immediateFuture(SOURCE)
+    );
+
+    final WidebandSource.Tap TAP = WIDEBAND.tapFor(851100000d, PLAN).get();
+
+    Mockito.verify(DSP_POOL).submit(Mockito.eq(new WidebandChannelId(851250000d)), Mockito.any());
+    DSP.setException(new IllegalStateException("channelizer failed"));
+
+    Mockito.verify(SOURCE, Mockito.timeout(1000)).close();
+    assert TAP.getCloseFuture().isDone();
+    assert WIDEBAND.getSourceCount() == 0;
+  }
+
+  @Test
+  public void testIdleStreamClosedAfterLastTap() throws Exception {
+    final SamplesSourceHandler SOURCE   = source();
+    final ChnlzrController     CHNLZR   = Mockito.mock(ChnlzrController.class);
+    final WidebandChannelizer  WIDEBAND = new WidebandChannelizer(config(10l), CHNLZR, dspPool(), scheduler);
+
+    Mockito.when(CHNLZR.createSourceFor(Mockito.any(), Mockito.eq(true))).thenReturn(
+        Futures.immediateFuture(SOURCE)
+    );
+
+    final WidebandSource.Tap TAP = WIDEBAND.tapFor(851100000d, PLAN).get();
+    assert WIDEBAND.getSourceCount() == 1;
+
+    TAP.close();
+
+    Mockito.verify(SOURCE, Mockito.timeout(1000)).close();
+    assert TAP.getCloseFuture().isDone();
+  }
+
+}
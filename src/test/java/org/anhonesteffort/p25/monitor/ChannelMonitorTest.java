@@ -28,6 +28,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.Arrays;
 import java.util.concurrent.Future;
 
 public class ChannelMonitorTest {
@@ -39,6 +40,22 @@ public class ChannelMonitorTest {
     return config;
   }
 
+  private P25DcodrConfig preemptingConfig() {
+    P25DcodrConfig config = config();
+    Mockito.when(config.getPreemptTrafficChannels()).thenReturn(true);
+    Mockito.when(config.getDefaultTalkgroupPriority()).thenReturn(1);
+    Mockito.when(config.getTalkgroupPriorities()).thenReturn(Arrays.asList(
+        new TalkgroupPriorityConfig(null, null, 50, 5),
+        new TalkgroupPriorityConfig(null, 20,   50, 9),
+        new TalkgroupPriorityConfig(null, null, 70, 0)
+    ));
+    return config;
+  }
+
+  private Identifiable capture(int systemId, int groupId) {
+    return new GroupCaptureRequest(10d, 20d, 0, 1337d, new GroupChannelId(10, systemId, 30, 40, groupId, 60d));
+  }
+
   @Before
   public void mockMetrics() {
     final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
@@ -182,4 +199,61 @@ public class ChannelMonitorTest {
     assert !MONITOR.contains(id);
   }
 
+  @Test
+  public void testPriorityOf() {
+    final ChannelMonitor MONITOR = new ChannelMonitor(preemptingConfig());
+
+    assert MONITOR.priorityOf(capture(20, 50)) == 9;
+    assert MONITOR.priorityOf(capture(21, 50)) == 5;
+    assert MONITOR.priorityOf(capture(20, 70)) == 0;
+    assert MONITOR.priorityOf(capture(20, 71)) == 1;
+  }
+
+  @Test
+  public void testPreemptLowestPriority() {
+    final ChannelMonitor  MONITOR = new ChannelMonitor(preemptingConfig());
+    final Future          LOW     = Mockito.mock(Future.class);
+    final Future          MEDIUM  = Mockito.mock(Future.class);
+    final DataUnitCounter COUNTER = Mockito.mock(GroupTrafficChannelCapture.class);
+
+    assert MONITOR.monitor(capture(21, 50), MEDIUM, COUNTER);
+    assert MONITOR.monitor(capture(20, 70), LOW,    COUNTER);
+
+    assert !MONITOR.canPreempt(capture(21, 70));
+    assert  MONITOR.canPreempt(capture(20, 71));
+    assert  MONITOR.canPreempt(capture(20, 50));
+    assert MONITOR.preempt(capture(20, 50));
+
+    Mockito.verify(LOW, Mockito.times(1)).cancel(true);
+    Mockito.verify(MEDIUM, Mockito.never()).cancel(Mockito.anyBoolean());
+    assert !MONITOR.contains(capture(20, 70).getChannelId());
+
+    assert MONITOR.preempt(capture(20, 50));
+    Mockito.verify(MEDIUM, Mockito.times(1)).cancel(true);
+    assert !MONITOR.preempt(capture(20, 50));
+  }
+
+  @Test
+  public void testNoPreemptEqualPriority() {
+    final ChannelMonitor  MONITOR = new ChannelMonitor(preemptingConfig());
+    final Future          FUTURE  = Mockito.mock(Future.class);
+    final DataUnitCounter COUNTER = Mockito.mock(GroupTrafficChannelCapture.class);
+
+    assert MONITOR.monitor(capture(21, 50), FUTURE, COUNTER);
+    assert !MONITOR.canPreempt(capture(22, 50));
+    assert !MONITOR.preempt(capture(22, 50));
+    Mockito.verify(FUTURE, Mockito.never()).cancel(Mockito.anyBoolean());
+  }
+
+  @Test
+  public void testNoPreemptWhenDisabled() {
+    final ChannelMonitor  MONITOR = new ChannelMonitor(config());
+    final Future          FUTURE  = Mockito.mock(Future.class);
+    final DataUnitCounter COUNTER = Mockito.mock(GroupTrafficChannelCapture.class);
+
+    assert MONITOR.monitor(capture(20, 70), FUTURE, COUNTER);
+    assert !MONITOR.preempt(capture(20, 50));
+    Mockito.verify(FUTURE, Mockito.never()).cancel(Mockito.anyBoolean());
+  }
+
 }
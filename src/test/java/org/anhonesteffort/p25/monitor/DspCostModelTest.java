@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.monitor;
+
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.ChannelId;
+import org.anhonesteffort.p25.model.ControlChannelId;
+import org.anhonesteffort.p25.model.GroupChannelId;
+import org.anhonesteffort.p25.model.QualifyChannelId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DspCostModelTest {
+
+  private static final ChannelId CONTROL = new ControlChannelId(10, 20, 30, 40);
+  private static final ChannelId TRAFFIC = new GroupChannelId(10, 20, 30, 40, 50, 60d);
+
+  @Before
+  public void mockMetrics() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+  }
+
+  @Test
+  public void testHeadroom() {
+    final DspCostModel COSTS = new DspCostModel(1d, 0.4d, threadId -> -1l, System::nanoTime);
+
+    assert COSTS.tryCharge(CONTROL, 0d).isPresent();
+    assert COSTS.tryCharge(TRAFFIC, 0d).isPresent();
+    assert !COSTS.canAdmit(ChannelId.Type.TRAFFIC_GROUP);
+    assert !COSTS.tryCharge(TRAFFIC, 0d).isPresent();
+    assert Math.abs(COSTS.getHeadroom() - 0.2d) < 0.0001d;
+  }
+
+  @Test
+  public void testKeepCores() {
+    final DspCostModel COSTS = new DspCostModel(1d, 0.4d, threadId -> -1l, System::nanoTime);
+
+    assert  COSTS.canAdmit(ChannelId.Type.TRAFFIC_GROUP, 0.5d);
+    assert !COSTS.canAdmit(ChannelId.Type.TRAFFIC_GROUP, 0.7d);
+  }
+
+  @Test
+  public void testSlotsOnlyAdmission() {
+    final DspCostModel COSTS = new DspCostModel(1d, 0.4d, threadId -> -1l, threadId -> -1l, System::nanoTime, false);
+
+    for (int i = 0; i < 10; i++) {
+      assert COSTS.tryCharge(TRAFFIC, 0d).isPresent();
+    }
+
+    assert COSTS.canAdmit(ChannelId.Type.TRAFFIC_GROUP, 0.7d);
+    assert COSTS.getCharges().size() == 10;
+  }
+
+  @Test
+  public void testReleaseReturnsHeadroom() {
+    final DspCostModel        COSTS  = new DspCostModel(1d, 0.4d, threadId -> -1l, System::nanoTime);
+    final DspCostModel.Charge CHARGE = COSTS.tryCharge(new QualifyChannelId(10d), 0d).get();
+
+    CHARGE.release();
+    assert COSTS.getHeadroom() == 1d;
+  }
+
+  @Test
+  public void testCostLearnedFromCpuTime() {
+    final AtomicLong   CPU   = new AtomicLong(0l);
+    final AtomicLong   WALL  = new AtomicLong(0l);
+    final DspCostModel COSTS = new DspCostModel(4d, 0.5d, threadId -> CPU.get(), WALL::get);
+
+    COSTS.tryCharge(TRAFFIC, 0d).get().onStart();
+
+    for (int i = 0; i < 50; i++) {
+      CPU.addAndGet(100l);
+      WALL.addAndGet(1000l);
+      COSTS.sample();
+    }
+
+    assert Math.abs(COSTS.getCost(ChannelId.Type.TRAFFIC_GROUP) - 0.1d) < 0.001d;
+    assert COSTS.getCost(ChannelId.Type.CONTROL) == 0.5d;
+  }
+
+  @Test
+  public void testNotStartedIsNotMeasured() {
+    final AtomicLong   CPU   = new AtomicLong(0l);
+    final AtomicLong   WALL  = new AtomicLong(0l);
+    final DspCostModel COSTS = new DspCostModel(4d, 0.5d, threadId -> CPU.get(), WALL::get);
+
+    COSTS.tryCharge(CONTROL, 0d);
+    CPU.addAndGet(1000l);
+    WALL.addAndGet(1000l);
+    COSTS.sample();
+
+    assert COSTS.getCost(ChannelId.Type.CONTROL) == 0.5d;
+  }
+
+  @Test
+  public void testChannelAccounting() {
+    final AtomicLong          CPU    = new AtomicLong(0l);
+    final AtomicLong          ALLOC  = new AtomicLong(0l);
+    final AtomicLong          WALL   = new AtomicLong(0l);
+    final DspCostModel        COSTS  = new DspCostModel(4d, 0.5d, threadId -> CPU.get(), threadId -> ALLOC.get(), WALL::get);
+    final DspCostModel.Charge CHARGE = COSTS.tryCharge(TRAFFIC, 0d).get();
+
+    CHARGE.onStart();
+
+    for (int i = 0; i < 10; i++) {
+      CPU.addAndGet(250_000l);
+      ALLOC.addAndGet(4096l);
+      WALL.addAndGet(1_000_000l);
+      COSTS.sample();
+    }
+
+    assert CHARGE.getChannelId().equals(TRAFFIC);
+    assert CHARGE.getCpuNs() == 2_500_000l;
+    assert CHARGE.getAllocatedBytes() == 40960l;
+    assert Math.abs(CHARGE.getCores() - 0.25d) < 0.0001d;
+    assert Math.abs(CHARGE.getBytesPerSecond() - 4_096_000d) < 0.1d;
+    assert COSTS.getCharges().size() == 1;
+
+    CHARGE.release();
+    assert COSTS.getCharges().isEmpty();
+  }
+
+}
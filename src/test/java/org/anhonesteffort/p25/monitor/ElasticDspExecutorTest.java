@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.monitor;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ElasticDspExecutorTest {
+
+  @Before
+  public void mockMetrics() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+  }
+
+  private Runnable blockOn(CountDownLatch latch) {
+    return () -> {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+  }
+
+  @Test
+  public void testMinThreadsPrestarted() {
+    final ElasticDspExecutor EXECUTOR = new ElasticDspExecutor(2, 4, 60000l);
+
+    assert EXECUTOR.getPoolSize() == 2;
+    EXECUTOR.shutdownNow();
+  }
+
+  @Test
+  public void testGrowsToMaxThenRejects() throws Exception {
+    final CountDownLatch     LATCH    = new CountDownLatch(1);
+    final ElasticDspExecutor EXECUTOR = new ElasticDspExecutor(0, 3, 60000l);
+
+    assert ElasticDspExecutor.limitFor(0, 3) == 6;
+    for (int i = 0; i < 6; i++) {
+      EXECUTOR.submit(blockOn(LATCH));
+    }
+
+    assert EXECUTOR.getPoolSize() == 6;
+
+    try {
+      EXECUTOR.submit(blockOn(LATCH));
+      assert false;
+    } catch (RejectedExecutionException e) {
+      assert EXECUTOR.getQueue().isEmpty();
+    }
+
+    LATCH.countDown();
+    EXECUTOR.shutdown();
+    assert EXECUTOR.awaitTermination(1000l, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  public void testFinishingThreadDoesNotDelaySubmit() throws Exception {
+    final CountDownLatch     LATCH    = new CountDownLatch(1);
+    final ElasticDspExecutor EXECUTOR = new ElasticDspExecutor(0, 1, 60000l);
+    final Future<?>          FIRST    = EXECUTOR.submit(blockOn(LATCH));
+    final Future<?>          SECOND   = EXECUTOR.submit(() -> { });
+
+    SECOND.get(1000l, TimeUnit.MILLISECONDS);
+    assert !FIRST.isDone();
+
+    LATCH.countDown();
+    EXECUTOR.shutdownNow();
+  }
+
+  @Test
+  public void testRejectsAtOnceFromEventLoop() throws Exception {
+    final CountDownLatch     LATCH    = new CountDownLatch(1);
+    final ElasticDspExecutor EXECUTOR = new ElasticDspExecutor(0, 1, 60000l);
+    final EventLoopGroup     LOOP     = new DefaultEventLoopGroup(1);
+    final AtomicBoolean      REJECTED = new AtomicBoolean(false);
+
+    EXECUTOR.submit(blockOn(LATCH));
+    EXECUTOR.submit(blockOn(LATCH));
+
+    final long STARTED = System.nanoTime();
+
+    LOOP.submit(() -> {
+      try {
+        EXECUTOR.submit(() -> { });
+      } catch (RejectedExecutionException e) {
+        REJECTED.set(true);
+      }
+    }).get(1000l, TimeUnit.MILLISECONDS);
+
+    assert REJECTED.get();
+    assert System.nanoTime() - STARTED < TimeUnit.MILLISECONDS.toNanos(100l);
+
+    LATCH.countDown();
+    LOOP.shutdownGracefully();
+    EXECUTOR.shutdownNow();
+  }
+
+  @Test
+  public void testShrinksToMinWhenIdle() throws Exception {
+    final CountDownLatch     LATCH    = new CountDownLatch(1);
+    final ElasticDspExecutor EXECUTOR = new ElasticDspExecutor(1, 3, 50l);
+
+    for (int i = 0; i < 6; i++) {
+      EXECUTOR.submit(blockOn(LATCH));
+    }
+
+    assert EXECUTOR.getPoolSize() >= 6;
+    LATCH.countDown();
+
+    for (int i = 0; i < 40 && EXECUTOR.getPoolSize() > 1; i++) {
+      Thread.sleep(50l);
+    }
+
+    assert EXECUTOR.getPoolSize() == 1;
+    EXECUTOR.shutdownNow();
+  }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.monitor;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.ChannelId;
+import org.anhonesteffort.p25.model.ControlChannelId;
+import org.anhonesteffort.p25.model.GroupChannelId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.anhonesteffort.p25.monitor.PartitionedDspPool.Partition;
+
+public class PartitionedDspPoolTest {
+
+  private static final ChannelId CONTROL = new ControlChannelId(10, 20, 30, 40);
+  private static final ChannelId TRAFFIC = new GroupChannelId(10, 20, 30, 40, 50, 60d);
+  private static final ChannelId URGENT  = new GroupChannelId(10, 20, 30, 40, 51, 61d);
+
+  @Before
+  public void mockMetrics() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+  }
+
+  private PartitionedDspPool pool(int size, int reserved, DspCostModel costs) {
+    return new PartitionedDspPool(
+        MoreExecutors.listeningDecorator(Executors.newCachedThreadPool()), size, reserved, costs, 1500l
+    );
+  }
+
+  private PartitionedDspPool pool(int size, int reserved) {
+    return pool(size, reserved, new DspCostModel(100d, 0.5d, threadId -> -1l, System::nanoTime));
+  }
+
+  private Callable<Void> blockOn(CountDownLatch latch) {
+    return () -> {
+      latch.await();
+      return null;
+    };
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReserveEntirePool() {
+    pool(2, 2);
+  }
+
+  @Test
+  public void testTrafficCannotTakeReserved() {
+    final CountDownLatch     LATCH = new CountDownLatch(1);
+    final PartitionedDspPool POOL  = pool(3, 1);
+
+    POOL.submit(TRAFFIC, blockOn(LATCH));
+    POOL.submit(TRAFFIC, blockOn(LATCH));
+
+    assert !POOL.hasCapacity(ChannelId.Type.TRAFFIC_GROUP);
+    assert  POOL.hasCapacity(ChannelId.Type.CONTROL);
+
+    try {
+      POOL.submit(TRAFFIC, blockOn(LATCH));
+      assert false;
+    } catch (RejectedExecutionException e) {
+      assert POOL.getOccupancy(Partition.TRAFFIC) == 2;
+    }
+
+    POOL.submit(CONTROL, blockOn(LATCH));
+
+    assert POOL.getOccupancy(Partition.CONTROL) == 1;
+    assert !POOL.hasCapacity(ChannelId.Type.CONTROL);
+    LATCH.countDown();
+  }
+
+  @Test
+  public void testControlBorrowsShared() {
+    final CountDownLatch     LATCH = new CountDownLatch(1);
+    final PartitionedDspPool POOL  = pool(3, 1);
+
+    POOL.submit(CONTROL, blockOn(LATCH));
+    POOL.submit(CONTROL, blockOn(LATCH));
+
+    assert POOL.getOccupancy(Partition.CONTROL) == 2;
+    assert POOL.hasCapacity(ChannelId.Type.TRAFFIC_GROUP);
+
+    POOL.submit(TRAFFIC, blockOn(LATCH));
+
+    assert !POOL.hasCapacity(ChannelId.Type.TRAFFIC_GROUP);
+    assert !POOL.hasCapacity(ChannelId.Type.CONTROL);
+    LATCH.countDown();
+  }
+
+  @Test
+  public void testCapacityReturnedOnCompletion() throws Exception {
+    final CountDownLatch     LATCH = new CountDownLatch(1);
+    final PartitionedDspPool POOL  = pool(2, 1);
+
+    final ListenableFuture<Void> FUTURE = POOL.submit(TRAFFIC, blockOn(LATCH));
+    assert !POOL.hasCapacity(ChannelId.Type.TRAFFIC_GROUP);
+
+    LATCH.countDown();
+    FUTURE.get(1000l, TimeUnit.MILLISECONDS);
+
+    assert POOL.hasCapacity(ChannelId.Type.TRAFFIC_GROUP);
+    assert POOL.getOccupancy(Partition.TRAFFIC) == 0;
+  }
+
+  @Test
+  public void testCapacityReturnedOnCancel() {
+    final CountDownLatch     LATCH = new CountDownLatch(1);
+    final PartitionedDspPool POOL  = pool(2, 1);
+
+    final ListenableFuture<Void> FUTURE = POOL.submit(TRAFFIC, blockOn(LATCH));
+    FUTURE.cancel(true);
+
+    assert POOL.hasCapacity(ChannelId.Type.TRAFFIC_GROUP);
+    assert POOL.getOccupancy(Partition.TRAFFIC) == 0;
+  }
+
+  @Test
+  public void testRetryAfterRoundsUp() {
+    assert pool(2, 1).getRetryAfterSeconds() == 2l;
+  }
+
+  @Test
+  public void testHeadroomLimitsAdmission() {
+    final CountDownLatch     LATCH = new CountDownLatch(1);
+    final DspCostModel       COSTS = new DspCostModel(1d, 0.3d, threadId -> -1l, System::nanoTime);
+    final PartitionedDspPool POOL  = pool(8, 1, COSTS);
+
+    POOL.submit(TRAFFIC, blockOn(LATCH));
+
+    assert  POOL.hasCapacity(ChannelId.Type.TRAFFIC_GROUP);
+    POOL.submit(TRAFFIC, blockOn(LATCH));
+
+    assert !POOL.hasCapacity(ChannelId.Type.TRAFFIC_GROUP);
+    assert  POOL.hasCapacity(ChannelId.Type.CONTROL);
+
+    try {
+      POOL.submit(TRAFFIC, blockOn(LATCH));
+      assert false;
+    } catch (RejectedExecutionException e) {
+      assert POOL.getOccupancy(Partition.TRAFFIC) == 2;
+    }
+
+    POOL.submit(CONTROL, blockOn(LATCH));
+    assert !POOL.hasCapacity(ChannelId.Type.QUALIFY);
+    LATCH.countDown();
+  }
+
+  @Test
+  public void testPreemptorTakesVictimSlot() {
+    final CountDownLatch     LATCH = new CountDownLatch(1);
+    final DspCostModel       COSTS = new DspCostModel(100d, 0.5d, threadId -> -1l, System::nanoTime);
+    final PartitionedDspPool POOL  = pool(2, 1, COSTS);
+
+    final ListenableFuture<Void> VICTIM = POOL.submit(TRAFFIC, blockOn(LATCH));
+    assert !POOL.hasCapacity(ChannelId.Type.TRAFFIC_GROUP);
+
+    final ListenableFuture<Void> PREEMPTOR = POOL.submitPreempting(URGENT, blockOn(LATCH), VICTIM);
+
+    assert VICTIM.isCancelled();
+    assert !PREEMPTOR.isDone();
+    assert !POOL.hasCapacity(ChannelId.Type.TRAFFIC_GROUP);
+    assert POOL.getOccupancy(Partition.TRAFFIC) == 1;
+    assert COSTS.getCharges().size() == 1;
+    assert COSTS.getCharges().iterator().next().getChannelId().equals(URGENT);
+
+    PREEMPTOR.cancel(true);
+
+    assert POOL.hasCapacity(ChannelId.Type.TRAFFIC_GROUP);
+    assert POOL.getOccupancy(Partition.TRAFFIC) == 0;
+    assert COSTS.getCharges().isEmpty();
+    LATCH.countDown();
+  }
+
+  @Test
+  public void testPreemptingFinishedVictimSubmits() {
+    final CountDownLatch     LATCH = new CountDownLatch(1);
+    final PartitionedDspPool POOL  = pool(2, 1);
+
+    final ListenableFuture<Void> VICTIM = POOL.submit(TRAFFIC, blockOn(LATCH));
+    VICTIM.cancel(true);
+
+    final ListenableFuture<Void> PREEMPTOR = POOL.submitPreempting(URGENT, blockOn(LATCH), VICTIM);
+
+    assert !PREEMPTOR.isDone();
+    assert POOL.getOccupancy(Partition.TRAFFIC) == 1;
+    LATCH.countDown();
+  }
+
+}
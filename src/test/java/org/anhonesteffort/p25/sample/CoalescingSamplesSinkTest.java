@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class CoalescingSamplesSinkTest {
+
+  private final SamplesBlockPool pool = new SamplesBlockPool(4);
+
+  private SamplesBlock block(float ... floats) {
+    return pool.acquire(FloatBuffer.wrap(floats));
+  }
+
+  private ScheduledExecutorService scheduler() {
+    final ScheduledExecutorService SCHEDULER = Mockito.mock(ScheduledExecutorService.class);
+    Mockito.doReturn(Mockito.mock(ScheduledFuture.class)).when(SCHEDULER).schedule(
+        Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.eq(TimeUnit.MILLISECONDS)
+    );
+    return SCHEDULER;
+  }
+
+  @Test
+  public void testFlushOnSize() {
+    final SamplesBlockSink             SINK      = Mockito.mock(SamplesBlockSink.class);
+    final CoalescingSamplesSink        COALESCER = new CoalescingSamplesSink(SINK, scheduler(), 4, 5l);
+    final ArgumentCaptor<SamplesBlock> CAPTOR    = ArgumentCaptor.forClass(SamplesBlock.class);
+
+    COALESCER.consume(block(1f, 2f, 3f, 4f));
+    Mockito.verify(SINK, Mockito.never()).consume(Mockito.any());
+
+    COALESCER.consume(block(5f, 6f, 7f, 8f));
+    Mockito.verify(SINK, Mockito.times(1)).consume(CAPTOR.capture());
+
+    assert CAPTOR.getValue().getSampleCount() == 4;
+    assert CAPTOR.getValue().getInPhase(0)    == 1f;
+    assert CAPTOR.getValue().getQuadrature(3) == 8f;
+  }
+
+  @Test
+  public void testFlushOnDeadline() {
+    final SamplesBlockSink             SINK      = Mockito.mock(SamplesBlockSink.class);
+    final ScheduledExecutorService     SCHEDULER = scheduler();
+    final CoalescingSamplesSink        COALESCER = new CoalescingSamplesSink(SINK, SCHEDULER, 4, 5l);
+    final ArgumentCaptor<Runnable>     DEADLINE  = ArgumentCaptor.forClass(Runnable.class);
+    final ArgumentCaptor<SamplesBlock> CAPTOR    = ArgumentCaptor.forClass(SamplesBlock.class);
+
+    COALESCER.consume(block(1f, 2f));
+    Mockito.verify(SCHEDULER).schedule(DEADLINE.capture(), Mockito.eq(5l), Mockito.eq(TimeUnit.MILLISECONDS));
+    Mockito.verify(SINK, Mockito.never()).consume(Mockito.any());
+
+    DEADLINE.getValue().run();
+    Mockito.verify(SINK, Mockito.times(1)).consume(CAPTOR.capture());
+
+    assert CAPTOR.getValue().getSampleCount() == 1;
+    assert CAPTOR.getValue().getInPhase(0)    == 1f;
+  }
+
+  @Test
+  public void testLargeBlockPassesThrough() {
+    final SamplesBlockSink      SINK      = Mockito.mock(SamplesBlockSink.class);
+    final CoalescingSamplesSink COALESCER = new CoalescingSamplesSink(SINK, scheduler(), 2, 5l);
+    final SamplesBlock          SMALL     = block(1f, 2f);
+    final SamplesBlock          LARGE     = block(1f, 2f, 3f, 4f, 5f, 6f);
+
+    COALESCER.consume(SMALL);
+    COALESCER.consume(LARGE);
+
+    Mockito.verify(SINK, Mockito.times(2)).consume(Mockito.any());
+    Mockito.verify(SINK).consume(LARGE);
+  }
+
+  @Test
+  public void testStateChangeFlushesPending() {
+    final SamplesBlockSink      SINK      = Mockito.mock(SamplesBlockSink.class);
+    final CoalescingSamplesSink COALESCER = new CoalescingSamplesSink(SINK, scheduler(), 4, 5l);
+
+    COALESCER.consume(block(1f, 2f));
+    COALESCER.onSourceStateChange(48000l, 851000000d);
+
+    Mockito.verify(SINK, Mockito.times(1)).consume(Mockito.any());
+    Mockito.verify(SINK).onSourceStateChange(48000l, 851000000d);
+  }
+
+}
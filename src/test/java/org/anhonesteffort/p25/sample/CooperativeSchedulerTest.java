@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CooperativeSchedulerTest {
+
+  @Before
+  public void mockMetrics() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+  }
+
+  @Test
+  public void testMailboxOrderedAndSerial() throws Exception {
+    final CooperativeScheduler SCHEDULER  = new CooperativeScheduler(4, 2);
+    final List<Integer>        HANDLED    = new CopyOnWriteArrayList<>();
+    final AtomicBoolean        RUNNING    = new AtomicBoolean(false);
+    final AtomicBoolean        OVERLAPPED = new AtomicBoolean(false);
+    final CountDownLatch       DONE       = new CountDownLatch(1000);
+
+    final CooperativeScheduler.Mailbox<Integer> MAILBOX = SCHEDULER.open(item -> {
+      if (!RUNNING.compareAndSet(false, true)) {
+        OVERLAPPED.set(true);
+      }
+      HANDLED.add(item);
+      RUNNING.set(false);
+      DONE.countDown();
+    });
+
+    SCHEDULER.start();
+    for (int i = 0; i < 1000; i++) {
+      MAILBOX.post(i);
+    }
+
+    assert DONE.await(5, TimeUnit.SECONDS);
+    assert !OVERLAPPED.get();
+    assert MAILBOX.getDepth() == 0;
+
+    for (int i = 0; i < 1000; i++) {
+      assert HANDLED.get(i) == i;
+    }
+
+    SCHEDULER.stop();
+  }
+
+  @Test
+  public void testBusyMailboxYields() throws Exception {
+    final CooperativeScheduler SCHEDULER = new CooperativeScheduler(1, 1);
+    final CountDownLatch       STARTED   = new CountDownLatch(1);
+    final CountDownLatch       RELEASE   = new CountDownLatch(1);
+    final AtomicInteger        BUSY      = new AtomicInteger(0);
+    final CountDownLatch       QUIET     = new CountDownLatch(1);
+    final AtomicInteger        QUIET_AT  = new AtomicInteger(-1);
+
+    final CooperativeScheduler.Mailbox<Integer> BUSY_BOX = SCHEDULER.open(item -> {
+      STARTED.countDown();
+      try {
+        RELEASE.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      BUSY.incrementAndGet();
+    });
+    final CooperativeScheduler.Mailbox<Integer> QUIET_BOX = SCHEDULER.open(item -> {
+      QUIET_AT.set(BUSY.get());
+      QUIET.countDown();
+    });
+
+    SCHEDULER.start();
+    for (int i = 0; i < 100; i++) {
+      BUSY_BOX.post(i);
+    }
+
+    assert STARTED.await(1, TimeUnit.SECONDS);
+    QUIET_BOX.post(0);
+    RELEASE.countDown();
+
+    assert QUIET.await(1, TimeUnit.SECONDS);
+    assert QUIET_AT.get() < 100;
+
+    SCHEDULER.stop();
+  }
+
+  @Test
+  public void testNothingRunsUntilStarted() throws Exception {
+    final CooperativeScheduler SCHEDULER = new CooperativeScheduler(1, 1);
+    final CountDownLatch       HANDLED   = new CountDownLatch(1);
+
+    final CooperativeScheduler.Mailbox<Integer> MAILBOX = SCHEDULER.open(item -> HANDLED.countDown());
+
+    MAILBOX.post(0);
+    assert !HANDLED.await(100, TimeUnit.MILLISECONDS);
+
+    SCHEDULER.start();
+    assert HANDLED.await(1, TimeUnit.SECONDS);
+
+    SCHEDULER.stop();
+  }
+
+  @Test
+  public void testStopEndsWorkers() throws Exception {
+    final CooperativeScheduler SCHEDULER = new CooperativeScheduler(2, 1);
+    final CountDownLatch       HANDLED   = new CountDownLatch(1);
+
+    final CooperativeScheduler.Mailbox<Integer> MAILBOX = SCHEDULER.open(item -> HANDLED.countDown());
+
+    SCHEDULER.start();
+    SCHEDULER.stop();
+    MAILBOX.post(0);
+
+    assert !HANDLED.await(100, TimeUnit.MILLISECONDS);
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.LinkedList;
+import java.util.List;
+
+public class PolyphaseChannelizerTest {
+
+  private static final long   SAMPLE_RATE = 480000l;
+  private static final long   OUTPUT_RATE = 48000l;
+  private static final double CENTER      = 851000000d;
+
+  private final SamplesBlockPool pool = new SamplesBlockPool(4);
+
+  private SamplesBlock tone(double offset, int start, int count) {
+    float[] samples = new float[count * 2];
+
+    for (int i = 0; i < count; i++) {
+      double phase = (2d * Math.PI * offset * (start + i)) / SAMPLE_RATE;
+      samples[i * 2]       = (float) Math.cos(phase);
+      samples[(i * 2) + 1] = (float) Math.sin(phase);
+    }
+
+    return pool.acquire(FloatBuffer.wrap(samples));
+  }
+
+  private static class CollectingSink implements SamplesBlockSink {
+    private final List<Float> magnitudes = new LinkedList<>();
+    private       long        sampleRate = -1l;
+    private       double      frequency  = -1d;
+
+    @Override
+    public void onSourceStateChange(long sampleRate, double frequency) {
+      this.sampleRate = sampleRate;
+      this.frequency  = frequency;
+    }
+
+    @Override
+    public void consume(SamplesBlock block) {
+      for (int i = 0; i < block.getSampleCount(); i++) {
+        magnitudes.add((float) Math.hypot(block.getInPhase(i), block.getQuadrature(i)));
+      }
+      block.release();
+    }
+
+    public float settledMagnitude() {
+      return magnitudes.get(magnitudes.size() - 1);
+    }
+  }
+
+  private void feed(PolyphaseChannelizer channelizer, double offset) {
+    for (int block = 0; block < 10; block++) {
+      channelizer.consume(tone(offset, block * 4800, 4800));
+    }
+  }
+
+  @Test
+  public void testDecimationFor() {
+    assert PolyphaseChannelizer.decimationFor(480000l,  OUTPUT_RATE) == 10;
+    assert PolyphaseChannelizer.decimationFor(1008000l, OUTPUT_RATE) == 21;
+    assert PolyphaseChannelizer.decimationFor(30000l,   OUTPUT_RATE) == 1;
+  }
+
+  @Test
+  public void testTapDecimatesToOutputRate() {
+    final PolyphaseChannelizer CHANNELIZER = new PolyphaseChannelizer(OUTPUT_RATE, 6250d, 16);
+    final CollectingSink       SINK        = new CollectingSink();
+
+    CHANNELIZER.onSourceStateChange(SAMPLE_RATE, CENTER);
+    CHANNELIZER.addTap(CENTER + 100000d).setSink(SINK);
+    feed(CHANNELIZER, 100000d);
+
+    assert SINK.sampleRate        == OUTPUT_RATE;
+    assert SINK.frequency         == CENTER + 100000d;
+    assert SINK.magnitudes.size() == 4800;
+  }
+
+  @Test
+  public void testTapPassesItsChannel() {
+    final PolyphaseChannelizer CHANNELIZER = new PolyphaseChannelizer(OUTPUT_RATE, 6250d, 16);
+    final CollectingSink       SINK        = new CollectingSink();
+
+    CHANNELIZER.addTap(CENTER - 150000d).setSink(SINK);
+    CHANNELIZER.onSourceStateChange(SAMPLE_RATE, CENTER);
+    feed(CHANNELIZER, -150000d);
+
+    assert Math.abs(SINK.settledMagnitude() - 1f) < 0.05f;
+  }
+
+  @Test
+  public void testTapRejectsOtherChannels() {
+    final PolyphaseChannelizer CHANNELIZER = new PolyphaseChannelizer(OUTPUT_RATE, 6250d, 16);
+    final CollectingSink       NEAR        = new CollectingSink();
+    final CollectingSink       FAR         = new CollectingSink();
+
+    CHANNELIZER.onSourceStateChange(SAMPLE_RATE, CENTER);
+    CHANNELIZER.addTap(CENTER + 50000d).setSink(NEAR);
+    CHANNELIZER.addTap(CENTER - 100000d).setSink(FAR);
+    feed(CHANNELIZER, 100000d);
+
+    assert NEAR.settledMagnitude() < 0.05f;
+    assert FAR.settledMagnitude()  < 0.05f;
+  }
+
+  @Test
+  public void testClosedTapStopsConsuming() {
+    final PolyphaseChannelizer     CHANNELIZER = new PolyphaseChannelizer(OUTPUT_RATE, 6250d, 16);
+    final CollectingSink           SINK        = new CollectingSink();
+    final PolyphaseChannelizer.Tap TAP         = CHANNELIZER.addTap(CENTER);
+
+    CHANNELIZER.onSourceStateChange(SAMPLE_RATE, CENTER);
+    TAP.setSink(SINK);
+    CHANNELIZER.consume(tone(0d, 0, 4800));
+    assert SINK.magnitudes.size() == 480;
+
+    TAP.close();
+    CHANNELIZER.consume(tone(0d, 4800, 4800));
+
+    assert SINK.magnitudes.size()    == 480;
+    assert CHANNELIZER.getTapCount() == 0;
+  }
+
+}
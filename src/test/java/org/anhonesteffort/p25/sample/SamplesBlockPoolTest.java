@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+public class SamplesBlockPoolTest {
+
+  @Test
+  public void testAcquireCopiesInterleaved() {
+    final SamplesBlockPool POOL   = new SamplesBlockPool(2);
+    final FloatBuffer      FLOATS = FloatBuffer.wrap(new float[] { 1f, 2f, 3f, 4f, 5f, 6f });
+    final SamplesBlock     BLOCK  = POOL.acquire(FLOATS);
+
+    assert BLOCK.getSampleCount()  == 3;
+    assert BLOCK.getInPhase(0)     == 1f;
+    assert BLOCK.getQuadrature(0)  == 2f;
+    assert BLOCK.getInPhase(2)     == 5f;
+    assert BLOCK.getQuadrature(2)  == 6f;
+  }
+
+  @Test
+  public void testAcquireScalesCompact() {
+    final SamplesBlockPool POOL   = new SamplesBlockPool(2);
+    final ShortBuffer      SHORTS = ShortBuffer.wrap(new short[] { 16384, -16384, 32767, -32768 });
+    final SamplesBlock     BLOCK  = POOL.acquire(SHORTS);
+
+    assert BLOCK.getSampleCount() == 2;
+    assert BLOCK.getInPhase(0)    == 0.5f;
+    assert BLOCK.getQuadrature(0) == -0.5f;
+    assert BLOCK.getInPhase(1)    <  1f;
+    assert BLOCK.getQuadrature(1) == -1f;
+  }
+
+  @Test
+  public void testCompactReusesBlockFromWire() {
+    final SamplesBlockPool POOL = new SamplesBlockPool(2);
+    final ByteBuffer       WIRE = ByteBuffer.allocateDirect(12);
+
+    POOL.acquire(FloatBuffer.wrap(new float[] { 1f, 2f, 3f, 4f, 5f, 6f })).release();
+    WIRE.putShort((short) 0).putShort((short) 8192).putShort((short) -8192).putShort((short) 16384);
+    WIRE.flip();
+
+    final SamplesBlock BLOCK = POOL.acquire(WIRE.asShortBuffer());
+
+    assert POOL.getPooledCount()  == 0;
+    assert BLOCK.getSampleCount() == 2;
+    assert BLOCK.getInPhase(0)    == 0f;
+    assert BLOCK.getQuadrature(0) == 0.25f;
+    assert BLOCK.getInPhase(1)    == -0.25f;
+    assert BLOCK.getQuadrature(1) == 0.5f;
+  }
+
+  @Test
+  public void testReleasedBlockReused() {
+    final SamplesBlockPool POOL  = new SamplesBlockPool(2);
+    final SamplesBlock     FIRST = POOL.acquire(FloatBuffer.wrap(new float[] { 1f, 2f, 3f, 4f }));
+
+    assert POOL.getPooledCount() == 0;
+    FIRST.release();
+    assert POOL.getPooledCount() == 1;
+
+    final SamplesBlock SECOND = POOL.acquire(FloatBuffer.wrap(new float[] { 7f, 8f }));
+
+    assert SECOND == FIRST;
+    assert SECOND.getSampleCount() == 1;
+    assert SECOND.getInPhase(0)    == 7f;
+    assert POOL.getPooledCount()   == 0;
+  }
+
+  @Test
+  public void testUndersizedBlockNotReused() {
+    final SamplesBlockPool POOL  = new SamplesBlockPool(2);
+    final SamplesBlock     SMALL = POOL.acquire(FloatBuffer.wrap(new float[] { 1f, 2f }));
+
+    SMALL.release();
+
+    final SamplesBlock LARGE = POOL.acquire(FloatBuffer.wrap(new float[] { 1f, 2f, 3f, 4f }));
+
+    assert LARGE != SMALL;
+    assert LARGE.getSampleCount() == 2;
+  }
+
+  @Test
+  public void testPoolBounded() {
+    final SamplesBlockPool POOL   = new SamplesBlockPool(1);
+    final SamplesBlock     FIRST  = POOL.acquire(2);
+    final SamplesBlock     SECOND = POOL.acquire(2);
+
+    FIRST.release();
+    SECOND.release();
+
+    assert POOL.getPooledCount() == 1;
+  }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.WidebandChannelId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class SamplesBlockQueueTest {
+
+  @Before
+  public void mockMetrics() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+  }
+
+  private SamplesQueueTracker tracker() {
+    return new SamplesQueueTracker(new WidebandChannelId(10d), 4, 3, 1, true);
+  }
+
+  @Test
+  public void testSinkRunsOnCallingThread() throws Exception {
+    final SamplesBlockSink    SINK     = Mockito.mock(SamplesBlockSink.class);
+    final SamplesBlockQueue   QUEUE    = new SamplesBlockQueue(SINK);
+    final SamplesQueueTracker TRACKER  = tracker();
+    final SamplesBlock        BLOCK    = Mockito.mock(SamplesBlock.class);
+    final ExecutorService     EXECUTOR = Executors.newSingleThreadExecutor();
+
+    QUEUE.setQueue(TRACKER);
+    QUEUE.onSourceStateChange(480000l, 851000000d);
+    QUEUE.consume(BLOCK);
+
+    Mockito.verify(SINK, Mockito.never()).consume(Mockito.any());
+    assert TRACKER.getDepth() == 1;
+
+    final Future<Void> TASK = EXECUTOR.submit(QUEUE);
+
+    Mockito.verify(SINK, Mockito.timeout(1000)).onSourceStateChange(480000l, 851000000d);
+    Mockito.verify(SINK, Mockito.timeout(1000)).consume(BLOCK);
+    assert TRACKER.getDepth() == 0;
+
+    TASK.cancel(true);
+    EXECUTOR.shutdown();
+    assert EXECUTOR.awaitTermination(1000, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  public void testPausesAndDropsAgainstTracker() {
+    final SamplesBlockSink                SINK    = Mockito.mock(SamplesBlockSink.class);
+    final SamplesBlockQueue               QUEUE   = new SamplesBlockQueue(SINK);
+    final SamplesQueueTracker             TRACKER = tracker();
+    final SamplesQueueTracker.FlowControl CONTROL = Mockito.mock(SamplesQueueTracker.FlowControl.class);
+    final SamplesBlock                    DROPPED = Mockito.mock(SamplesBlock.class);
+
+    TRACKER.setFlowControl(CONTROL);
+    QUEUE.setQueue(TRACKER);
+
+    for (int i = 0; i < 4; i++) {
+      QUEUE.consume(Mockito.mock(SamplesBlock.class));
+    }
+
+    assert TRACKER.isPaused();
+    Mockito.verify(CONTROL).onFlowControlChange(TRACKER);
+
+    QUEUE.consume(DROPPED);
+    Mockito.verify(DROPPED).release();
+    assert QUEUE.getDepth() == 4;
+  }
+
+  @Test
+  public void testCloseReleasesQueuedBlocks() {
+    final SamplesBlockSink  SINK   = Mockito.mock(SamplesBlockSink.class);
+    final SamplesBlockQueue QUEUE  = new SamplesBlockQueue(SINK);
+    final SamplesBlock      QUEUED = Mockito.mock(SamplesBlock.class);
+    final SamplesBlock      LATE   = Mockito.mock(SamplesBlock.class);
+
+    QUEUE.consume(QUEUED);
+    QUEUE.close();
+    QUEUE.consume(LATE);
+
+    Mockito.verify(QUEUED).release();
+    Mockito.verify(LATE).release();
+    Mockito.verify(SINK, Mockito.never()).consume(Mockito.any());
+  }
+
+  @Test
+  public void testCloseEndsCall() throws Exception {
+    final SamplesBlockQueue QUEUE    = new SamplesBlockQueue(Mockito.mock(SamplesBlockSink.class));
+    final ExecutorService   EXECUTOR = Executors.newSingleThreadExecutor();
+    final Future<Void>      TASK     = EXECUTOR.submit(QUEUE);
+
+    QUEUE.close();
+
+    TASK.get(1000, TimeUnit.MILLISECONDS);
+    EXECUTOR.shutdown();
+  }
+
+}
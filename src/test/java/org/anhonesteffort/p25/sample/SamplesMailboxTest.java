@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SamplesMailboxTest {
+
+  private final SamplesBlockPool pool = new SamplesBlockPool(16);
+
+  @Before
+  public void mockMetrics() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+  }
+
+  private static class CountingSink implements SamplesBlockSink {
+    private final List<SamplesBlock> blocks;
+    private final CountDownLatch     latch;
+
+    public CountingSink(List<SamplesBlock> blocks, CountDownLatch latch) {
+      this.blocks = blocks;
+      this.latch  = latch;
+    }
+
+    @Override
+    public void onSourceStateChange(long sampleRate, double frequency) { }
+
+    @Override
+    public void consume(SamplesBlock block) {
+      blocks.add(block);
+      block.release();
+      latch.countDown();
+    }
+  }
+
+  private SamplesBlock block() {
+    return pool.acquire(FloatBuffer.wrap(new float[2]));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidWaterMarks() {
+    new SamplesMailbox(new CooperativeScheduler(1, 1), 2, 2);
+  }
+
+  @Test
+  public void testFlowControlPauseResumeWithoutDrops() throws Exception {
+    final CooperativeScheduler       SCHEDULER = new CooperativeScheduler(1, 8);
+    final SamplesMailbox             MAILBOX   = new SamplesMailbox(SCHEDULER, 4, 1);
+    final SamplesMailbox.FlowControl CONTROL   = Mockito.mock(SamplesMailbox.FlowControl.class);
+    final List<SamplesBlock>         HANDLED   = new CopyOnWriteArrayList<>();
+    final CountDownLatch             DONE      = new CountDownLatch(10);
+    final SamplesBlockSink           SINK      = MAILBOX.to(new CountingSink(HANDLED, DONE));
+
+    MAILBOX.setFlowControl(CONTROL);
+
+    for (int i = 0; i < 3; i++) {
+      SINK.consume(block());
+    }
+    assert !MAILBOX.isPaused();
+    Mockito.verify(CONTROL, Mockito.never()).onFlowControlChange(MAILBOX);
+
+    for (int i = 0; i < 7; i++) {
+      SINK.consume(block());
+    }
+    assert MAILBOX.isPaused();
+    assert MAILBOX.getDepth() == 10;
+    Mockito.verify(CONTROL, Mockito.times(1)).onFlowControlChange(MAILBOX);
+
+    SCHEDULER.start();
+
+    assert DONE.await(1, TimeUnit.SECONDS);
+    assert HANDLED.size() == 10;
+    assert !MAILBOX.isPaused();
+    Mockito.verify(CONTROL, Mockito.times(2)).onFlowControlChange(MAILBOX);
+
+    SCHEDULER.stop();
+  }
+
+  @Test
+  public void testSinksShareOneMailboxInOrder() throws Exception {
+    final CooperativeScheduler SCHEDULER = new CooperativeScheduler(4, 1);
+    final SamplesMailbox       MAILBOX   = new SamplesMailbox(SCHEDULER, 16, 8);
+    final List<SamplesBlock>   HANDLED   = new CopyOnWriteArrayList<>();
+    final CountDownLatch       DONE      = new CountDownLatch(4);
+    final SamplesBlockSink     FIRST     = MAILBOX.to(new CountingSink(HANDLED, DONE));
+    final SamplesBlockSink     SECOND    = MAILBOX.to(new CountingSink(HANDLED, DONE));
+    final SamplesBlock         ONE       = block();
+    final SamplesBlock         TWO       = block();
+    final SamplesBlock         THREE     = block();
+    final SamplesBlock         FOUR      = block();
+
+    FIRST.consume(ONE);
+    FIRST.consume(TWO);
+    SECOND.consume(THREE);
+    FIRST.consume(FOUR);
+    assert MAILBOX.getDepth() == 4;
+
+    SCHEDULER.start();
+
+    assert DONE.await(1, TimeUnit.SECONDS);
+    assert HANDLED.get(0) == ONE;
+    assert HANDLED.get(1) == TWO;
+    assert HANDLED.get(2) == THREE;
+    assert HANDLED.get(3) == FOUR;
+
+    SCHEDULER.stop();
+  }
+
+  @Test
+  public void testStateChangesCountTowardResume() throws Exception {
+    final CooperativeScheduler       SCHEDULER = new CooperativeScheduler(1, 8);
+    final SamplesMailbox             MAILBOX   = new SamplesMailbox(SCHEDULER, 4, 1);
+    final SamplesMailbox.FlowControl CONTROL   = Mockito.mock(SamplesMailbox.FlowControl.class);
+    final CountDownLatch             DONE      = new CountDownLatch(1);
+    final SamplesBlockSink           SINK      = MAILBOX.to(new CountingSink(new CopyOnWriteArrayList<>(), DONE));
+
+    MAILBOX.setFlowControl(CONTROL);
+
+    SINK.consume(block());
+    for (int i = 0; i < 4; i++) {
+      SINK.onSourceStateChange(48000l, 851e6);
+    }
+    assert MAILBOX.isPaused();
+
+    SCHEDULER.start();
+
+    assert DONE.await(1, TimeUnit.SECONDS);
+    for (int i = 0; i < 100 && MAILBOX.isPaused(); i++) {
+      Thread.sleep(10);
+    }
+
+    assert !MAILBOX.isPaused();
+    Mockito.verify(CONTROL, Mockito.times(2)).onFlowControlChange(MAILBOX);
+
+    SCHEDULER.stop();
+  }
+
+  @Test
+  public void testNeverLeftPausedWhenDrained() throws Exception {
+    final CooperativeScheduler       SCHEDULER = new CooperativeScheduler(1, 1);
+    final SamplesMailbox             MAILBOX   = new SamplesMailbox(SCHEDULER, 2, 1);
+    final SamplesMailbox.FlowControl CONTROL   = Mockito.mock(SamplesMailbox.FlowControl.class, Mockito.withSettings().stubOnly());
+    final CountDownLatch             DONE      = new CountDownLatch(20000);
+    final SamplesBlockSink           SINK      = MAILBOX.to(new SamplesBlockSink() {
+      @Override
+      public void onSourceStateChange(long sampleRate, double frequency) {
+        DONE.countDown();
+      }
+
+      @Override
+      public void consume(SamplesBlock block) {
+        DONE.countDown();
+      }
+    });
+
+    MAILBOX.setFlowControl(CONTROL);
+    SCHEDULER.start();
+
+    for (int i = 0; i < 20000; i++) {
+      if (i % 100 == 0) {
+        SINK.onSourceStateChange(48000l, 851e6);
+      } else {
+        SINK.consume(null);
+      }
+      if (MAILBOX.isPaused()) {
+        Thread.yield();
+      }
+    }
+
+    assert DONE.await(5, TimeUnit.SECONDS);
+    for (int i = 0; i < 100 && (MAILBOX.getDepth() > 0 || MAILBOX.isPaused()); i++) {
+      Thread.sleep(10);
+    }
+
+    assert MAILBOX.getDepth() == 0;
+    assert !MAILBOX.isPaused();
+
+    SCHEDULER.stop();
+  }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 An Honest Effort LLC.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.anhonesteffort.p25.sample;
+
+import org.anhonesteffort.p25.metric.MockMetrics;
+import org.anhonesteffort.p25.metric.P25DcodrMetrics;
+import org.anhonesteffort.p25.model.QualifyChannelId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SamplesQueueTrackerTest {
+
+  @Before
+  public void mockMetrics() {
+    final P25DcodrMetrics mock = Mockito.mock(P25DcodrMetrics.class);
+    MockMetrics.mockWith(mock);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidWaterMarks() {
+    new SamplesQueueTracker(new QualifyChannelId(10d), 10, 5, 5, true);
+  }
+
+  @Test
+  public void testOverflow() {
+    final SamplesQueueTracker QUEUE = new SamplesQueueTracker(new QualifyChannelId(10d), 2, 2, 1, false);
+
+    assert QUEUE.tryEnqueue();
+    assert QUEUE.tryEnqueue();
+    assert !QUEUE.tryEnqueue();
+    assert QUEUE.getDepth() == 2;
+
+    QUEUE.onDequeued();
+
+    assert QUEUE.tryEnqueue();
+    assert QUEUE.getDepth() == 2;
+  }
+
+  @Test
+  public void testFlowControlPauseResume() {
+    final SamplesQueueTracker             QUEUE   = new SamplesQueueTracker(new QualifyChannelId(10d), 4, 3, 1, true);
+    final SamplesQueueTracker.FlowControl CONTROL = Mockito.mock(SamplesQueueTracker.FlowControl.class);
+
+    QUEUE.setFlowControl(CONTROL);
+
+    assert QUEUE.tryEnqueue();
+    assert QUEUE.tryEnqueue();
+    assert !QUEUE.isPaused();
+    Mockito.verify(CONTROL, Mockito.never()).onFlowControlChange(QUEUE);
+
+    assert QUEUE.tryEnqueue();
+    assert QUEUE.isPaused();
+    Mockito.verify(CONTROL, Mockito.times(1)).onFlowControlChange(QUEUE);
+
+    QUEUE.onDequeued();
+    assert QUEUE.isPaused();
+
+    QUEUE.onDequeued();
+    assert !QUEUE.isPaused();
+    Mockito.verify(CONTROL, Mockito.times(2)).onFlowControlChange(QUEUE);
+  }
+
+  @Test
+  public void testFlowControlDisabled() {
+    final SamplesQueueTracker             QUEUE   = new SamplesQueueTracker(new QualifyChannelId(10d), 4, 3, 1, false);
+    final SamplesQueueTracker.FlowControl CONTROL = Mockito.mock(SamplesQueueTracker.FlowControl.class);
+
+    QUEUE.setFlowControl(CONTROL);
+
+    for (int i = 0; i < 4; i++) {
+      assert QUEUE.tryEnqueue();
+    }
+
+    assert !QUEUE.isPaused();
+    Mockito.verify(CONTROL, Mockito.never()).onFlowControlChange(QUEUE);
+  }
+
+  @Test
+  public void testStalledQueueResyncs() throws Exception {
+    final SamplesQueueTracker             QUEUE   = new SamplesQueueTracker(new QualifyChannelId(10d), 4, 3, 1, true, 10l);
+    final SamplesQueueTracker.FlowControl CONTROL = Mockito.mock(SamplesQueueTracker.FlowControl.class);
+
+    QUEUE.setFlowControl(CONTROL);
+
+    for (int i = 0; i < 3; i++) {
+      assert QUEUE.tryEnqueue();
+    }
+
+    assert QUEUE.isPaused();
+    assert !QUEUE.resumeIfStalled();
+
+    Thread.sleep(20l);
+
+    assert QUEUE.resumeIfStalled();
+    assert !QUEUE.isPaused();
+    assert QUEUE.getDepth() == 0;
+    Mockito.verify(CONTROL, Mockito.times(2)).onFlowControlChange(QUEUE);
+
+    QUEUE.onDequeued();
+    assert QUEUE.getDepth() == 0;
+  }
+
+  @Test
+  public void testNeverLeftPausedWhenDrained() throws Exception {
+    MockMetrics.mockWith(Mockito.mock(P25DcodrMetrics.class, Mockito.withSettings().stubOnly()));
+
+    final SamplesQueueTracker QUEUE    = new SamplesQueueTracker(new QualifyChannelId(10d), 64, 2, 1, true);
+    final AtomicInteger       QUEUED   = new AtomicInteger(0);
+    final int                 ELEMENTS = 20000;
+    final Thread              CONSUMER = new Thread(() -> {
+      for (int i = 0; i < ELEMENTS; ) {
+        if (QUEUED.get() > 0) {
+          QUEUED.decrementAndGet();
+          QUEUE.onDequeued();
+          i++;
+        } else {
+          Thread.yield();
+        }
+      }
+    });
+
+    CONSUMER.start();
+
+    for (int i = 0; i < ELEMENTS; ) {
+      if (QUEUE.tryEnqueue()) {
+        QUEUED.incrementAndGet();
+        i++;
+      } else {
+        Thread.yield();
+      }
+    }
+
+    CONSUMER.join(10000l);
+
+    assert QUEUE.getDepth() == 0;
+    assert !QUEUE.isPaused();
+  }
+
+}